@@ -2,12 +2,14 @@ package com.jagex;
 
 import lombok.Setter;
 import org.displee.CacheLibrary;
+import org.displee.CacheLockedException;
 import org.displee.cache.index.Index;
 import org.displee.cache.index.archive.Archive;
 import org.displee.cache.index.archive.file.File;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.function.BiFunction;
@@ -19,6 +21,7 @@ import com.jagex.net.ResourceProvider;
 import com.rspsi.cache.CacheFileType;
 import com.rspsi.misc.FixedIntegerKeyMap;
 import com.rspsi.misc.XTEAManager;
+import com.rspsi.options.Options;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -52,7 +55,7 @@ public class Cache {
 
 	public Cache(Path path) throws IOException {
 			log.info("Loading cache at {}", path);
-			indexedFileSystem = new CacheLibrary(path);
+			indexedFileSystem = open(path);
 			if(indexedFileSystem.is317()){
 				modelArchive = indexedFileSystem.getIndex(1);
 				mapArchive = indexedFileSystem.getIndex(4);
@@ -85,11 +88,27 @@ public class Cache {
 				throw new UnsupportedOperationException("RS3 Cache not supported!");
 			}
 			resourceProvider = new ResourceProvider(this);
-			Thread t = new Thread(resourceProvider);
-			t.start();
+			resourceProvider.start(Options.resourceWorkers.get());
 	}
 	
 	public ResourceProvider resourceProvider;
+
+	/**
+	 * Opens the cache in shared mode when {@link Options#sharedCache} is set or the cache can not be written to, so
+	 * several editors can work on one cache, each keeping its changes in an overlay until they are merged. Otherwise
+	 * the cache is opened for writing, falling back to shared mode if other editors already share it.
+	 */
+	private static CacheLibrary open(Path path) throws IOException {
+		if (Options.sharedCache.get() || !Files.isWritable(path)) {
+			return new CacheLibrary(path.toString(), (java.io.File) null, null);
+		}
+		try {
+			return new CacheLibrary(path);
+		} catch (CacheLockedException ex) {
+			log.info("Cache at {} is open in another editor, sharing it", path);
+			return new CacheLibrary(path.toString(), (java.io.File) null, null);
+		}
+	}
 	
 
 	private FixedIntegerKeyMap<Sprite> spriteCache = new FixedIntegerKeyMap<Sprite>(100);
@@ -5,7 +5,6 @@ import com.jagex.map.tile.SceneTile;
 import com.rspsi.options.KeyboardState;
 import javafx.scene.input.KeyCode;
 import org.displee.cache.index.archive.Archive;
-import org.displee.utilities.GZIPUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -19,14 +18,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import javax.imageio.ImageIO;
 
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -41,10 +38,12 @@ import com.jagex.chunk.Chunk;
 import com.jagex.draw.ImageGraphicsBuffer;
 import com.jagex.draw.font.RSFont;
 import com.jagex.draw.raster.GameRasterizer;
+import com.jagex.draw.raster.ParallelRasterizer;
 import com.jagex.entity.model.Mesh;
 import com.jagex.entity.model.MeshLoader;
 import com.jagex.entity.object.RenderableObject;
 import com.jagex.map.MapRegion;
+import com.jagex.net.ResourcePriority;
 import com.jagex.net.ResourceProvider;
 import com.jagex.net.ResourceResponse;
 import com.jagex.util.Constants;
@@ -61,6 +60,7 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.GraphicsContext;
@@ -82,6 +82,14 @@ public final class Client implements Runnable {
 	public SceneGraph sceneGraph;
 	
 	public boolean cameraMoved = true;
+	private final Object redrawLock = new Object();
+	private volatile boolean redrawRequested = true;
+	private int[] frameState = new int[15];
+	private int[] lastFrameState = new int[15];
+	private long lastFrameTime;
+	private int lastFramePulse;
+	private static final long IDLE_REDRAW_INTERVAL = 1000;
+	private static final long IDLE_POLL_INTERVAL = 20;
 	
 	// client
 	public static HashMap<Consumer<Client>, Long> timedConsumers = Maps.newHashMap();
@@ -147,10 +155,8 @@ public final class Client implements Runnable {
 		cacheLoadingLock.lock();
 		try {
 			this.cache = new Cache(path);
-			Thread t = new Thread(getProvider());
-			t.start();
 	
-			EventBus.getDefault().register(this);
+			getProvider().addListener(this::processLoadedResources);
 				new MeshLoader(cache.getProvider());
 		} catch (Exception e) {
 			errorMessage = "There was an error loading the specified cache!";
@@ -207,6 +213,8 @@ public final class Client implements Runnable {
 	private volatile boolean aBoolean831;
 	private volatile boolean aBoolean962;
 	public ImageGraphicsBuffer gameImageBuffer;
+	private ParallelRasterizer parallelRasterizer;
+	private final Consumer<WritableImage> gameImageDisplay = this::drawImage;
 	private int anInt1014;
 	private int anInt1015;
 	private int anInt1131;
@@ -359,7 +367,6 @@ public final class Client implements Runnable {
 					gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20,
 					0xffffff);
 			drawDebugOverlay();
-			gameImageBuffer.finalize();
 		}
 		
 		if (loadState == LoadState.ERROR) {
@@ -370,7 +377,6 @@ public final class Client implements Runnable {
 					"There was an error loading the specified map!", gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20, 0xFFFFFF);
 			
 			drawDebugOverlay();
-			gameImageBuffer.finalize();
 		}
 
 		if (loadState == LoadState.ACTIVE) {
@@ -407,6 +413,13 @@ public final class Client implements Runnable {
 	
 	private static long lastMinimapUpdate;
 
+	private void discardChunks() {
+		for (Chunk chunk : chunks) {
+			chunk.discard();
+		}
+		chunks.clear();
+	}
+
 	public Chunk getCurrentChunk() {
 		for (int i = chunks.size() - 1; i >= 0; i--) {
 			if (chunks.get(i).inChunk(xCameraPos / 128, yCameraPos / 128))
@@ -629,14 +642,14 @@ public final class Client implements Runnable {
 		baseY = wY;
 
 		fullMapCanvas = new DisplayCanvas(chunkXLength * Options.mapRegionSize.get(), chunkYLength * Options.mapRegionSize.get(), false);
-		chunks.clear();
+		discardChunks();
+		getProvider().cancel(ResourcePriority.NEIGHBOUR);
 		
 		gameImageBuffer.initializeRasterizer();
 		gameImageBuffer.clear(0);
 		TextRenderUtils.renderCenter(gameImageBuffer.getGraphics(), 
 				"Loading map, this may take a few seconds...", gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20, 0xFFFFFF);
 		// frameFont.renderCentre(256, 150, "Loading - please wait.", 0xffffff);
-		gameImageBuffer.finalize();
 		drawGameImage();
 		xCameraPos = ((int)(Math.ceil(chunkXLength / 2)) * 8192) + 4096;
 		yCameraPos = ((int)(Math.ceil(chunkYLength / 2)) * 8192) + 4096;
@@ -664,7 +677,7 @@ public final class Client implements Runnable {
 					chunk.tileMapId = landscapeMapId;
 					chunk.tileMapName = MapIndexLoader.getName(cX, cY, MapType.LANDSCAPE);
 					if (landscapeMapId != -1) {
-						getProvider().requestMap(landscapeMapId, hash);
+						chunk.requestMap(landscapeMapId);
 						System.out.println("Requesting landscape map " + landscapeMapId);
 					}
 
@@ -672,7 +685,7 @@ public final class Client implements Runnable {
 					chunk.objectMapId = objectMapId;
 					chunk.objectMapName = MapIndexLoader.getName(cX, cY, MapType.OBJECT);
 					if (objectMapId != -1) {
-						getProvider().requestMap(objectMapId, hash);
+						chunk.requestMap(objectMapId);
 						System.out.println("Requesting object map " + objectMapId);
 					}
 					log.info("Added chunk, obj/landscape {}/{}", objectMapId, landscapeMapId);
@@ -701,14 +714,13 @@ public final class Client implements Runnable {
 		baseX = 0;
 		baseY = 0;
 		fullMapCanvas = new DisplayCanvas(chunkXLength * Options.mapRegionSize.get(), chunkYLength * Options.mapRegionSize.get(), false);
-		chunks.clear();
+		discardChunks();
 		
 		gameImageBuffer.initializeRasterizer();
 		gameImageBuffer.clear(0);
 		TextRenderUtils.renderCenter(gameImageBuffer.getGraphics(), 
 				"Loading map, this may take a few seconds...", gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20, 0xFFFFFF);
 		// frameFont.renderCentre(256, 150, "Loading - please wait.", 0xffffff);
-		gameImageBuffer.finalize();
 		drawGameImage();
 		xCameraPos = 0;
 		yCameraPos = 0;
@@ -757,6 +769,10 @@ public final class Client implements Runnable {
 	
 
 	public final void loadChunks(List<Chunk> chunks) {
+		for (Chunk chunk : this.chunks) {
+			if (!chunks.contains(chunk))
+				chunk.discard();
+		}
 		this.chunks.clear();
 
 		baseX = 0;
@@ -766,7 +782,6 @@ public final class Client implements Runnable {
 		TextRenderUtils.renderCenter(gameImageBuffer.getGraphics(), 
 				"Loading map, this may take a few seconds...", gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20, 0xFFFFFF);
 		// frameFont.renderCentre(256, 150, "Loading - please wait.", 0xffffff);
-		gameImageBuffer.finalize();
 		drawGameImage();
 		xCameraPos = 0;
 		yCameraPos = 0;
@@ -809,7 +824,7 @@ public final class Client implements Runnable {
 	}
 
 	public final void loadFiles(byte[] landscapeBytes, byte[] objectBytes, int regionX, int regionY) {
-		chunks.clear();
+		discardChunks();
 
 		baseX = 0;
 		baseY = 0;
@@ -818,7 +833,6 @@ public final class Client implements Runnable {
 		TextRenderUtils.renderCenter(gameImageBuffer.getGraphics(), 
 				"Loading map, this may take a few seconds...", gameCanvas.getWidth() / 2, gameCanvas.getHeight() / 2 - 20, 0xFFFFFF);
 		// frameFont.renderCentre(256, 150, "Loading - please wait.", 0xffffff);
-		gameImageBuffer.finalize();
 		drawGameImage();
 		xCameraPos = 0;
 		yCameraPos = 0;
@@ -1048,6 +1062,8 @@ public final class Client implements Runnable {
 			i1 = 0xffff00;
 			k += TextRenderUtils.renderLeft(gameImageBuffer, "Mem: " + memory / 1024 + "MB", c, k, 0xffff00);
 
+			k += TextRenderUtils.renderLeft(gameImageBuffer, "Tiles: " + sceneGraph.tilesRendered + " Faces: " + Mesh.facesRendered + " Chunks: " + chunks.size(), c, k, 0xffff00);
+
 			k += TextRenderUtils.renderLeft(gameImageBuffer, "Chunk map files:  "  + getCurrentChunk().tileMapName + " " + getCurrentChunk().objectMapName + " ", c, k, 0xffff00);
 
 			k += TextRenderUtils.renderLeft(gameImageBuffer, "Mouse: " + mouseEventX + "," + mouseEventY + "", c, k, 0xffff00);
@@ -1137,6 +1153,23 @@ public final class Client implements Runnable {
 		xCameraCurve = j1;
 	}
 
+	private ParallelRasterizer beginParallelRasterization() {
+		GameRasterizer rasterizer = GameRasterizer.getInstance();
+		if (!Options.parallelRasterization.get()) {
+			rasterizer.setParallel(null);
+			return null;
+		}
+		int threads = Math.max(1, Options.rasterThreads.get());
+		if (parallelRasterizer == null || parallelRasterizer.getThreads() != threads) {
+			if (parallelRasterizer != null) {
+				parallelRasterizer.shutdown();
+			}
+			parallelRasterizer = new ParallelRasterizer(threads);
+		}
+		parallelRasterizer.begin(rasterizer);
+		return parallelRasterizer;
+	}
+
 	public final void renderView() {
 		for (Chunk chunk : chunks) {
 			chunk.processAnimableObjects();
@@ -1162,11 +1195,11 @@ public final class Client implements Runnable {
 		int k1 = yCameraCurve;
 		int l1 = xCameraCurve;*/
 
-			Mesh.aBoolean1684 = true;
-			Mesh.mouseX = mouseEventX;
-			Mesh.mouseY = mouseEventY;
 			gameImageBuffer.initializeRasterizer();
+			GameRasterizer.getInstance().setDepthBuffering(Options.depthBuffering.get());
+			GameRasterizer.getInstance().specializedScanlines = Options.specializedScanlines.get();
 			GameRasterizer.getInstance().reset();
+			GameRasterizer.getInstance().setPickPosition(mouseEventX, mouseEventY);
 			if (cameraMoved) {
 				if (Options.showCamera.get()) {
 					SceneGraph.minimapUpdate = true;
@@ -1178,22 +1211,25 @@ public final class Client implements Runnable {
 				}
 				cameraMoved = false;
 			}
-		Mesh.resourceCount = 0;
-			for (Chunk chunk : chunks) {
-				try {
-					sceneGraph.setChunk(chunk);
-					sceneGraph.renderScene(xCameraPos, yCameraPos, xCameraCurve, zCameraPos, currentPlane, yCameraCurve);
-					// xCameraPos, yCameraPos, xCameraCurve, zCameraPos, j, yCameraCurve
-
-				} catch (Exception ex) {
-					ex.printStackTrace();
-				}
-				// break;
+		Mesh.facesRendered = 0;
+		sceneGraph.tilesRendered = 0;
+		ParallelRasterizer parallel = beginParallelRasterization();
+		drawScene(currentPlane);
+		if (parallel != null) {
+			parallel.end();
+			if (parallel.hasFailed()) {
+				// A band failed and left the frame partly drawn, so draw it again on this thread and stop using bands.
+				log.warn("Parallel rasterization failed, turning it off");
+				Platform.runLater(() -> Options.parallelRasterization.set(false));
+				GameRasterizer.getInstance().setParallel(null);
+				GameRasterizer.getInstance().reset();
+				GameRasterizer.getInstance().setPickPosition(mouseEventX, mouseEventY);
+				Mesh.facesRendered = 0;
+				sceneGraph.tilesRendered = 0;
+				drawScene(currentPlane);
 			}
-		if(Mesh.resourceCount > 0)
-			hoveredUID = Mesh.resourceIDTag[Mesh.resourceCount - 1];
-		else
-			hoveredUID = null;
+		}
+		hoveredUID = GameRasterizer.getInstance().getPicked();
 		
 		for (Runnable r : Lists.newArrayList(SceneGraph.onCycleEnd)) {
 			if(r != null) {
@@ -1207,7 +1243,6 @@ public final class Client implements Runnable {
 		}
 		sceneGraph.cleanUpShortLivedObjects();
 		drawDebugOverlay();
-		gameImageBuffer.finalize();
 	/*	xCameraPos = l;
 		zCameraPos = i1;
 		yCameraPos = j1;
@@ -1215,12 +1250,34 @@ public final class Client implements Runnable {
 		xCameraCurve = l1;*/
 	}
 	
+	private void drawScene(int currentPlane) {
+		if (Options.singlePassRendering.get()) {
+			Chunk current = this.getCurrentChunk();
+			if (current != null) {
+				try {
+					sceneGraph.setChunk(current);
+					sceneGraph.renderAllChunks(xCameraPos, yCameraPos, xCameraCurve, zCameraPos, currentPlane, yCameraCurve);
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+			}
+		} else {
+			for (Chunk chunk : chunks) {
+				try {
+					sceneGraph.setChunk(chunk);
+					sceneGraph.renderScene(xCameraPos, yCameraPos, xCameraCurve, zCameraPos, currentPlane, yCameraCurve);
+					// xCameraPos, yCameraPos, xCameraCurve, zCameraPos, j, yCameraCurve
+
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+				// break;
+			}
+		}
+	}
+
 	public void drawGameImage() {
-		gameImageBuffer.finalize();
-		WritableImage finalImg = gameImageBuffer.finalImage;
-		Platform.runLater(() -> {
-			drawImage(finalImg);
-		});
+		gameImageBuffer.present(gameImageDisplay);
 	}
 	
 	public void drawImage(WritableImage finalImg) {
@@ -1385,21 +1442,16 @@ public final class Client implements Runnable {
 		gameScreenReinitialized = true;
 	}
 
-	@Subscribe(threadMode = ThreadMode.ASYNC)
 	public final void processLoadedResources(ResourceResponse response) {
-		byte[] unzipped;
 		try {
-				unzipped = GZIPUtils.unzip(response.getData());
-			
-			if(unzipped == null) {
-				unzipped = response.getData();
-			}
+			byte[] unzipped = response.decompress();
 			
 			CacheFileType type = response.getRequest().getType();
 			int file = response.getRequest().getFile();
 			
 			//System.out.println("UNZIPPED " + type + ":" + file + " ATTEMPTING TO DELIVER");
 			lastDeliveredResource.set(response);
+			requestRedraw();
 			ClientPluginLoader.forEach(plugin -> plugin.onResourceDelivered(response));
 			
 			if (type == CacheFileType.ANIMATION) {//TODO Fix animations
@@ -1515,6 +1567,8 @@ public final class Client implements Runnable {
 			chunks.addAll(pendingChunks);
 			pendingChunks.clear();
 		}
+		if (cache != null)
+			getProvider().setFocus(xCameraPos / 128, yCameraPos / 128);
 		loadNextRegion();
 		for (Chunk chunk : chunks) {
 			chunk.method115();
@@ -1671,7 +1725,6 @@ public final class Client implements Runnable {
 		graphics.setColor(java.awt.Color.white);
 		graphics.drawString(string, (canvasWidth - font.stringWidth(string)) / 2, y + 22);
 		
-		gameImageBuffer.finalize();
 		drawGameImage();
 	}
 
@@ -1774,6 +1827,7 @@ public final class Client implements Runnable {
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
+		watchOptions();
 		Thread t = new Thread(this);
 		Thread keyInputs = new Thread(() -> {
 			while (true) {
@@ -1802,6 +1856,102 @@ public final class Client implements Runnable {
 		}
 	}
 
+	/**
+	 * Asks the client thread to draw another frame, waking it up if it is idle.
+	 */
+	public void requestRedraw() {
+		redrawRequested = true;
+		synchronized (redrawLock) {
+			redrawLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Decides whether the next cycle has to draw. Outside of {@link Options#onDemandRendering} every cycle draws.
+	 * Otherwise a frame is drawn when a redraw was requested, when the camera, mouse, hovered object or canvas size
+	 * changed since the last frame, while animations or end-of-cycle tasks are pending, once per pulse while the last
+	 * frame drew an animated object, and at least once every {@link #IDLE_REDRAW_INTERVAL} ms to pick up anything else.
+	 */
+	private boolean frameRequired() {
+		if (!Options.onDemandRendering.get() || loadState != LoadState.ACTIVE) {
+			return true;
+		}
+
+		int[] state = frameState;
+		state[0] = xCameraPos;
+		state[1] = yCameraPos;
+		state[2] = zCameraPos;
+		state[3] = cameraYaw;
+		state[4] = cameraRoll;
+		state[5] = anInt896;
+		state[6] = Options.currentHeight.get();
+		state[7] = mouseEventX;
+		state[8] = mouseEventY;
+		state[9] = (int) mouseClickTime;
+		state[10] = chunks.size();
+		state[11] = Objects.hashCode(hoveredUID);
+		state[12] = (int) gameCanvas.getWidth();
+		state[13] = (int) gameCanvas.getHeight();
+		state[14] = pendingChunks.size();
+
+		boolean required = redrawRequested || !Arrays.equals(state, lastFrameState) || SceneGraph.minimapUpdate
+				|| !SceneGraph.onCycleEnd.isEmpty() || System.currentTimeMillis() - lastFrameTime >= IDLE_REDRAW_INTERVAL;
+		if (!required) {
+			for (Chunk chunk : chunks) {
+				if (chunk.isAnimating()) {
+					required = true;
+					break;
+				}
+			}
+		}
+		if (!required && Options.loadAnimations.get() && pulseTick != lastFramePulse) {
+			required = RenderableObject.isAnimating();
+		}
+
+		if (required) {
+			redrawRequested = false;
+			frameState = lastFrameState;
+			lastFrameState = state;
+			lastFrameTime = System.currentTimeMillis();
+			lastFramePulse = pulseTick;
+			RenderableObject.setAnimating(false);
+		}
+		return required;
+	}
+
+	private void waitForRedraw() {
+		synchronized (redrawLock) {
+			if (!redrawRequested) {
+				try {
+					redrawLock.wait(IDLE_POLL_INTERVAL);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Redraws whenever one of the {@link Options} that affect the scene changes.
+	 */
+	private void watchOptions() {
+		ObservableValue<?>[] options = { Options.showOverlayNumbers, Options.showUnderlayNumbers,
+				Options.showTileHeightNumbers, Options.showHiddenTiles, Options.showObjects, Options.disableBlending,
+				Options.showOverlay, Options.allHeightsVisible, Options.simulateBridgesProperty,
+				Options.showBlockedFlag, Options.showBridgeFlag, Options.showForceLowestPlaneFlag,
+				Options.showDisableRenderFlag, Options.showLowerZFlag, Options.showMinimapFunctionModels,
+				Options.showDebug, Options.currentHeight, Options.tileHeightLevel, Options.brushSize,
+				Options.brushType, Options.objectSelectionType, Options.tileFlags, Options.rotation,
+				Options.currentTool, Options.currentObject, Options.overlayPaintId, Options.overlayPaintShapeId,
+				Options.underlayPaintId, Options.hdTextures, Options.hdMap, Options.loadAnimations,
+				Options.renderDistance, Options.singlePassRendering, Options.parallelRasterization,
+				Options.depthBuffering, Options.meshLevelOfDetail, Options.specializedScanlines,
+				Options.rasterThreads, Options.showCamera, Options.showBorders, Options.showMapFileNames };
+		for (ObservableValue<?> option : options) {
+			option.addListener((observable, oldValue, newValue) -> requestRedraw());
+		}
+	}
+
 	public final int nextPressedKey() {
 		int key = -1;
 		if (unprocessedKeyCount != lastProcessedKey) {
@@ -1906,7 +2056,11 @@ public final class Client implements Runnable {
 				fps = 1000 * ratio / (timeDelta * 256);
 			}
 
-			draw();
+			if (frameRequired()) {
+				draw();
+			} else {
+				waitForRedraw();
+			}
 			if (debug) {
 				System.out.println("ntime:" + currentTime);
 				for (int l2 = 0; l2 < 10; l2++) {
@@ -11,7 +11,7 @@ class BZip2DecompressionState {
 	// Class32
 
 	/* for undoing the Burrows-Wheeler transform (FAST) */
-	public static int[] tt;
+	int[] tt;
 	int[][] base;
 	/* the buffer for bit stream reading */
 	int bsBuff;
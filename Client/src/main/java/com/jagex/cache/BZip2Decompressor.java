@@ -7,7 +7,10 @@ public final class BZip2Decompressor {
 
 	// Class13
 
-	private static BZip2DecompressionState state = new BZip2DecompressionState();
+	/**
+	 * The state of each thread, so threads can decompress at the same time.
+	 */
+	private static final ThreadLocal<BZip2DecompressionState> STATE = ThreadLocal.withInitial(BZip2DecompressionState::new);
 
 	/*
 	 * http://svn.apache.org/repos/asf/labs/axmake/trunk/src/libuc++/srclib/
@@ -54,24 +57,25 @@ public final class BZip2Decompressor {
 	}
 
 	public static int decompress(byte[] output, int length, byte[] compressed, int decompressedLength, int minLen) {
-		synchronized (state) {
-			state.compressed = compressed;
-			state.nextIn = minLen;
-			state.decompressed = output;
-			state.nextOut = 0;
-			state.decompressedLength = decompressedLength;
-			state.length = length;
-			state.bsLive = 0;
-			state.bsBuff = 0;
-			state.totalInLo32 = 0;
-			state.totalInHi32 = 0;
-			state.totalOutLo32 = 0;
-			state.totalOutHigh32 = 0;
-			state.currentBlock = 0;
-			decompress(state);
-			length -= state.length;
-			return length;
-		}
+		BZip2DecompressionState state = STATE.get();
+		state.compressed = compressed;
+		state.nextIn = minLen;
+		state.decompressed = output;
+		state.nextOut = 0;
+		state.decompressedLength = decompressedLength;
+		state.length = length;
+		state.bsLive = 0;
+		state.bsBuff = 0;
+		state.totalInLo32 = 0;
+		state.totalInHi32 = 0;
+		state.totalOutLo32 = 0;
+		state.totalOutHigh32 = 0;
+		state.currentBlock = 0;
+		decompress(state);
+		length -= state.length;
+		state.compressed = null;
+		state.decompressed = null;
+		return length;
 	}
 
 	private static void decompress(BZip2DecompressionState state) {
@@ -80,9 +84,9 @@ public final class BZip2Decompressor {
 		int[] gBase = null;
 		int[] gPerm = null;
 
-		if (BZip2DecompressionState.tt == null) {// Because this isn't small
+		if (state.tt == null) {// Because this isn't small
 													// decompress
-			BZip2DecompressionState.tt = new int[0x186a0]; // 100000
+			state.tt = new int[0x186a0]; // 100000
 		}
 
 		boolean flag19 = true;
@@ -307,7 +311,7 @@ public final class BZip2Decompressor {
 					byte uc_ = state.seqToUnseq[state.mtfa[state.mtfbase[0]] & 0xff];
 					state.unzftab[uc_ & 0xff] += es;
 					for (; es > 0; es--) {
-						BZip2DecompressionState.tt[nblock] = uc_ & 0xff;
+						state.tt[nblock] = uc_ & 0xff;
 						nblock++;
 					}
 
@@ -364,7 +368,7 @@ public final class BZip2Decompressor {
 					}
 
 					state.unzftab[state.seqToUnseq[uc_ & 0xff] & 0xff]++;
-					BZip2DecompressionState.tt[nblock] = state.seqToUnseq[uc_ & 0xff] & 0xff;
+					state.tt[nblock] = state.seqToUnseq[uc_ & 0xff] & 0xff;
 					nblock++;
 					if (groupPos == 0) {
 						groupNo++;
@@ -405,14 +409,14 @@ public final class BZip2Decompressor {
 
 			/*-- compute the T^(-1) vector --*/
 			for (int i = 0; i < nblock; i++) {
-				byte uc_ = (byte) (BZip2DecompressionState.tt[i] & 0xff);
-				BZip2DecompressionState.tt[state.cftab[uc_ & 0xff]] |= i << 8;
+				byte uc_ = (byte) (state.tt[i] & 0xff);
+				state.tt[state.cftab[uc_ & 0xff]] |= i << 8;
 				state.cftab[uc_ & 0xff]++;
 			}
 
-			state.tPos = BZip2DecompressionState.tt[state.origPtr] >> 8;
+			state.tPos = state.tt[state.origPtr] >> 8;
 			state.usedBlocks = 0;
-			state.tPos = BZip2DecompressionState.tt[state.tPos];
+			state.tPos = state.tt[state.tPos];
 			state.k0 = (byte) (state.tPos & 0xff);
 			state.tPos >>= 8;
 			state.usedBlocks++;
@@ -430,7 +434,7 @@ public final class BZip2Decompressor {
 		int stateOutLen = state.stateOutLen;
 		int nBlockUsed = state.usedBlocks;
 		int k0 = state.k0;
-		int[] tt = BZip2DecompressionState.tt;
+		int[] tt = state.tt;
 		int tPos = state.tPos;
 		byte[] decompressed = state.decompressed;
 		int csNextOut = state.nextOut;
@@ -564,7 +568,7 @@ public final class BZip2Decompressor {
 		state.stateOutLen = stateOutLen;
 		state.usedBlocks = nBlockUsed;
 		state.k0 = k0;
-		BZip2DecompressionState.tt = tt;
+		state.tt = tt;
 		state.tPos = tPos;
 		state.decompressed = decompressed;
 		state.nextOut = csNextOut;
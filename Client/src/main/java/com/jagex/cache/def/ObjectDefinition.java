@@ -97,7 +97,7 @@ public final class ObjectDefinition {
 	public final void loadModels(ResourceProvider provider) {
 		if (getModelIds() != null) {
 			for (int id : getModelIds()) {
-				provider.requestFile(CacheFileType.MODEL, id);
+				provider.prefetchFile(CacheFileType.MODEL, id);
 			}
 		}
 	}
@@ -1,14 +1,8 @@
 package com.jagex.chunk;
 
-import com.rspsi.cache.CacheFileType;
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
-
 import com.jagex.Client;
 import com.jagex.map.MapRegion;
 import com.jagex.map.SceneGraph;
-import com.jagex.net.ResourceResponse;
 
 public class BasicChunk {
 	
@@ -19,18 +13,6 @@ public class BasicChunk {
 	private byte[] landscapeBytes;
 	private int regionX, regionY;
 	
-	@Subscribe(threadMode = ThreadMode.ASYNC)
-	public void onResourceResponse(ResourceResponse response) {
-		if(response.getRequest().getType() == CacheFileType.MAP) {
-			int fileId = response.getRequest().getFile();
-			if(fileId == landscapeId) {
-				landscapeBytes = response.decompress();
-			}
-		}
-	}
-
-	
-	
 	public BasicChunk(int x, int y) {
 		this.regionX = x;
 		this.regionY = y;
@@ -38,7 +20,6 @@ public class BasicChunk {
 	
 	public void init() {
 
-		EventBus.getDefault().register(this);
 		//sceneGraph = new SceneGraph(this, 64, 64, 4);
 		tileFlags = new byte[4][64][64];
 		//mapRegion = new MapRegion(sceneGraph, tileFlags, 64, 64);
@@ -3,11 +3,9 @@ package com.jagex.chunk;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.rspsi.cache.CacheFileType;
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 
 import com.google.common.collect.Lists;
 import com.jagex.Client;
@@ -45,7 +43,6 @@ public class Chunk {
 	protected Chunk() {
 	}
 
-	@Subscribe(threadMode = ThreadMode.ASYNC)
 	public void onResourceResponse(ResourceResponse response) {
 		if(response.getRequest().getType() == CacheFileType.MAP) {
 			int fileId = response.getRequest().getFile();
@@ -101,15 +98,32 @@ public class Chunk {
 	public boolean updated = true;
 	
 
+	private List<CompletableFuture<Void>> deliveries = Lists.newCopyOnWriteArrayList();
+
 	public BooleanProperty resourceHasBeenDelivered() {
 		return resourceDelivered;
 	}
 
+	/**
+	 * Requests a map file of this chunk, which is delivered to {@link #onResourceResponse} unless the chunk is
+	 * discarded first.
+	 */
+	public void requestMap(int file) {
+		deliveries.add(client.getProvider().requestMap(file, regionHash).thenAccept(this::onResourceResponse));
+	}
+
+	/**
+	 * Stops the delivery of the map files this chunk still waits on.
+	 */
+	public void discard() {
+		deliveries.forEach(delivery -> delivery.cancel(false));
+		deliveries.clear();
+	}
+
 	private boolean ready = false;
 
 	public void init(Client client) {
 
-		EventBus.getDefault().register(this);
 		this.client = client;
 		this.scenegraph = client.sceneGraph;
 		this.mapRegion = client.mapRegion;
@@ -486,6 +500,10 @@ public class Chunk {
 
 
 
+	public boolean isAnimating() {
+		return !incompleteAnimables.isEmpty();
+	}
+
 	public boolean ready() {
 		if (ready)
 			return true;
@@ -499,7 +517,7 @@ public class Chunk {
 			//System.out.println("OBJECT MAP ID: " + tileMapId + " NULL");
 			return false;
 		} else if(objectMapId != -1 && objectMapData != null)
-			if (!MapRegion.objectsReady(objectMapData, 0, 0))
+			if (!client.getProvider().requestFrom(offsetX, offsetY, () -> MapRegion.objectsReady(objectMapData, 0, 0)))
 				return false;
 
 		loadChunk();
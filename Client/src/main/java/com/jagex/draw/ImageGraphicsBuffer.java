@@ -8,13 +8,14 @@ import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
 import java.nio.IntBuffer;
-import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.function.Consumer;
 
 import com.jagex.draw.raster.GameRaster;
 import com.jagex.draw.raster.GameRasterizer;
 import com.jagex.util.ColourUtils;
 
+import javafx.application.Platform;
 import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 import net.coobird.thumbnailator.makers.FixedSizeThumbnailMaker;
@@ -25,6 +26,18 @@ public class ImageGraphicsBuffer extends ProducingGraphicsBuffer {
 	
 	public WritableImage finalImage;
 
+	private static final PixelFormat<IntBuffer> FORMAT = PixelFormat.getIntArgbInstance();
+	private static final int FRAME_BUFFERS = 3;
+
+	private int[] finalPixels;
+	private IntBuffer finalBuffer;
+	private int[][] frames;
+	private IntBuffer[] frameBuffers;
+	private int pendingFrame = -1;
+	private int uploadingFrame = -1;
+	private final Runnable uploadTask = this::upload;
+	private volatile Consumer<WritableImage> display;
+
 	public ImageGraphicsBuffer(int width, int height, GameRaster raster) {
 		super.pixels = new int[width * height + 1];
 		super.model = new DirectColorModel(32, 0xff0000, 65280, 255);
@@ -60,11 +73,82 @@ public class ImageGraphicsBuffer extends ProducingGraphicsBuffer {
 		graphics.drawImage(image, x, y, this);
 	}
 
+	/**
+	 * Copies the raster into {@link #finalImage} straight away, on the calling thread.
+	 */
 	public void finalize() {
-		int[] pixelCopy = Arrays.copyOf(pixels, pixels.length);
-		for(int i = 0;i<pixelCopy.length;i++)
-			pixelCopy[i] = 0xFF000000 | pixelCopy[i];
-		finalImage.getPixelWriter().setPixels(0, 0, getWidth(), getHeight(), PixelFormat.getIntArgbInstance(), IntBuffer.wrap(pixelCopy), getWidth());
+		if (finalPixels == null) {
+			finalPixels = new int[getWidth() * getHeight()];
+			finalBuffer = IntBuffer.wrap(finalPixels);
+		}
+		copyOpaque(finalPixels);
+		finalBuffer.rewind();
+		finalImage.getPixelWriter().setPixels(0, 0, getWidth(), getHeight(), FORMAT, finalBuffer, getWidth());
+	}
+
+	/**
+	 * Hands the finished frame to the JavaFX thread, which uploads it into {@link #finalImage} and passes it to
+	 * {@code display}. Frames are triple buffered: the render thread can fill one buffer while another waits and the
+	 * third is being uploaded, so nothing is allocated per frame. A waiting frame that is replaced before the JavaFX
+	 * thread gets to it is dropped.
+	 */
+	public void present(Consumer<WritableImage> display) {
+		this.display = display;
+		if (frames == null) {
+			frames = new int[FRAME_BUFFERS][getWidth() * getHeight()];
+			frameBuffers = new IntBuffer[FRAME_BUFFERS];
+			for (int frame = 0; frame < FRAME_BUFFERS; frame++) {
+				frameBuffers[frame] = IntBuffer.wrap(frames[frame]);
+			}
+		}
+
+		int target;
+		synchronized (frames) {
+			target = 0;
+			while (target == pendingFrame || target == uploadingFrame) {
+				target++;
+			}
+		}
+		copyOpaque(frames[target]);
+
+		boolean schedule;
+		synchronized (frames) {
+			schedule = pendingFrame == -1;
+			pendingFrame = target;
+		}
+		if (schedule) {
+			Platform.runLater(uploadTask);
+		}
+	}
+
+	private void upload() {
+		int frame;
+		synchronized (frames) {
+			frame = pendingFrame;
+			pendingFrame = -1;
+			uploadingFrame = frame;
+		}
+		if (frame == -1) {
+			return;
+		}
+
+		IntBuffer buffer = frameBuffers[frame];
+		buffer.rewind();
+		finalImage.getPixelWriter().setPixels(0, 0, getWidth(), getHeight(), FORMAT, buffer, getWidth());
+		synchronized (frames) {
+			uploadingFrame = -1;
+		}
+		display.accept(finalImage);
+	}
+
+	/**
+	 * Copies the raster into {@code destination} with the alpha bits set, as the rasterizer only writes RGB.
+	 */
+	private void copyOpaque(int[] destination) {
+		int[] pixels = this.pixels;
+		for (int index = 0; index < destination.length; index++) {
+			destination[index] = 0xFF000000 | pixels[index];
+		}
 	}
 	
 	@Override
@@ -1,5 +1,7 @@
 package com.jagex.draw.raster;
 
+import java.util.Arrays;
+
 public class GameRaster {
 
 	protected int maxRight;
@@ -12,6 +14,7 @@ public class GameRaster {
 	protected int clipLeft;
 	protected int clipRight;
 	protected int clipTop;
+	protected float[] depthBuffer;
 
 	public void drawHorizontal(int x, int y, int length, int colour) {
 		if (y < clipBottom || y >= clipTop)
@@ -227,6 +230,21 @@ public class GameRaster {
 		for (int index = 0; index < count; index++) {
 			raster[index] = 0;
 		}
+		if (depthBuffer != null) {
+			resetDepth();
+		}
+	}
+
+	/**
+	 * Allocates the depth buffer if needed and clears it to the far plane. Depths are stored as 1 / z, so 0 is
+	 * infinitely far away.
+	 */
+	public void resetDepth() {
+		if (depthBuffer == null || depthBuffer.length != raster.length) {
+			depthBuffer = new float[raster.length];
+		} else {
+			Arrays.fill(depthBuffer, 0);
+		}
 	}
 
 	public void setBounds(int clipTop, int clipLeft, int clipRight, int clipBottom) {
@@ -301,6 +319,10 @@ public class GameRaster {
 		return raster;
 	}
 
+	public float[] getDepthBuffer() {
+		return depthBuffer;
+	}
+
 	public int getWidth() {
 		return width;
 	}
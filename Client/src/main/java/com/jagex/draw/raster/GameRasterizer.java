@@ -9,6 +9,7 @@ import com.jagex.cache.loader.textures.TextureLoader;
 import com.jagex.draw.textures.Texture;
 import com.jagex.util.ColourUtils;
 import com.jagex.util.Constants;
+import com.jagex.util.ObjectKey;
 import com.jagex.util.Point2D;
 
 public class GameRasterizer extends GameRaster {
@@ -23,36 +24,288 @@ public class GameRasterizer extends GameRaster {
 		instance = rasterizer;
 	}
 
-	public boolean[] aBooleanArray1663 = new boolean[4096];
-	 public boolean[] cullFaces = new boolean[4096];
-	 public boolean[] cullFacesOther = new boolean[4096];
-	 public int[] vertexScreenX = new int[4096];
-	 public int[] vertexScreenY = new int[4096];
-	 public int[] vertexScreenZ = new int[4096];
-	 public int[] camera_vertex_x = new int[4096];
-	 public int[] camera_vertex_y = new int[4096];
-	 public int[] camera_vertex_z = new int[4096];
-	 public int[] depthListIndices = new int[1500];
-	 public int[] anIntArray1673 = new int[12];
-	 public int[] anIntArray1675 = new int[2000];
-	 public int[] anIntArray1676 = new int[2000];
-	 public int[] anIntArray1677 = new int[12];
-	 public int[] anIntArray1678 = new int[10];
-	 public int[] anIntArray1679 = new int[10];
-	 public int[] anIntArray1680 = new int[10];
-	 public int[][] faceList = new int[1500][512];
-	 public int[][] anIntArrayArray1674 = new int[12][2000];
+	public boolean[] aBooleanArray1663;
+	 public boolean[] cullFaces;
+	 public boolean[] cullFacesOther;
+	 public int[] vertexScreenX;
+	 public int[] vertexScreenY;
+	 public int[] vertexScreenZ;
+	 public int[] camera_vertex_x;
+	 public int[] camera_vertex_y;
+	 public int[] camera_vertex_z;
+	 public int[] depthListIndices;
+	 public int[] anIntArray1673;
+	 public int[] anIntArray1675;
+	 public int[] anIntArray1676;
+	 public int[] anIntArray1677;
+	 public int[] anIntArray1678;
+	 public int[] anIntArray1679;
+	 public int[] anIntArray1680;
+	 public int[][] faceList;
+	 public int[][] anIntArrayArray1674;
 
 	public boolean restrictEdges;
 	public int anInt1481;
 	public int[] anIntArray1480 = new int[50];
-	public int[] colourPalette = new int[0x10000];
+	public int[] colourPalette;
 	public boolean approximateAlphaBlending = true;
+
+	/**
+	 * Draws the common material cases with the branch free loops of {@link ScanlineKernels} instead of the generic
+	 * kernels.
+	 */
+	public boolean specializedScanlines = false;
 	public int currentAlpha;
 	public Point2D viewCenter;
 	public int[] scanOffsets;
 	boolean currentTextureTransparent;
 	int anInt1477;
+	private ParallelRasterizer parallel;
+	private boolean depthBuffering;
+	private boolean depthTest;
+	private boolean depthWrite;
+	private int depthZA, depthZB, depthZC;
+	private float depthOrigin, depthStepX, depthStepY;
+	private int[] depthRuns = new int[16];
+	private int pickOffset = -1;
+	private int pickX;
+	ObjectKey pickOwner;
+	ObjectKey picked;
+	boolean pickChanged;
+
+	public GameRasterizer() {
+		aBooleanArray1663 = new boolean[4096];
+		cullFaces = new boolean[4096];
+		cullFacesOther = new boolean[4096];
+		vertexScreenX = new int[4096];
+		vertexScreenY = new int[4096];
+		vertexScreenZ = new int[4096];
+		camera_vertex_x = new int[4096];
+		camera_vertex_y = new int[4096];
+		camera_vertex_z = new int[4096];
+		depthListIndices = new int[1500];
+		anIntArray1673 = new int[12];
+		anIntArray1675 = new int[2000];
+		anIntArray1676 = new int[2000];
+		anIntArray1677 = new int[12];
+		anIntArray1678 = new int[10];
+		anIntArray1679 = new int[10];
+		anIntArray1680 = new int[10];
+		faceList = new int[1500][512];
+		anIntArrayArray1674 = new int[12][2000];
+		colourPalette = new int[0x10000];
+	}
+
+	/**
+	 * Creates a rasterizer that only draws triangles into one horizontal band of {@code source}'s raster.
+	 * It has none of the mesh sorting buffers and shares the source colour palette.
+	 */
+	GameRasterizer(GameRasterizer source, int bandTop, int bandHeight) {
+		raster = source.raster;
+		width = source.width;
+		height = bandHeight;
+		colourPalette = source.colourPalette;
+		approximateAlphaBlending = source.approximateAlphaBlending;
+		specializedScanlines = source.specializedScanlines;
+		clipLeft = source.clipLeft;
+		clipRight = source.clipRight;
+		clipBottom = 0;
+		clipTop = bandHeight;
+		maxRight = source.maxRight;
+		centreX = source.centreX;
+		centreY = source.centreY - bandTop;
+		scanOffsets = new int[bandHeight];
+		for (int y = 0; y < bandHeight; y++) {
+			scanOffsets[y] = (bandTop + y) * width;
+		}
+		viewCenter = new Point2D(source.viewCenter.getX(), source.viewCenter.getY() - bandTop);
+		depthBuffer = source.depthBuffer;
+		depthBuffering = source.depthBuffering;
+	}
+
+	/**
+	 * Watches the pixel at the given raster position for the rest of the frame. The owner of the last opaque span
+	 * drawn over it becomes the pick result, so what is under the cursor is known once the frame is drawn without
+	 * testing the cursor against every triangle. A position outside the raster disables picking.
+	 */
+	public void setPickPosition(int x, int y) {
+		pickOffset = x >= 0 && y >= 0 && x < width && y < height ? y * width : -1;
+		pickX = x;
+		picked = null;
+		pickChanged = false;
+	}
+
+	/**
+	 * Sets what the triangles drawn from now on belong to, or {@code null} for triangles that cannot be picked.
+	 */
+	public void setPickOwner(ObjectKey owner) {
+		pickOwner = owner;
+	}
+
+	public ObjectKey getPicked() {
+		return picked;
+	}
+
+	/**
+	 * Copies the watched pixel of {@code source} if it lies inside this band.
+	 */
+	void copyPickPosition(GameRasterizer source) {
+		int offset = source.pickOffset;
+		pickOffset = offset >= scanOffsets[0] && offset <= scanOffsets[scanOffsets.length - 1] ? offset : -1;
+		pickX = source.pickX;
+		pickOwner = null;
+		picked = null;
+		pickChanged = false;
+	}
+
+	private void pick() {
+		if (pickOwner != null || currentAlpha == 0) {
+			picked = pickOwner;
+			pickChanged = true;
+		}
+	}
+
+	public ParallelRasterizer getParallel() {
+		return parallel;
+	}
+
+	public void setParallel(ParallelRasterizer parallel) {
+		this.parallel = parallel;
+	}
+
+	private boolean deferred() {
+		return parallel != null && parallel.isRecording();
+	}
+
+	public boolean isDepthBuffering() {
+		return depthBuffering;
+	}
+
+	/**
+	 * Enables the per-pixel depth buffer used by the depth-tested triangle variants. While it is disabled those
+	 * variants draw exactly like the plain ones.
+	 */
+	public void setDepthBuffering(boolean depthBuffering) {
+		this.depthBuffering = depthBuffering;
+		if (!depthBuffering) {
+			depthBuffer = null;
+		} else if (depthBuffer == null || depthBuffer.length != raster.length) {
+			resetDepth();
+		}
+	}
+
+	boolean isDepthTest() {
+		return depthTest;
+	}
+
+	int getDepthZA() {
+		return depthZA;
+	}
+
+	int getDepthZB() {
+		return depthZB;
+	}
+
+	int getDepthZC() {
+		return depthZC;
+	}
+
+	/**
+	 * Sets up the depth plane for the next triangle. Depth is interpolated as 1 / z, which is linear in screen space.
+	 */
+	void beginDepthTest(int y1, int y2, int y3, int x1, int x2, int x3, int zA, int zB, int zC) {
+		depthTest = false;
+		depthWrite = true;
+		if (!depthBuffering || depthBuffer == null || zA <= 0 || zB <= 0 || zC <= 0) {
+			return;
+		}
+		depthZA = zA;
+		depthZB = zB;
+		depthZC = zC;
+		if (deferred()) {
+			depthTest = true;
+			return;
+		}
+
+		float det = (float) (x2 - x1) * (y3 - y1) - (float) (x3 - x1) * (y2 - y1);
+		if (det == 0) {
+			return;
+		}
+		float wA = 1f / zA;
+		float dwB = 1f / zB - wA;
+		float dwC = 1f / zC - wA;
+		depthStepX = (dwB * (y3 - y1) - dwC * (y2 - y1)) / det;
+		depthStepY = (dwC * (x2 - x1) - dwB * (x3 - x1)) / det;
+		depthOrigin = wA - depthStepX * x1 - depthStepY * y1;
+		depthTest = true;
+	}
+
+	void endDepthTest() {
+		depthTest = false;
+	}
+
+	/**
+	 * Depth tests the span [startX, endX) of the row starting at {@code offset}, writing the depth of every visible
+	 * pixel when the triangle is opaque. Triangles with a texture that has holes never write depth, as their holes
+	 * would otherwise hide whatever is drawn behind them later. The visible runs are stored as start/end pairs in {@link #depthRuns}.
+	 *
+	 * @return The number of visible runs.
+	 */
+	private int depthTestSpan(int offset, int startX, int endX) {
+		if (restrictEdges) {
+			if (startX < 0) {
+				startX = 0;
+			}
+			if (endX > maxRight) {
+				endX = maxRight;
+			}
+		}
+		if (startX >= endX) {
+			return 0;
+		}
+		if (depthRuns.length < endX - startX + 1) {
+			depthRuns = new int[endX - startX + 1];
+		}
+
+		float[] depth = depthBuffer;
+		boolean write = currentAlpha == 0 && depthWrite;
+		float w = depthOrigin + depthStepX * startX + depthStepY * ((offset - scanOffsets[0]) / width);
+		int index = offset + startX;
+		int runs = 0;
+		int runStart = -1;
+		for (int x = startX; x < endX; x++, index++, w += depthStepX) {
+			if (w >= depth[index]) {
+				if (write) {
+					depth[index] = w;
+				}
+				if (runStart < 0) {
+					runStart = x;
+				}
+			} else if (runStart >= 0) {
+				depthRuns[runs++] = runStart;
+				depthRuns[runs++] = x;
+				runStart = -1;
+			}
+		}
+		if (runStart >= 0) {
+			depthRuns[runs++] = runStart;
+			depthRuns[runs++] = endX;
+		}
+		return runs >> 1;
+	}
+
+	private static int lerp(int from, int to, int start, int end, int x) {
+		return from + (int) ((long) (to - from) * (x - start) / (end - start));
+	}
+
+	/**
+	 * Draws any triangles still queued for parallel rasterization, so direct raster writes land on top of them.
+	 */
+	public void flushDeferred() {
+		if (deferred()) {
+			parallel.flush();
+		}
+	}
 
 	public int getFuchsia(){
 		return colourPalette[MapRegion.light(ColourUtils.toHsl(128, 255, 127), 96)];//colourPalette[MapRegion.light(0xFF0000, 96)];
@@ -76,6 +329,19 @@ public class GameRasterizer extends GameRaster {
 	}
 
 	public void drawLine(int[] pixels, int i, int j, int k, int startX, int endX, int j1, int k1) {
+		if (depthTest) {
+			int runs = depthTestSpan(i, startX, endX);
+			depthTest = false;
+			for (int run = 0; run < runs; run++) {
+				int from = depthRuns[run * 2], to = depthRuns[run * 2 + 1];
+				drawLine(pixels, i, j, k, from, to, lerp(j1, k1, startX, endX, from), lerp(j1, k1, startX, endX, to));
+			}
+			depthTest = true;
+			return;
+		}
+		if (i == pickOffset && pickX >= startX && pickX < endX) {
+			pick();
+		}
 		if (approximateAlphaBlending) {
 			int l1;
 			if (restrictEdges) {
@@ -108,6 +374,9 @@ public class GameRasterizer extends GameRaster {
 				}
 			}
 			if (currentAlpha == 0) {
+				if (specializedScanlines && ScanlineKernels.gouraud(pixels, i, endX - startX, colourPalette, j1, l1)) {
+					return;
+				}
 				while (--k >= 0) {
 					j = safePaletteColour(j1);
 					j1 += l1;
@@ -185,7 +454,22 @@ public class GameRasterizer extends GameRaster {
 		} while (--k > 0);
 	}
 
+	/**
+	 * Depth-tested {@link #drawShadedTriangle(int, int, int, int, int, int, int, int, int)}, taking the camera space
+	 * depth of each vertex.
+	 */
+	public void drawShadedTriangle(int y1, int y2, int y3, int x1, int x2, int x3, int colourA, int colourB, int colourC, int zA,
+			int zB, int zC) {
+		beginDepthTest(y1, y2, y3, x1, x2, x3, zA, zB, zC);
+		drawShadedTriangle(y1, y2, y3, x1, x2, x3, colourA, colourB, colourC);
+		depthTest = false;
+	}
+
 	public void drawShadedTriangle(int i, int j, int k, int l, int i1, int j1, int r, int g, int b) {
+		if (deferred()) {
+			parallel.recordShaded(this, i, j, k, l, i1, j1, r, g, b);
+			return;
+		}
 		int j2 = 0;
 		int k2 = 0;
 		if (j != i) {
@@ -578,7 +862,21 @@ public class GameRasterizer extends GameRaster {
 		}
 	}
 
+	/**
+	 * Depth-tested {@link #drawShadedTriangle(int, int, int, int, int, int, int)}, taking the camera space depth of
+	 * each vertex.
+	 */
+	public void drawShadedTriangle(int y1, int y2, int y3, int x1, int x2, int x3, int colour, int zA, int zB, int zC) {
+		beginDepthTest(y1, y2, y3, x1, x2, x3, zA, zB, zC);
+		drawShadedTriangle(y1, y2, y3, x1, x2, x3, colour);
+		depthTest = false;
+	}
+
 	public void drawShadedTriangle(int i, int j, int k, int l, int i1, int j1, int k1) {
+		if (deferred()) {
+			parallel.recordFlat(this, i, j, k, l, i1, j1, k1);
+			return;
+		}
 		int l1 = 0;
 		if (j != i) {
 			l1 = (i1 - l << 16) / (j - i);
@@ -885,6 +1183,18 @@ public class GameRasterizer extends GameRaster {
 	}
 
 
+	/**
+	 * Depth-tested {@link #render_texture_triangle}, using the vertex depths it already takes.
+	 */
+	public void render_texture_triangle_depth(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int z_a, int z_b, int z_c,
+			int grad_a, int grad_b, int grad_c, int Px, int Mx, int Nx, int Pz, int My, int Nz, int Py, int Mz, int Ny, int t_id,
+			int color, boolean floor, boolean isFloor) {
+		beginDepthTest(y_a, y_b, y_c, x_a, x_b, x_c, z_a, z_b, z_c);
+		render_texture_triangle(y_a, y_b, y_c, x_a, x_b, x_c, z_a, z_b, z_c, grad_a, grad_b, grad_c, Px, Mx, Nx, Pz, My, Nz, Py,
+				Mz, Ny, t_id, color, floor, isFloor);
+		depthTest = false;
+	}
+
 	public void render_texture_triangle(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int z_a, int z_b, int z_c, int grad_a, int grad_b, int grad_c, int Px, int Mx, int Nx, int Pz, int My, int Nz, int Py, int Mz, int Ny, int t_id, int color, boolean floor, boolean isFloor) {
 		if (t_id < 0 || t_id >= TextureDef.textures.length)
 		{
@@ -901,13 +1211,24 @@ public class GameRasterizer extends GameRaster {
 		}
 
 		Texture tex = TextureLoader.getTexture(t_id);
-
-		if(tex == null || TextureLoader.getTexturePixels(t_id) == null) {
+		int[] texture = tex == null ? null : TextureLoader.getTexturePixels(t_id);
+		if(texture == null) {
 			drawShadedTriangle(y_a, y_b, y_c, x_a, x_b, x_c, grad_a, grad_b, grad_c);
 			return;
 		}
-        int[] texture = TextureLoader.getTexturePixels(t_id);
+		if (deferred()) {
+			parallel.recordTextureTriangle(this, y_a, y_b, y_c, x_a, x_b, x_c, z_a, z_b, z_c, grad_a, grad_b, grad_c, Px, Mx, Nx,
+					Pz, My, Nz, Py, Mz, Ny, texture, color, floor, isFloor);
+			return;
+		}
+		render_texture_triangle(y_a, y_b, y_c, x_a, x_b, x_c, z_a, z_b, z_c, grad_a, grad_b, grad_c, Px, Mx, Nx, Pz, My, Nz, Py,
+				Mz, Ny, texture, color, floor, isFloor);
+	}
 
+	/**
+	 * {@link #render_texture_triangle} with the texels already looked up, so it never touches the texture loader.
+	 */
+	void render_texture_triangle(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int z_a, int z_b, int z_c, int grad_a, int grad_b, int grad_c, int Px, int Mx, int Nx, int Pz, int My, int Nz, int Py, int Mz, int Ny, int[] texture, int color, boolean floor, boolean isFloor) {
         if (color >= 0xffff)
             color = -1;
 
@@ -1001,7 +1322,7 @@ public class GameRasterizer extends GameRaster {
                     col_b -= col_b_off * y_b;
                     y_b = 0;
                 }
-                int jA = y_a - viewCenter.getX();
+                int jA = y_a - viewCenter.getY();
                 Oa += Va * jA;
                 Ob += Vb * jA;
                 Oc += Vc * jA;
@@ -1658,6 +1979,22 @@ public class GameRasterizer extends GameRaster {
     }
 
 	 private void drawTexturedScanline(int[] dest, int[] texture, int dest_off, int start_x, int end_x, int shadeValue, int gradient, int start_col, int end_col, int arg7, int arg8, int arg9, int arg10, int arg11, int arg12, int color, boolean force, boolean floor, int z1, int z2) {
+		if (depthTest) {
+			int runs = depthTestSpan(dest_off, start_x, end_x);
+			depthTest = false;
+			for (int run = 0; run < runs; run++) {
+				int from = depthRuns[run * 2], to = depthRuns[run * 2 + 1];
+				drawTexturedScanline(dest, texture, dest_off, from, to, lerp(shadeValue, gradient, start_x, end_x, from),
+						lerp(shadeValue, gradient, start_x, end_x, to), lerp(start_col, end_col, start_x, end_x, from),
+						lerp(start_col, end_col, start_x, end_x, to), arg7, arg8, arg9, arg10, arg11, arg12, color, force, floor,
+						lerp(z1, z2, start_x, end_x, from), lerp(z1, z2, start_x, end_x, to));
+			}
+			depthTest = true;
+			return;
+		}
+		if (dest_off == pickOffset && pickX >= start_x && pickX < end_x) {
+			pick();
+		}
 	        boolean isObject = floor;
 	        int rgb = 0;
 	        int loops = 0;
@@ -1738,6 +2075,33 @@ public class GameRasterizer extends GameRaster {
 	        int src_alpha;
 	        int src_delta;
 	        int dst;
+	        if (specializedScanlines && floor && !force && color >= 0 && glb_alpha == 0xff) {
+	            while (k3-- > 0) {
+	                ScanlineKernels.alphaOverColour(dest, dest_off, 8, texture, rgb, loops, j7, l7, color);
+	                dest_off += 8;
+	                rgb = j4;
+	                loops = l4;
+	                arg7 += arg10;
+	                arg8 += arg11;
+	                arg9 += arg12;
+	                int i6 = arg9 >> 14;
+	                if (i6 != 0) {
+	                    j4 = arg7 / i6;
+	                    l4 = arg8 / i6;
+	                    if (j4 < 7) {
+	                        j4 = 7;
+	                    } else if (j4 > 16256) {
+	                        j4 = 16256;
+	                    }
+	                }
+	                j7 = j4 - rgb >> 3;
+	                l7 = l4 - loops >> 3;
+	                shadeValue += j3;
+	                rgb += shadeValue & 0x600000;
+	            }
+	            ScanlineKernels.alphaOverColour(dest, dest_off, end_x - start_x & 7, texture, rgb, loops, j7, l7, color);
+	            return;
+	        }
 	        while (k3-- > 0) {
 	            for (int i = 0; i != 8; ++i) {
 	                src = texture[(loops & 0x3f80) + (rgb >> 7)];
@@ -1843,16 +2207,42 @@ public class GameRasterizer extends GameRaster {
 	    }
 
 
+	/**
+	 * Depth-tested {@link #drawTexturedTriangle}, taking the camera space depth of each vertex after the texture id.
+	 */
+	public void drawTexturedTriangle(int y1, int y2, int y3, int x1, int x2, int x3, int k1, int l1, int i2, int j2, int k2,
+			int l2, int i3, int j3, int k3, int l3, int i4, int j4, int textureId, int zA, int zB, int zC) {
+		beginDepthTest(y1, y2, y3, x1, x2, x3, zA, zB, zC);
+		drawTexturedTriangle(y1, y2, y3, x1, x2, x3, k1, l1, i2, j2, k2, l2, i3, j3, k3, l3, i4, j4, textureId);
+		depthTest = false;
+	}
+
 	public void drawTexturedTriangle(int faceYX, int faceYY, int faceYZ, int faceXX, int faceXY, int faceXZ, int k1, int l1, int i2, int j2,
 			int k2, int l2, int i3, int j3, int k3, int l3, int i4, int j4, int textureId) {
-
         int[] pixels = TextureLoader.getTexturePixels(textureId);
 
 		if(pixels == null) {
 			drawShadedTriangle(faceYX, faceYY, faceYZ, faceXX, faceXY, faceXZ, k1, l1, i2);
 			return;
 		}
-		currentTextureTransparent = !TextureLoader.getTextureTransparent(textureId);
+		boolean opaque = !TextureLoader.getTextureTransparent(textureId);
+		if (deferred()) {
+			parallel.recordTextured(this, faceYX, faceYY, faceYZ, faceXX, faceXY, faceXZ, k1, l1, i2, j2, k2, l2, i3, j3, k3, l3, i4,
+					j4, pixels, opaque);
+			return;
+		}
+		drawTexturedTriangle(faceYX, faceYY, faceYZ, faceXX, faceXY, faceXZ, k1, l1, i2, j2, k2, l2, i3, j3, k3, l3, i4, j4,
+				pixels, opaque);
+	}
+
+	/**
+	 * {@link #drawTexturedTriangle} with the texels and their opacity already looked up, so it never touches the
+	 * texture loader.
+	 */
+	void drawTexturedTriangle(int faceYX, int faceYY, int faceYZ, int faceXX, int faceXY, int faceXZ, int k1, int l1, int i2, int j2,
+			int k2, int l2, int i3, int j3, int k3, int l3, int i4, int j4, int[] pixels, boolean opaque) {
+		currentTextureTransparent = opaque;
+		depthWrite = opaque;
 		k2 = j2 - k2;
 		j3 = i3 - j3;
 		i4 = l3 - i4;
@@ -2773,6 +3163,18 @@ public class GameRasterizer extends GameRaster {
 	}
 
 	public void method377(int[] ai, int i, int j, int k, int l, int i1) {
+		if (depthTest) {
+			int runs = depthTestSpan(i, l, i1);
+			depthTest = false;
+			for (int run = 0; run < runs; run++) {
+				method377(ai, i, j, k, depthRuns[run * 2], depthRuns[run * 2 + 1]);
+			}
+			depthTest = true;
+			return;
+		}
+		if (i == pickOffset && pickX >= l && pickX < i1) {
+			pick();
+		}
 		if (restrictEdges) {
 			if (i1 > this.maxRight) {
 				i1 = this.maxRight;
@@ -2784,6 +3186,14 @@ public class GameRasterizer extends GameRaster {
 		if (l >= i1)
 			return;
 		i += l;
+		if (specializedScanlines) {
+			if (currentAlpha == 0) {
+				ScanlineKernels.fill(ai, i, i1 - l, j);
+			} else {
+				ScanlineKernels.blend(ai, i, i1 - l, j, currentAlpha);
+			}
+			return;
+		}
 		k = i1 - l >> 2;
 		if (currentAlpha == 0) {
 			while (--k >= 0) {
@@ -2815,6 +3225,20 @@ public class GameRasterizer extends GameRaster {
 
 	public void drawTexturedLine(int[] ai, int[] ai1, int i, int j, int k, int l, int i1, int j1, int k1, int l1,
                                  int i2, int j2, int k2, int l2, int i3) {
+		if (depthTest) {
+			int runs = depthTestSpan(k, l, i1);
+			depthTest = false;
+			for (int run = 0; run < runs; run++) {
+				int from = depthRuns[run * 2], to = depthRuns[run * 2 + 1];
+				drawTexturedLine(ai, ai1, i, j, k, from, to, lerp(j1, k1, l, i1, from), lerp(j1, k1, l, i1, to), l1, i2, j2, k2,
+						l2, i3);
+			}
+			depthTest = true;
+			return;
+		}
+		if (k == pickOffset && pickX >= l && pickX < i1) {
+			pick();
+		}
 		if (l >= i1)
 			return;
 		int j3;
@@ -0,0 +1,346 @@
+package com.jagex.draw.raster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jagex.util.ObjectKey;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the triangles submitted to a {@link GameRasterizer} during scene traversal and replays them split into
+ * horizontal bands, one band per worker thread. Every band keeps the original submission order, so the output is
+ * identical to drawing on a single thread. Bands cover disjoint rows, so they can share the depth buffer.
+ */
+@Slf4j
+public class ParallelRasterizer {
+
+	private static final int FLAT = 0, SHADED = 1, TEXTURED = 2, TEXTURE_TRIANGLE = 3;
+
+	/**
+	 * Op, alpha, restrict edges, the three vertex depths (zero when not depth tested) and the pick owner (an index into
+	 * {@link #owners} plus one, zero for none).
+	 */
+	private static final int HEADER = 7;
+
+	private final int threads;
+	private final ExecutorService executor;
+
+	private GameRasterizer source;
+	private GameRasterizer[] bands;
+	private int[] bandTops;
+	private int[] bandBottoms;
+	private int[] commands = new int[0x10000];
+	private int length;
+	private ObjectKey[] owners = new ObjectKey[256];
+	private int ownerCount;
+	private int[][] textures = new int[64][];
+	private int textureCount;
+	private boolean recording;
+	private boolean failed;
+
+	public ParallelRasterizer(int threads) {
+		this.threads = Math.max(1, threads);
+		this.executor = Executors.newFixedThreadPool(this.threads,
+				new ThreadFactoryBuilder().setNameFormat("raster-band-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Starts recording the triangles drawn by {@code rasterizer} until {@link #end()} is called.
+	 */
+	public void begin(GameRasterizer rasterizer) {
+		if (rasterizer != source || bands == null || bandsStale(rasterizer)) {
+			source = rasterizer;
+			createBands();
+		}
+		rasterizer.setParallel(this);
+		for (GameRasterizer band : bands) {
+			band.copyPickPosition(rasterizer);
+		}
+		length = 0;
+		ownerCount = 0;
+		textureCount = 0;
+		recording = true;
+		failed = false;
+	}
+
+	/**
+	 * Draws everything recorded so far and keeps recording. If a band fails, recording stops and the frame is left for
+	 * the caller to redraw, see {@link #hasFailed()}.
+	 */
+	public void flush() {
+		if (length == 0) {
+			return;
+		}
+		List<Callable<Void>> tasks = new ArrayList<>(bands.length);
+		for (int band = 0; band < bands.length; band++) {
+			int index = band;
+			tasks.add(() -> {
+				replay(index);
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			log.error("Failed to rasterize band", ex.getCause());
+			failed = true;
+			recording = false;
+		}
+		for (GameRasterizer band : bands) {
+			if (band.pickChanged) {
+				source.picked = band.picked;
+				band.pickChanged = false;
+			}
+		}
+		length = 0;
+		ownerCount = 0;
+		Arrays.fill(textures, 0, textureCount, null);
+		textureCount = 0;
+	}
+
+	/**
+	 * Draws everything recorded so far and stops recording.
+	 */
+	public void end() {
+		flush();
+		recording = false;
+	}
+
+	/**
+	 * Returns whether a band failed since {@link #begin}, leaving the frame partly drawn.
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
+	public boolean isRecording() {
+		return recording;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	void recordFlat(GameRasterizer raster, int y1, int y2, int y3, int x1, int x2, int x3, int colour) {
+		int offset = reserve(FLAT, raster, 7);
+		commands[offset++] = y1;
+		commands[offset++] = y2;
+		commands[offset++] = y3;
+		commands[offset++] = x1;
+		commands[offset++] = x2;
+		commands[offset++] = x3;
+		commands[offset] = colour;
+	}
+
+	void recordShaded(GameRasterizer raster, int y1, int y2, int y3, int x1, int x2, int x3, int c1, int c2, int c3) {
+		int offset = reserve(SHADED, raster, 9);
+		commands[offset++] = y1;
+		commands[offset++] = y2;
+		commands[offset++] = y3;
+		commands[offset++] = x1;
+		commands[offset++] = x2;
+		commands[offset++] = x3;
+		commands[offset++] = c1;
+		commands[offset++] = c2;
+		commands[offset] = c3;
+	}
+
+	void recordTextured(GameRasterizer raster, int faceYX, int faceYY, int faceYZ, int faceXX, int faceXY, int faceXZ, int k1,
+			int l1, int i2, int j2, int k2, int l2, int i3, int j3, int k3, int l3, int i4, int j4, int[] pixels, boolean opaque) {
+		int offset = reserve(TEXTURED, raster, 20);
+		commands[offset++] = faceYX;
+		commands[offset++] = faceYY;
+		commands[offset++] = faceYZ;
+		commands[offset++] = faceXX;
+		commands[offset++] = faceXY;
+		commands[offset++] = faceXZ;
+		commands[offset++] = k1;
+		commands[offset++] = l1;
+		commands[offset++] = i2;
+		commands[offset++] = j2;
+		commands[offset++] = k2;
+		commands[offset++] = l2;
+		commands[offset++] = i3;
+		commands[offset++] = j3;
+		commands[offset++] = k3;
+		commands[offset++] = l3;
+		commands[offset++] = i4;
+		commands[offset++] = j4;
+		commands[offset++] = texture(pixels);
+		commands[offset] = opaque ? 1 : 0;
+	}
+
+	void recordTextureTriangle(GameRasterizer raster, int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int z_a, int z_b,
+			int z_c, int grad_a, int grad_b, int grad_c, int Px, int Mx, int Nx, int Pz, int My, int Nz, int Py, int Mz, int Ny,
+			int[] texture, int color, boolean floor, boolean isFloor) {
+		int offset = reserve(TEXTURE_TRIANGLE, raster, 25);
+		commands[offset++] = y_a;
+		commands[offset++] = y_b;
+		commands[offset++] = y_c;
+		commands[offset++] = x_a;
+		commands[offset++] = x_b;
+		commands[offset++] = x_c;
+		commands[offset++] = z_a;
+		commands[offset++] = z_b;
+		commands[offset++] = z_c;
+		commands[offset++] = grad_a;
+		commands[offset++] = grad_b;
+		commands[offset++] = grad_c;
+		commands[offset++] = Px;
+		commands[offset++] = Mx;
+		commands[offset++] = Nx;
+		commands[offset++] = Pz;
+		commands[offset++] = My;
+		commands[offset++] = Nz;
+		commands[offset++] = Py;
+		commands[offset++] = Mz;
+		commands[offset++] = Ny;
+		commands[offset++] = texture(texture);
+		commands[offset++] = color;
+		commands[offset++] = floor ? 1 : 0;
+		commands[offset] = isFloor ? 1 : 0;
+	}
+
+	private int reserve(int op, GameRasterizer raster, int args) {
+		int required = length + HEADER + args;
+		if (required > commands.length) {
+			commands = Arrays.copyOf(commands, Math.max(required, commands.length * 2));
+		}
+		boolean depth = raster.isDepthTest();
+		commands[length] = op;
+		commands[length + 1] = raster.currentAlpha;
+		commands[length + 2] = raster.restrictEdges ? 1 : 0;
+		commands[length + 3] = depth ? raster.getDepthZA() : 0;
+		commands[length + 4] = depth ? raster.getDepthZB() : 0;
+		commands[length + 5] = depth ? raster.getDepthZC() : 0;
+		commands[length + 6] = owner(raster.pickOwner);
+		int offset = length + HEADER;
+		length = required;
+		return offset;
+	}
+
+	private int owner(ObjectKey owner) {
+		if (owner == null) {
+			return 0;
+		}
+		if (ownerCount > 0 && owners[ownerCount - 1] == owner) {
+			return ownerCount;
+		}
+		if (ownerCount == owners.length) {
+			owners = Arrays.copyOf(owners, ownerCount * 2);
+		}
+		owners[ownerCount++] = owner;
+		return ownerCount;
+	}
+
+	/**
+	 * Keeps the texels of a recorded triangle until the flush, so the bands never look them up themselves: the texture
+	 * loaders cache them in maps that are not safe to use from several threads.
+	 */
+	private int texture(int[] pixels) {
+		if (textureCount > 0 && textures[textureCount - 1] == pixels) {
+			return textureCount - 1;
+		}
+		if (textureCount == textures.length) {
+			textures = Arrays.copyOf(textures, textureCount * 2);
+		}
+		textures[textureCount++] = pixels;
+		return textureCount - 1;
+	}
+
+	private void replay(int band) {
+		GameRasterizer raster = bands[band];
+		int top = bandTops[band];
+		int bottom = bandBottoms[band];
+		int[] commands = this.commands;
+		int position = 0;
+		while (position < length) {
+			int op = commands[position];
+			int args = position + HEADER;
+			int next = args + (op == FLAT ? 7 : op == SHADED ? 9 : op == TEXTURED ? 20 : 25);
+			int y1 = commands[args], y2 = commands[args + 1], y3 = commands[args + 2];
+			if (Math.max(y1, Math.max(y2, y3)) >= top && Math.min(y1, Math.min(y2, y3)) < bottom) {
+				raster.currentAlpha = commands[position + 1];
+				raster.restrictEdges = commands[position + 2] == 1;
+				int owner = commands[position + 6];
+				raster.pickOwner = owner == 0 ? null : owners[owner - 1];
+				y1 -= top;
+				y2 -= top;
+				y3 -= top;
+				int a = args + 3;
+				if (commands[position + 3] != 0) {
+					raster.beginDepthTest(y1, y2, y3, commands[a], commands[a + 1], commands[a + 2], commands[position + 3],
+							commands[position + 4], commands[position + 5]);
+				}
+				switch (op) {
+				case FLAT:
+					raster.drawShadedTriangle(y1, y2, y3, commands[a], commands[a + 1], commands[a + 2], commands[a + 3]);
+					break;
+				case SHADED:
+					raster.drawShadedTriangle(y1, y2, y3, commands[a], commands[a + 1], commands[a + 2], commands[a + 3],
+							commands[a + 4], commands[a + 5]);
+					break;
+				case TEXTURED:
+					raster.drawTexturedTriangle(y1, y2, y3, commands[a], commands[a + 1], commands[a + 2], commands[a + 3],
+							commands[a + 4], commands[a + 5], commands[a + 6], commands[a + 7], commands[a + 8], commands[a + 9],
+							commands[a + 10], commands[a + 11], commands[a + 12], commands[a + 13], commands[a + 14],
+							textures[commands[a + 15]], commands[a + 16] == 1);
+					break;
+				case TEXTURE_TRIANGLE:
+					raster.render_texture_triangle(y1, y2, y3, commands[a], commands[a + 1], commands[a + 2], commands[a + 3],
+							commands[a + 4], commands[a + 5], commands[a + 6], commands[a + 7], commands[a + 8], commands[a + 9],
+							commands[a + 10], commands[a + 11], commands[a + 12], commands[a + 13], commands[a + 14],
+							commands[a + 15], commands[a + 16], commands[a + 17], textures[commands[a + 18]], commands[a + 19],
+							commands[a + 20] == 1, commands[a + 21] == 1);
+					break;
+				}
+				raster.endDepthTest();
+			}
+			position = next;
+		}
+	}
+
+	private boolean bandsStale(GameRasterizer rasterizer) {
+		GameRasterizer first = bands[0];
+		return first.raster != rasterizer.raster || first.width != rasterizer.width || first.maxRight != rasterizer.maxRight
+				|| first.clipLeft != rasterizer.clipLeft || first.clipRight != rasterizer.clipRight
+				|| bandBottoms[bands.length - 1] != rasterizer.getClipTop()
+				|| first.viewCenter.getX() != rasterizer.viewCenter.getX()
+				|| first.viewCenter.getY() != rasterizer.viewCenter.getY() || first.colourPalette != rasterizer.colourPalette
+				|| first.depthBuffer != rasterizer.depthBuffer || first.isDepthBuffering() != rasterizer.isDepthBuffering()
+				|| first.specializedScanlines != rasterizer.specializedScanlines;
+	}
+
+	private void createBands() {
+		int height = source.getClipTop();
+		int count = Math.max(1, Math.min(threads, height));
+		bands = new GameRasterizer[count];
+		bandTops = new int[count];
+		bandBottoms = new int[count];
+		for (int band = 0; band < count; band++) {
+			int top = height * band / count;
+			int bottom = height * (band + 1) / count;
+			bandTops[band] = top;
+			bandBottoms[band] = bottom;
+			bands[band] = new GameRasterizer(source, top, bottom - top);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.jagex.draw.raster;
+
+import java.util.Arrays;
+
+/**
+ * Scanline inner loops specialised per material. The generic kernels in {@link GameRasterizer} decide the alpha,
+ * transparency and clamping cases per pixel; these are picked once per span, so their loops carry no branches and the
+ * JIT is free to unroll them, and to vectorise the ones that only do arithmetic on the destination.
+ * <p>
+ * There are kernels for opaque flat spans ({@link #fill}), translucent flat spans ({@link #blend}) and opaque gouraud
+ * spans ({@link #gouraud}). {@link #alphaOverColour} draws one affine run of an alpha texture over a solid colour, the
+ * up to eight pixels between two perspective divides, with the texel position stepped in the same fixed point format
+ * as the generic kernels.
+ */
+public final class ScanlineKernels {
+
+	private ScanlineKernels() {
+
+	}
+
+	/**
+	 * Opaque flat shading.
+	 */
+	public static void fill(int[] dest, int offset, int length, int colour) {
+		Arrays.fill(dest, offset, offset + length, colour);
+	}
+
+	/**
+	 * Translucent flat shading, with {@code alpha} the amount of the destination that is kept. Like the generic
+	 * kernel, each pixel is blended with the one to its right, so both draw the same pixels.
+	 */
+	public static void blend(int[] dest, int offset, int length, int colour, int alpha) {
+		int keep = 256 - alpha;
+		colour = ((colour & 0xff00ff) * keep >> 8 & 0xff00ff) + ((colour & 0xff00) * keep >> 8 & 0xff00);
+		for (int index = offset, end = offset + length; index < end; index++) {
+			int pixel = dest[index + 1];
+			dest[index] = colour + ((pixel & 0xff00ff) * alpha >> 8 & 0xff00ff) + ((pixel & 0xff00) * alpha >> 8 & 0xff00);
+		}
+	}
+
+	/**
+	 * Opaque gouraud shading in groups of four pixels, stepping the shade by {@code step} per group. The shade is
+	 * linear along the span, so when its first and last palette index are in range every index in between is too
+	 * and the palette needs no clamping.
+	 *
+	 * @return {@code false}, having drawn nothing, if the shade leaves the palette somewhere along the span.
+	 */
+	public static boolean gouraud(int[] dest, int offset, int length, int[] palette, int shade, int step) {
+		int quads = length >> 2;
+		int tail = length & 3;
+		long last = shade + (long) step * (tail > 0 ? quads : quads - 1);
+		if (shade >> 8 < 0 || shade >> 8 >= palette.length || last >> 8 < 0 || last >> 8 >= palette.length) {
+			return false;
+		}
+
+		for (int quad = 0; quad < quads; quad++) {
+			int colour = palette[shade >> 8];
+			shade += step;
+			dest[offset] = colour;
+			dest[offset + 1] = colour;
+			dest[offset + 2] = colour;
+			dest[offset + 3] = colour;
+			offset += 4;
+		}
+		if (tail > 0) {
+			Arrays.fill(dest, offset, offset + tail, palette[shade >> 8]);
+		}
+		return true;
+	}
+
+	/**
+	 * An affine run of an alpha texture drawn over a solid {@code colour}, matching the floor case of the generic
+	 * kernel: texels with alpha are mixed with the colour and written opaque, and texels with none leave the
+	 * destination showing through.
+	 */
+	public static void alphaOverColour(int[] dest, int offset, int length, int[] texture, int u, int v, int du, int dv,
+			int colour) {
+		for (int end = offset + length; offset < end; offset++) {
+			int texel = texture[(v & 0x3f80) + (u >> 7)];
+			int alpha = texel >>> 24;
+			int delta = 0xff - alpha;
+			int mixed = ((0xff00ff00 & (0xff00ff & texel) * alpha | 0xff0000 & (texel & 0xff00) * alpha) >>> 8)
+					+ ((0xff0000 & delta * (colour & 0xff00) | delta * (colour & 0xff00ff) & 0xff00ff00) >>> 8);
+			int solid = -(alpha + 1 >> 8);
+			int source = texel & solid | mixed & ~solid;
+			int opaque = (0xff00ff00 & (0xff00ff & source) * 0xff | 0xff0000 & (source & 0xff00) * 0xff) >>> 8;
+
+			int pixel = dest[offset];
+			int shown = (0xff0000 & 0xff * (pixel & 0xff00) | 0xff * (pixel & 0xff00ff) & 0xff00ff00) >>> 8;
+			int empty = alpha - 1 >> 31;
+			dest[offset] = shown & empty | opaque & ~empty;
+			u += du;
+			v += dv;
+		}
+	}
+
+}
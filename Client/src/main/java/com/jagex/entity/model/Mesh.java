@@ -28,16 +28,18 @@ public class Mesh extends Renderable {
 	// Class30_Sub2_Sub4_Sub6
 
 	public byte[] textureRenderTypes;
-	public static boolean aBoolean1684;
-	public static int resourceCount;
-	public static ObjectKey[] resourceIDTag = new ObjectKey[1000];
+	public static int facesRendered;
 	public static Mesh EMPTY_MODEL = new Mesh();
-	public static int mouseX;
-	public static int mouseY;
 	private static final AtomicInteger RENDER_TEXTURE_ERROR_COUNT = new AtomicInteger();
 	private static final AtomicInteger RENDER_FACES_ERROR_COUNT = new AtomicInteger();
 	private static final int RENDER_ERROR_SAMPLE_INTERVAL = 100;
 
+	/**
+	 * The largest size, in pixels, a grid cell of a reduced level may project to before the next finer level is used.
+	 */
+	private static final int LEVEL_PIXELS = 2;
+	static final Mesh[] NO_LEVELS = new Mesh[0];
+
 	private static int[] anIntArray1622 = new int[2000];
 	private static int[] anIntArray1623 = new int[2000];
 	private static int[] anIntArray1624 = new int[2000];
@@ -76,15 +78,9 @@ public class Mesh extends Renderable {
 		return mesh != null && index >= 0 && index < mesh.numVertices;
 	}
 
-
-	private final static boolean insideTriangle(int x, int y, int k, int l, int i1, int j1, int k1, int l1) {
-		if (y < k && y < l && y < i1)
-			return false;
-		if (y > k && y > l && y > i1)
-			return false;
-		if (x < j1 && x < k1 && x < l1)
-			return false;
-		return x <= j1 || x <= k1 || x <= l1;
+	private boolean hasTransparentTexture(int face) {
+		return faceTextures != null && face < faceTextures.length && faceTextures[face] >= 0
+				&& TextureLoader.getTextureTransparent(faceTextures[face]);
 	}
 
 
@@ -126,6 +122,7 @@ public class Mesh extends Renderable {
 	public int[] verticesZ;
 	public int numVertices;
 	private boolean translucent;
+	Mesh[] levels;
 
 	//public List<Vector3f> vertexes;
 
@@ -685,6 +682,7 @@ public class Mesh extends Renderable {
 	}
 
 	public void computeSphericalBounds() {
+		levels = null;
 		super.modelHeight = 0;
 		minimumY = 0;
 
@@ -748,6 +746,7 @@ public class Mesh extends Renderable {
 	}
 
 	public final void light(int lighting, int diffusion, int x, int y, int z, boolean immediateShading) {
+		levels = null;
 		int length = (int) Math.sqrt(x * x + y * y + z * z);
 		int k1 = diffusion * length >> 8;
 
@@ -897,12 +896,28 @@ public class Mesh extends Renderable {
 
 	private static ObjectKey activeKey;
 
-	private void renderFaces(GameRasterizer rasterizer, boolean flag, boolean multiTileFlag, ObjectKey key, int z) {
+	/**
+	 * Returns whether the faces drawn for {@code key} can be hovered with the current tool and selection filter.
+	 */
+	private static boolean pickable(ObjectKey key, int z) {
+		if (key == null || z != Options.currentHeight.get()) {
+			return false;
+		}
+		ToolType tool = Options.currentTool.get();
+		if (tool != ToolType.SELECT_OBJECT && tool != ToolType.DELETE_OBJECT) {
+			return false;
+		}
+		int selectionType = Options.objectSelectionType.get() - 1;
+		return selectionType == -1 || key.getType() == selectionType;
+	}
+
+	private void renderFaces(GameRasterizer rasterizer, boolean flag, ObjectKey key, int z) {
 		for (int j = 0; j < boundingSphereRadius; j++) {
 			rasterizer.depthListIndices[j] = 0;
 		}
 
 		activeKey = key;
+		boolean depthBuffered = rasterizer.isDepthBuffering();
 
 		for (int face = 0; face < numFaces; face++) {
 			if (faceTypes == null || faceTypes[face] != -1) {
@@ -919,29 +934,6 @@ public class Mesh extends Renderable {
 							+ boundingCylinderRadius;
 					rasterizer.faceList[j5][rasterizer.depthListIndices[j5]++] = face;
 				} else {
-					if (key != null && multiTileFlag) {
-						if (insideTriangle(mouseX, mouseY, rasterizer.vertexScreenY[indexX], rasterizer.vertexScreenY[indexY],
-								rasterizer.vertexScreenY[indexZ], i3, l3, k4)) {
-
-
-							boolean correctTool = (Options.currentTool.get() == ToolType.SELECT_OBJECT || Options.currentTool.get() == ToolType.DELETE_OBJECT);
-							if (Options.currentHeight.get() == z && correctTool) {
-								int type = key.getType();
-
-								int selectionType = Options.objectSelectionType.get() - 1;
-								if (selectionType == -1 || type == selectionType) {
-									resourceIDTag[resourceCount++] = key;// ObjectKey.closestToCamera(Client.hoveredUID, key, Client.getSingleton().xCameraPos, Client.getSingleton().yCameraPos, Client.getSingleton().zCameraPos);
-									if(Client.hoveredUID == null)
-										Client.hoveredUID = key;
-								}
-							}
-
-							multiTileFlag = false;
-						} else if (Objects.equals(Client.hoveredUID, key)) {
-							Client.hoveredUID = null;
-						}
-					}
-
 					translucent = false;
 					//translucent = false;
 					if(key != null) {
@@ -958,7 +950,12 @@ public class Mesh extends Renderable {
 								|| k4 > rasterizer.getMaxRight();
 						int k5 = (rasterizer.vertexScreenZ[indexX] + rasterizer.vertexScreenZ[indexY] + rasterizer.vertexScreenZ[indexZ]) / 3
 								+ boundingCylinderRadius;
-						if(k5 >= 0 && k5 < rasterizer.faceList.length)
+						if (depthBuffered && !translucent && !selected && (faceAlphas == null || faceAlphas[face] == 0)
+								&& !hasTransparentTexture(face)) {
+							// Opaque faces are resolved by the depth buffer, only translucent ones and ones with see-through
+							// texels still need sorting
+							renderFace(rasterizer, face);
+						} else if(k5 >= 0 && k5 < rasterizer.faceList.length)
 						rasterizer.faceList[k5][rasterizer.depthListIndices[k5]++] = face;
 					}
 				}
@@ -1100,6 +1097,7 @@ public class Mesh extends Renderable {
 	}
 
 	private void renderFace(GameRasterizer rasterizer, int index) {
+		facesRendered++;
 		if (rasterizer.cullFacesOther[index]) {
 			method485(rasterizer, index);
 			return;
@@ -1107,6 +1105,12 @@ public class Mesh extends Renderable {
 		int faceX = faceIndicesA[index];
 		int faceY = faceIndicesB[index];
 		int faceZ = faceIndicesC[index];
+		int depthX = 0, depthY = 0, depthZ = 0;
+		if (rasterizer.isDepthBuffering()) {
+			depthX = rasterizer.camera_vertex_z[faceX];
+			depthY = rasterizer.camera_vertex_z[faceY];
+			depthZ = rasterizer.camera_vertex_z[faceZ];
+		}
 		rasterizer.restrictEdges = rasterizer.cullFaces[index];
 		if (selected) {
 			rasterizer.currentAlpha = translucent ? 100 : 50;
@@ -1134,11 +1138,12 @@ public class Mesh extends Renderable {
 
 		if (type == 0 && !ignoreTextures) {
 			rasterizer.drawShadedTriangle(rasterizer.vertexScreenY[faceX], rasterizer.vertexScreenY[faceY], rasterizer.vertexScreenY[faceZ], rasterizer.vertexScreenX[faceX],
-					rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], shadedFaceColoursX[index], shadedFaceColoursY[index], shadedFaceColoursZ[index]);
+					rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], shadedFaceColoursX[index], shadedFaceColoursY[index], shadedFaceColoursZ[index],
+					depthX, depthY, depthZ);
 		} else if (type == 1 || ignoreTextures) {
 			int colour = selected ? 0xc5dce6 : translucent ? 16118771 : rasterizer.colourPalette[shadedFaceColoursX[index]];
 			rasterizer.drawShadedTriangle(rasterizer.vertexScreenY[faceX], rasterizer.vertexScreenY[faceY], rasterizer.vertexScreenY[faceZ], rasterizer.vertexScreenX[faceX],
-					rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], colour);
+					rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], colour, depthX, depthY, depthZ);
 		} else if (type == 2 || type == 3) {
 
 			int texFaceX = 0, texFaceY = 0, texFaceZ = 0;
@@ -1180,7 +1185,8 @@ public class Mesh extends Renderable {
 			int texId = faceTextures[index];
 			if (texId < 0) {
 				rasterizer.drawShadedTriangle(rasterizer.vertexScreenY[faceX], rasterizer.vertexScreenY[faceY], rasterizer.vertexScreenY[faceZ], rasterizer.vertexScreenX[faceX],
-						rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], shadedFaceColoursX[index], shadedFaceColoursY[index], shadedFaceColoursZ[index]);
+						rasterizer.vertexScreenX[faceY], rasterizer.vertexScreenX[faceZ], shadedFaceColoursX[index], shadedFaceColoursY[index], shadedFaceColoursZ[index],
+						depthX, depthY, depthZ);
 				return;
 			}
 			//texId = 23;
@@ -1201,7 +1207,7 @@ public class Mesh extends Renderable {
 					rasterizer.camera_vertex_z[texFaceX],
 					rasterizer.camera_vertex_z[texFaceY],
 					rasterizer.camera_vertex_z[texFaceZ],
-					texId);
+					texId, depthX, depthY, depthZ);
 		} catch (Exception e) {
 			int count = RENDER_TEXTURE_ERROR_COUNT.incrementAndGet();
 			if (shouldLogRenderError(count)) {
@@ -1565,7 +1571,7 @@ public class Mesh extends Renderable {
 			rasterizer.vertexScreenZ[k4] = z - j4;
 			rasterizer.vertexScreenX[k4] = viewX + (x << 9) / z;
 			rasterizer.vertexScreenY[k4] = viewY + (y << 9) / z;
-			if (numTextures > 0) {
+			if (numTextures > 0 || rasterizer.isDepthBuffering()) {
 				rasterizer.camera_vertex_x[k4] = x;
 				rasterizer.camera_vertex_y[k4] = y;
 				rasterizer.camera_vertex_z[k4] = z;
@@ -1573,7 +1579,7 @@ public class Mesh extends Renderable {
 		}
 
 		try {
-			renderFaces(rasterizer, false, false, null, plane);
+			renderFaces(rasterizer, false, null, plane);
 		} catch (Exception _ex) {
 			int count = RENDER_FACES_ERROR_COUNT.incrementAndGet();
 			if (shouldLogRenderError(count)) {
@@ -1592,6 +1598,14 @@ public class Mesh extends Renderable {
 		if (i3 <= 50 || k2 >= 6500)
 			return;
 
+		Mesh level = levelOfDetail(k2);
+		if (level != this) {
+			level.selected = selected;
+			level.modelHeight = modelHeight;
+			level.render(rasterizer, x, y, orientation, ySine, yCosine, xSine, xCosine, height, key, z);
+			return;
+		}
+
 		int j3 = y * xSine + x * xCosine >> 16;
 		int sceneLowerX = j3 - boundingPlaneRadius << 9;
 		if (sceneLowerX / i3 >= rasterizer.getCentreX())
@@ -1619,43 +1633,6 @@ public class Mesh extends Renderable {
 			flag = true;
 		}
 
-		boolean flag1 = false;
-		if (key != null && aBoolean1684 || true) {
-			int k5 = k2 - l2;
-			if (k5 <= 50) {
-				k5 = 50;
-			}
-
-			if (j3 > 0) {
-				sceneLowerX /= i3;
-				sceneMaximumX /= k5;
-			} else {
-				sceneMaximumX /= i3;
-				sceneLowerX /= k5;
-			}
-
-			if (i4 > 0) {
-				sceneLowerY /= i3;
-				sceneMaximumY /= k5;
-			} else {
-				sceneMaximumY /= i3;
-				sceneLowerY /= k5;
-			}
-
-			int mouseSceneX = mouseX - rasterizer.viewCenter.getX();
-			int mouseSceneY = mouseY - rasterizer.viewCenter.getY();
-
-			if (mouseSceneX > sceneLowerX && mouseSceneX < sceneMaximumX && mouseSceneY > sceneLowerY && mouseSceneY < sceneMaximumY) {
-				if (fitsOnSingleSquare) {
-					resourceIDTag[resourceCount++] = key;
-					if(Client.hoveredUID == null)
-						Client.hoveredUID = key;
-				} else {
-					flag1 = true;
-				}
-			}
-		}
-
 		int viewX = rasterizer.viewCenter.getX();
 		int viewY = rasterizer.viewCenter.getY();
 		int sine = 0;
@@ -1695,7 +1672,7 @@ public class Mesh extends Renderable {
 				flag = true;
 			}
 
-			if (flag || numTextures > 0) {
+			if (flag || numTextures > 0 || rasterizer.isDepthBuffering()) {
 				rasterizer.camera_vertex_x[vertex] = xVertex;
 				rasterizer.camera_vertex_y[vertex] = yVertex;
 				rasterizer.camera_vertex_z[vertex] = zVertex;
@@ -1703,13 +1680,41 @@ public class Mesh extends Renderable {
 		}
 
 		try {
-			renderFaces(rasterizer, flag, flag1, key, z);
+			rasterizer.setPickOwner(pickable(key, z) ? key : null);
+			renderFaces(rasterizer, flag, key, z);
 		} catch (Exception ex) {
 			int count = RENDER_FACES_ERROR_COUNT.incrementAndGet();
 			if (shouldLogRenderError(count)) {
 				log.warn("Mesh {} failed renderFaces(world) #{}", id, count, ex);
 			}
+		} finally {
+			rasterizer.setPickOwner(null);
+		}
+	}
+
+	/**
+	 * Picks the mesh to draw at the given depth from the projected diameter of the bounds, building the reduced levels
+	 * the first time one is needed.
+	 */
+	private Mesh levelOfDetail(int depth) {
+		if (!Options.meshLevelOfDetail.get() || levels == NO_LEVELS || depth <= 50) {
+			return this;
+		}
+
+		int diameter = (boundingSphereRadius << 10) / depth;
+		int level = -1;
+		while (level + 1 < MeshSimplifier.LEVEL_CELLS.length
+				&& diameter <= MeshSimplifier.LEVEL_CELLS[level + 1] * LEVEL_PIXELS) {
+			level++;
+		}
+		if (level == -1) {
+			return this;
+		}
+
+		if (levels == null) {
+			levels = MeshSimplifier.levels(this);
 		}
+		return levels[level];
 	}
 
 	public void rotateClockwise() {
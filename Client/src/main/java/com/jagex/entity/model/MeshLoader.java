@@ -1,18 +1,17 @@
 package com.jagex.entity.model;
 
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.rspsi.cache.CacheFileType;
 import lombok.extern.slf4j.Slf4j;
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.jagex.net.ResourceProvider;
 import com.jagex.net.ResourceResponse;
@@ -24,13 +23,14 @@ public class MeshLoader {
 		if (singleton != null)
 			throw new Exception("MeshLoader.class already loaded!");
 		this.provider = provider;
-		EventBus.getDefault().register(this);
+		provider.addListener(CacheFileType.MODEL, listener);
 		singleton = this;
 	}
 
 	private Map<Integer, Mesh> loadedMeshes = Collections.synchronizedMap(Maps.newHashMap());
-	private List<Integer> awaitingLoad = Collections.synchronizedList(Lists.newArrayList());
+	private Set<Integer> awaitingLoad = ConcurrentHashMap.newKeySet();
 	private ResourceProvider provider;
+	private Consumer<ResourceResponse> listener = this::onResourceResponse;
 
 
 	public void clear(int id) {
@@ -38,15 +38,13 @@ public class MeshLoader {
 	}
 
 	public void dispose() {
+		provider.removeListener(CacheFileType.MODEL, listener);
 		clearAll();
 		singleton = null;
 	}
 
-	@Subscribe(threadMode = ThreadMode.ASYNC)
 	public void onResourceResponse(ResourceResponse response) {
-		if (response.getRequest().getType() == CacheFileType.MODEL) {
-			load(response.decompress(), response.getRequest().getFile());
-		}
+		load(response.decompress(), response.getRequest().getFile());
 	}
 
 	public static Mesh load(byte[] data) {
@@ -90,7 +88,7 @@ public class MeshLoader {
 			log.error("Failed decoding model {} ({})", id, revision, ex);
 		}
 
-		awaitingLoad.remove(Integer.valueOf(id));
+		awaitingLoad.remove(id);
 		if (mesh == null) {
 			return null;
 		}
@@ -106,13 +104,15 @@ public class MeshLoader {
 		if (loadedMeshes.containsKey(id))
 			return true;
 
-		boolean alreadyLoading = awaitingLoad.contains(id);
-		if (!alreadyLoading) {
-			awaitingLoad.add(id);
+		if (awaitingLoad.add(id)) {
 			if (log.isTraceEnabled()) {
 				log.trace("Requested model {}", id);
 			}
-			provider.requestFile(CacheFileType.MODEL, id);
+			provider.requestFile(CacheFileType.MODEL, id).whenComplete((response, error) -> {
+				if (error instanceof CancellationException) {
+					awaitingLoad.remove(id);
+				}
+			});
 			return false;
 		}
 		return false;
@@ -0,0 +1,224 @@
+package com.jagex.entity.model;
+
+import java.util.Arrays;
+
+/**
+ * Builds reduced detail copies of a lit {@link Mesh} by vertex clustering. The model's bounding box is split into a
+ * grid, every vertex is moved to the average position of its grid cell, and faces that collapse to a line or a point
+ * are dropped. Face colours are kept as they are, so the copy never needs relighting, and the vertices that span
+ * texture mappings are carried over unmoved so textured faces keep their coordinates.
+ */
+public final class MeshSimplifier {
+
+	/**
+	 * Grid cells across the longest side of the model for each reduced level.
+	 */
+	static final int[] LEVEL_CELLS = { 16, 8, 4 };
+
+	/**
+	 * Meshes with fewer faces than this are not worth reducing.
+	 */
+	static final int MINIMUM_FACES = 24;
+
+	private MeshSimplifier() {
+
+	}
+
+	/**
+	 * Creates one reduced mesh for every entry of {@link #LEVEL_CELLS}. A level that removes nothing shares the mesh
+	 * of the level above it.
+	 */
+	public static Mesh[] levels(Mesh mesh) {
+		Mesh[] levels = new Mesh[LEVEL_CELLS.length];
+		Mesh previous = mesh;
+		for (int level = 0; level < levels.length; level++) {
+			Mesh reduced = previous.numFaces < MINIMUM_FACES ? null : simplify(mesh, LEVEL_CELLS[level]);
+			levels[level] = previous = reduced == null ? previous : reduced;
+		}
+		return levels;
+	}
+
+	/**
+	 * Clusters the vertices of {@code mesh} into a grid with {@code cells} cells across its longest side.
+	 *
+	 * @return The reduced mesh, or {@code null} if clustering would not remove any faces.
+	 */
+	public static Mesh simplify(Mesh mesh, int cells) {
+		int vertices = mesh.numVertices;
+		int faces = mesh.numFaces;
+		if (vertices == 0 || faces == 0) {
+			return null;
+		}
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for (int vertex = 0; vertex < vertices; vertex++) {
+			int x = mesh.verticesX[vertex], y = mesh.verticesY[vertex], z = mesh.verticesZ[vertex];
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+
+		int size = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+		int cellSize = Math.max(1, (size + cells - 1) / cells);
+		int span = cells + 1;
+		int[] cellVertex = new int[span * span * span];
+		Arrays.fill(cellVertex, -1);
+
+		int[] remap = new int[vertices];
+		int[] sumX = new int[vertices], sumY = new int[vertices], sumZ = new int[vertices], counts = new int[vertices];
+		int clusters = 0;
+		for (int vertex = 0; vertex < vertices; vertex++) {
+			int x = mesh.verticesX[vertex], y = mesh.verticesY[vertex], z = mesh.verticesZ[vertex];
+			int cell = ((x - minX) / cellSize * span + (y - minY) / cellSize) * span + (z - minZ) / cellSize;
+			int cluster = cellVertex[cell];
+			if (cluster == -1) {
+				cluster = cellVertex[cell] = clusters++;
+			}
+			remap[vertex] = cluster;
+			sumX[cluster] += x;
+			sumY[cluster] += y;
+			sumZ[cluster] += z;
+			counts[cluster]++;
+		}
+
+		int[] kept = new int[faces];
+		int keptCount = 0;
+		for (int face = 0; face < faces; face++) {
+			int a = remap[mesh.faceIndicesA[face]];
+			int b = remap[mesh.faceIndicesB[face]];
+			int c = remap[mesh.faceIndicesC[face]];
+			if (a != b && b != c && a != c) {
+				kept[keptCount++] = face;
+			}
+		}
+
+		if (keptCount == faces) {
+			return null;
+		}
+
+		Mesh reduced = new Mesh();
+		reduced.id = mesh.id;
+		reduced.revision = mesh.revision;
+		reduced.setModelHeight(mesh.getModelHeight());
+		reduced.fitsOnSingleSquare = mesh.fitsOnSingleSquare;
+		reduced.minimumX = mesh.minimumX;
+		reduced.maximumX = mesh.maximumX;
+		reduced.minimumZ = mesh.minimumZ;
+		reduced.maximumZ = mesh.maximumZ;
+		reduced.minimumY = mesh.minimumY;
+		reduced.boundingPlaneRadius = mesh.boundingPlaneRadius;
+		reduced.boundingSphereRadius = mesh.boundingSphereRadius;
+		reduced.boundingCylinderRadius = mesh.boundingCylinderRadius;
+		reduced.anInt1654 = mesh.anInt1654;
+		reduced.facePriority = mesh.facePriority;
+
+		// Texture mapping vertices keep their original position, clustering them would flatten the texture basis
+		int[] mapping = new int[vertices];
+		Arrays.fill(mapping, -1);
+		int mapped = clusters;
+		mapped = addMappingVertices(mesh.textureMappingP, mesh.numTextures, mapping, mapped);
+		mapped = addMappingVertices(mesh.textureMappingM, mesh.numTextures, mapping, mapped);
+		mapped = addMappingVertices(mesh.textureMappingN, mesh.numTextures, mapping, mapped);
+
+		reduced.levels = Mesh.NO_LEVELS;
+		reduced.numVertices = mapped;
+		reduced.verticesX = new int[mapped];
+		reduced.verticesY = new int[mapped];
+		reduced.verticesZ = new int[mapped];
+		for (int cluster = 0; cluster < clusters; cluster++) {
+			reduced.verticesX[cluster] = sumX[cluster] / counts[cluster];
+			reduced.verticesY[cluster] = sumY[cluster] / counts[cluster];
+			reduced.verticesZ[cluster] = sumZ[cluster] / counts[cluster];
+		}
+		for (int vertex = 0; vertex < vertices; vertex++) {
+			int index = mapping[vertex];
+			if (index != -1) {
+				reduced.verticesX[index] = mesh.verticesX[vertex];
+				reduced.verticesY[index] = mesh.verticesY[vertex];
+				reduced.verticesZ[index] = mesh.verticesZ[vertex];
+			}
+		}
+
+		reduced.numFaces = keptCount;
+		reduced.faceIndicesA = new int[keptCount];
+		reduced.faceIndicesB = new int[keptCount];
+		reduced.faceIndicesC = new int[keptCount];
+		for (int index = 0; index < keptCount; index++) {
+			int face = kept[index];
+			reduced.faceIndicesA[index] = remap[mesh.faceIndicesA[face]];
+			reduced.faceIndicesB[index] = remap[mesh.faceIndicesB[face]];
+			reduced.faceIndicesC[index] = remap[mesh.faceIndicesC[face]];
+		}
+		reduced.shadedFaceColoursX = select(mesh.shadedFaceColoursX, kept, keptCount);
+		reduced.shadedFaceColoursY = select(mesh.shadedFaceColoursY, kept, keptCount);
+		reduced.shadedFaceColoursZ = select(mesh.shadedFaceColoursZ, kept, keptCount);
+		reduced.faceAlphas = select(mesh.faceAlphas, kept, keptCount);
+		reduced.faceColours = select(mesh.faceColours, kept, keptCount);
+		reduced.faceTextures = select(mesh.faceTextures, kept, keptCount);
+		reduced.facePriorities = select(mesh.facePriorities, kept, keptCount);
+		reduced.faceSkin = select(mesh.faceSkin, kept, keptCount);
+		reduced.faceTypes = select(mesh.faceTypes, kept, keptCount);
+		if (mesh.texture_coordinates != null) {
+			reduced.texture_coordinates = new byte[keptCount];
+			for (int index = 0; index < keptCount; index++) {
+				reduced.texture_coordinates[index] = mesh.texture_coordinates[kept[index]];
+			}
+		}
+
+		reduced.numTextures = mesh.numTextures;
+		reduced.textureRenderTypes = mesh.textureRenderTypes;
+		reduced.textureMappingP = remapVertices(mesh.textureMappingP, mapping, mesh.numTextures);
+		reduced.textureMappingM = remapVertices(mesh.textureMappingM, mapping, mesh.numTextures);
+		reduced.textureMappingN = remapVertices(mesh.textureMappingN, mapping, mesh.numTextures);
+		return reduced;
+	}
+
+	private static int[] select(int[] values, int[] kept, int count) {
+		if (values == null) {
+			return null;
+		}
+		int[] selected = new int[count];
+		for (int index = 0; index < count; index++) {
+			selected[index] = values[kept[index]];
+		}
+		return selected;
+	}
+
+	/**
+	 * Gives every vertex referenced by the first {@code count} entries of {@code vertices} its own index in the reduced
+	 * mesh, starting at {@code next}.
+	 *
+	 * @return The next free index.
+	 */
+	private static int addMappingVertices(int[] vertices, int count, int[] mapping, int next) {
+		if (vertices == null) {
+			return next;
+		}
+		for (int index = 0; index < count && index < vertices.length; index++) {
+			int vertex = vertices[index];
+			if (vertex >= 0 && vertex < mapping.length && mapping[vertex] == -1) {
+				mapping[vertex] = next++;
+			}
+		}
+		return next;
+	}
+
+	private static int[] remapVertices(int[] vertices, int[] remap, int count) {
+		if (vertices == null) {
+			return null;
+		}
+		int[] remapped = Arrays.copyOf(vertices, vertices.length);
+		for (int index = 0; index < count && index < remapped.length; index++) {
+			int vertex = remapped[index];
+			if (vertex >= 0 && vertex < remap.length) {
+				remapped[index] = remap[vertex];
+			}
+		}
+		return remapped;
+	}
+
+}
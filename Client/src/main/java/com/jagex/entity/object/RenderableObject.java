@@ -13,6 +13,7 @@ import com.rspsi.options.Options;
 public class RenderableObject extends Renderable {
 
 	public static Client client;
+	private static volatile boolean animating;
 	private Animation animation;
 	private int anInt1603;
 	private int anInt1605;
@@ -75,6 +76,7 @@ public class RenderableObject extends Renderable {
 			currentFrameDuration = Client.pulseTick - tickDelta;
 			if (animation != null) {
 				lastFrame = animation.getPrimaryFrame(currentFrameId);
+				animating = true;
 			}
 		}
 
@@ -90,6 +92,17 @@ public class RenderableObject extends Renderable {
 		return model;
 	}
 
+	/**
+	 * Whether an animated object was modelled, and so drawn, since the flag was last reset.
+	 */
+	public static boolean isAnimating() {
+		return animating;
+	}
+
+	public static void setAnimating(boolean animating) {
+		RenderableObject.animating = animating;
+	}
+
 	public final ObjectDefinition morph() {
 		return ObjectDefinitionLoader.getMorphism(id);
 	}
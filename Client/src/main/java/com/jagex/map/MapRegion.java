@@ -320,6 +320,10 @@ public final class MapRegion {
 			}
 
 		}
+		if (scene != null) {
+			scene.invalidateHeights(width - 1, 0, 2, length + 1);
+			scene.invalidateHeights(0, length - 1, width + 1, 2);
+		}
 
 	}
 
@@ -1497,6 +1501,9 @@ public final class MapRegion {
 	long lastUpdate = 0;
 	public final void updateTiles() {
 		//synchronized (this) {
+			if (scene != null) {
+				scene.invalidateHeights();
+			}
 			if(System.currentTimeMillis() - lastUpdate < 200)
 				return;
 			
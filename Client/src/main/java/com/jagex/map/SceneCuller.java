@@ -0,0 +1,280 @@
+package com.jagex.map;
+
+import java.util.Arrays;
+
+/**
+ * Frustum culls the tile grid in 64x64 tile regions and 8x8 tile blocks before the scene graph visits individual
+ * tiles. Only blocks inside the view distance are tested, and the blocks of a region are only tested once the region
+ * itself passes, so the cost follows what is on screen rather than the area of the view distance.
+ */
+final class SceneCuller {
+
+	private static final int BLOCK_SHIFT = 3;
+	private static final int REGION_SHIFT = 6;
+	private static final int BLOCKS_PER_REGION = 1 << REGION_SHIFT - BLOCK_SHIFT;
+
+	/**
+	 * Head room above the highest vertex of a block, so objects standing on it are not culled with the ground.
+	 */
+	private static final int OBJECT_HEIGHT = 1024;
+
+	/**
+	 * Objects may hang over the edge of the tiles they are placed on.
+	 */
+	private static final int OVERHANG = 1;
+
+	private static final int NEAR = 50;
+
+	int[] visibleBlocks = new int[256];
+	int visibleCount;
+
+	private int[][][] heights;
+	private int width, length;
+	private int blocksX, blocksY;
+	private int regionsX, regionsY;
+	private int[] blockTop, blockBottom;
+	private int[] regionTop, regionBottom;
+	private boolean[] regionKnown;
+	private int[] stamps;
+	private int stamp;
+	private int minVisibleX, minVisibleY, maxVisibleX, maxVisibleY;
+
+	private long xCamera, yCamera, zCamera;
+	private int xSine, xCosine, ySine, yCosine;
+	private long left, right, top, bottom;
+
+	/**
+	 * Finds the blocks of the view area {@code [minX, maxX) x [minY, maxY)} that intersect the view frustum.
+	 */
+	void begin(int[][][] heights, int width, int length, int minX, int minY, int maxX, int maxY, int xCamera, int yCamera,
+			int zCamera, int xSine, int xCosine, int ySine, int yCosine, int centerX, int centerY, int viewLeft, int viewTop,
+			int viewRight, int viewBottom) {
+		if (heights != this.heights || width != this.width || length != this.length) {
+			resize(heights, width, length);
+		}
+
+		stamp++;
+		visibleCount = 0;
+		minVisibleX = minVisibleY = Integer.MAX_VALUE;
+		maxVisibleX = maxVisibleY = Integer.MIN_VALUE;
+		this.xCamera = xCamera;
+		this.yCamera = yCamera;
+		this.zCamera = zCamera;
+		this.xSine = xSine;
+		this.xCosine = xCosine;
+		this.ySine = ySine;
+		this.yCosine = yCosine;
+		left = viewLeft - centerX;
+		right = viewRight - centerX;
+		top = viewTop - centerY;
+		bottom = viewBottom - centerY;
+
+		minX = Math.max(minX, 0);
+		minY = Math.max(minY, 0);
+		maxX = Math.min(maxX, width);
+		maxY = Math.min(maxY, length);
+		if (minX >= maxX || minY >= maxY) {
+			return;
+		}
+
+		for (int regionX = minX >> REGION_SHIFT; regionX <= maxX - 1 >> REGION_SHIFT; regionX++) {
+			for (int regionY = minY >> REGION_SHIFT; regionY <= maxY - 1 >> REGION_SHIFT; regionY++) {
+				int region = regionX * regionsY + regionY;
+				if (!regionKnown[region]) {
+					updateRegion(regionX, regionY);
+				}
+
+				int x0 = Math.max(regionX << REGION_SHIFT, minX);
+				int y0 = Math.max(regionY << REGION_SHIFT, minY);
+				int x1 = Math.min(regionX + 1 << REGION_SHIFT, maxX);
+				int y1 = Math.min(regionY + 1 << REGION_SHIFT, maxY);
+				if (!intersects(x0, y0, x1, y1, regionTop[region], regionBottom[region])) {
+					continue;
+				}
+
+				for (int blockX = x0 >> BLOCK_SHIFT; blockX <= x1 - 1 >> BLOCK_SHIFT; blockX++) {
+					for (int blockY = y0 >> BLOCK_SHIFT; blockY <= y1 - 1 >> BLOCK_SHIFT; blockY++) {
+						int block = blockX * blocksY + blockY;
+						int bx0 = Math.max(blockX << BLOCK_SHIFT, x0);
+						int by0 = Math.max(blockY << BLOCK_SHIFT, y0);
+						int bx1 = Math.min(blockX + 1 << BLOCK_SHIFT, x1);
+						int by1 = Math.min(blockY + 1 << BLOCK_SHIFT, y1);
+						if (intersects(bx0, by0, bx1, by1, blockTop[block], blockBottom[block])) {
+							markVisible(block, bx0, by0, bx1, by1);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets the height bounds of the regions around the tiles {@code [minX, maxX) x [minY, maxY)}, so they are
+	 * measured again the next time they are in view. Must be called whenever heights in that area change.
+	 */
+	void invalidate(int minX, int minY, int maxX, int maxY) {
+		if (regionKnown == null) {
+			return;
+		}
+		int firstX = Math.max(minX - 1, 0) >> REGION_SHIFT, firstY = Math.max(minY - 1, 0) >> REGION_SHIFT;
+		int lastX = Math.min(Math.max(maxX, 0) >> REGION_SHIFT, regionsX - 1);
+		int lastY = Math.min(Math.max(maxY, 0) >> REGION_SHIFT, regionsY - 1);
+		for (int regionX = firstX; regionX <= lastX; regionX++) {
+			for (int regionY = firstY; regionY <= lastY; regionY++) {
+				regionKnown[regionX * regionsY + regionY] = false;
+			}
+		}
+	}
+
+	/**
+	 * Forgets the height bounds of every region.
+	 */
+	void invalidate() {
+		if (regionKnown != null) {
+			Arrays.fill(regionKnown, false);
+		}
+	}
+
+	boolean isVisible(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= length) {
+			return false;
+		}
+		return stamps[(x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT)] == stamp;
+	}
+
+	/**
+	 * Returns whether any visible block covers the tile column {@code x}.
+	 */
+	boolean spansX(int x) {
+		return x >= minVisibleX && x <= maxVisibleX;
+	}
+
+	/**
+	 * Returns whether any visible block covers the tile row {@code y}.
+	 */
+	boolean spansY(int y) {
+		return y >= minVisibleY && y <= maxVisibleY;
+	}
+
+	int blockX(int block) {
+		return block / blocksY << BLOCK_SHIFT;
+	}
+
+	int blockY(int block) {
+		return block % blocksY << BLOCK_SHIFT;
+	}
+
+	int blockSize() {
+		return 1 << BLOCK_SHIFT;
+	}
+
+	private void markVisible(int block, int x0, int y0, int x1, int y1) {
+		if (visibleCount == visibleBlocks.length) {
+			visibleBlocks = Arrays.copyOf(visibleBlocks, visibleCount * 2);
+		}
+		visibleBlocks[visibleCount++] = block;
+		stamps[block] = stamp;
+		minVisibleX = Math.min(minVisibleX, x0);
+		minVisibleY = Math.min(minVisibleY, y0);
+		maxVisibleX = Math.max(maxVisibleX, x1 - 1);
+		maxVisibleY = Math.max(maxVisibleY, y1 - 1);
+	}
+
+	/**
+	 * Tests the box spanning the tiles {@code [x0, x1) x [y0, y1)} between the two heights against the near plane and
+	 * the four planes through the screen edges. The box is rejected only when all eight corners lie outside the same
+	 * plane.
+	 */
+	private boolean intersects(int x0, int y0, int x1, int y1, int highest, int lowest) {
+		int outside = 0x1f;
+		for (int corner = 0; corner < 8; corner++) {
+			long worldX = ((corner & 1) == 0 ? x0 - OVERHANG : x1 + OVERHANG) * 128L - xCamera;
+			long worldY = ((corner & 2) == 0 ? y0 - OVERHANG : y1 + OVERHANG) * 128L - yCamera;
+			long height = ((corner & 4) == 0 ? highest - OBJECT_HEIGHT : lowest) - zCamera;
+			long x = worldY * xSine + worldX * xCosine >> 16;
+			long y = worldY * xCosine - worldX * xSine >> 16;
+			long screenY = height * yCosine - y * ySine >> 16;
+			long depth = height * ySine + y * yCosine >> 16;
+
+			int code = 0;
+			if (depth < NEAR) {
+				code |= 1;
+			}
+			if (x << 9 < left * depth) {
+				code |= 2;
+			} else if (x << 9 > right * depth) {
+				code |= 4;
+			}
+			if (screenY << 9 < top * depth) {
+				code |= 8;
+			} else if (screenY << 9 > bottom * depth) {
+				code |= 16;
+			}
+
+			outside &= code;
+			if (outside == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void updateRegion(int regionX, int regionY) {
+		int region = regionX * regionsY + regionY;
+		int highest = Integer.MAX_VALUE, lowest = Integer.MIN_VALUE;
+		int lastBlockX = Math.min((regionX + 1) * BLOCKS_PER_REGION, blocksX);
+		int lastBlockY = Math.min((regionY + 1) * BLOCKS_PER_REGION, blocksY);
+		for (int blockX = regionX * BLOCKS_PER_REGION; blockX < lastBlockX; blockX++) {
+			for (int blockY = regionY * BLOCKS_PER_REGION; blockY < lastBlockY; blockY++) {
+				int block = blockX * blocksY + blockY;
+				updateBlock(block, blockX, blockY);
+				highest = Math.min(highest, blockTop[block]);
+				lowest = Math.max(lowest, blockBottom[block]);
+			}
+		}
+		regionTop[region] = highest;
+		regionBottom[region] = lowest;
+		regionKnown[region] = true;
+	}
+
+	private void updateBlock(int block, int blockX, int blockY) {
+		int highest = Integer.MAX_VALUE, lowest = Integer.MIN_VALUE;
+		int x0 = blockX << BLOCK_SHIFT, y0 = blockY << BLOCK_SHIFT;
+		int x1 = Math.min(x0 + (1 << BLOCK_SHIFT), width), y1 = Math.min(y0 + (1 << BLOCK_SHIFT), length);
+		for (int[][] plane : heights) {
+			for (int x = x0; x <= x1 && x < plane.length; x++) {
+				int[] column = plane[x];
+				for (int y = y0; y <= y1 && y < column.length; y++) {
+					int height = column[y];
+					if (height < highest) {
+						highest = height;
+					}
+					if (height > lowest) {
+						lowest = height;
+					}
+				}
+			}
+		}
+		blockTop[block] = highest;
+		blockBottom[block] = lowest;
+	}
+
+	private void resize(int[][][] heights, int width, int length) {
+		this.heights = heights;
+		this.width = width;
+		this.length = length;
+		blocksX = (width >> BLOCK_SHIFT) + 1;
+		blocksY = (length >> BLOCK_SHIFT) + 1;
+		regionsX = (width >> REGION_SHIFT) + 1;
+		regionsY = (length >> REGION_SHIFT) + 1;
+		blockTop = new int[blocksX * blocksY];
+		blockBottom = new int[blocksX * blocksY];
+		stamps = new int[blocksX * blocksY];
+		regionTop = new int[regionsX * regionsY];
+		regionBottom = new int[regionsX * regionsY];
+		regionKnown = new boolean[regionsX * regionsY];
+		stamp = 0;
+		visibleCount = 0;
+	}
+
+}
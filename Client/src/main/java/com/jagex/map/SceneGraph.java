@@ -139,8 +139,6 @@ public class SceneGraph {
 	public Chunk chunk;
 	public int offsetX, offsetY;
 	public List<DefaultWorldObject> selectedObjects;
-	boolean[][] aBooleanArrayArray492;
-	boolean[][][][] aBooleanArrayArrayArrayArray491;
 	SceneCluster[] aClass47Array476;
 	int minViewX;
 	int maxViewX;
@@ -156,6 +154,9 @@ public class SceneGraph {
 	int anInt496;
 	int anInt497;
 	int anInt498;
+	public int tilesRendered;
+	private final TerrainVertexCache terrainVertices = new TerrainVertexCache();
+	private final SceneCuller culler = new SceneCuller();
 	int[] clusterCounts;
 	SceneCluster[][] clusters;
 	int zCameraTile;
@@ -193,7 +194,6 @@ public class SceneGraph {
 		interactables = new GameObject[100];
 		clusters = new SceneCluster[PLANE_COUNT][500];
 		clusterCounts = new int[PLANE_COUNT];
-		aBooleanArrayArrayArrayArray491 = new boolean[24][32][(Options.renderDistance.get() * 2) + 1][(Options.renderDistance.get() * 2) + 1];
 		aClass47Array476 = new SceneCluster[500];
 		interactables = new GameObject[100];
 		tileQueue = new ArrayDeque<SceneTile>();
@@ -289,6 +289,10 @@ public class SceneGraph {
 			redoList.clear();
 			System.out.println("COMMIT");
 			minimapUpdate = true;
+			Client client = Client.getSingleton();
+			if (client != null) {
+				client.requestRedraw();
+			}
 		}
 	}
 
@@ -353,10 +357,6 @@ public class SceneGraph {
 		return newFlag;
 	}
 
-	public void setRenderDistance() {
-		aBooleanArrayArrayArrayArray491 = new boolean[24][32][(Options.renderDistance.get() * 2) + 1][(Options.renderDistance.get() * 2) + 1];
-	}
-
 	public boolean currentStateCorrect() {
 		switch (Options.currentTool.get()) {
 			case SELECT_OBJECT:
@@ -2113,6 +2113,25 @@ public class SceneGraph {
 			onEnd.run();
 	}
 
+	/**
+	 * Lets the frustum culler know that the tile heights in an area changed.
+	 *
+	 * @param x      The X position on the map to start
+	 * @param y      The Y position on the map to start
+	 * @param width  The width of the area that changed
+	 * @param height The height of the area that changed
+	 */
+	public void invalidateHeights(int x, int y, int width, int height) {
+		culler.invalidate(x, y, x + width, y + height);
+	}
+
+	/**
+	 * Lets the frustum culler know that any of the tile heights may have changed.
+	 */
+	public void invalidateHeights() {
+		culler.invalidate();
+	}
+
 	public void smoothHeights(int x, int y, int plane) {
 		int brushSize = Options.brushSize.get();
 		int mapSize = 64;
@@ -2157,6 +2176,7 @@ public class SceneGraph {
 	 * @param height The height of the area to update
 	 */
 	public void updateHeights(int x, int y, int width, int height) {
+		invalidateHeights(x, y, width, height);
 		int mapSize = getMapRegion().tileHeights[0].length - 1;
 		for (int tileX = 0; tileX < width; tileX++) {
 			for (int tileY = 0; tileY < height; tileY++) {
@@ -2389,6 +2409,10 @@ public class SceneGraph {
 		cluster.anInt795 = i1;
 		cluster.anInt796 = j1;
 		cluster.anInt797 = k;
+		if (clusterCounts[plane] == clusters[plane].length) {
+			clusters[plane] = Arrays.copyOf(clusters[plane], clusterCounts[plane] * 2);
+			aClass47Array476 = Arrays.copyOf(aClass47Array476, Math.max(aClass47Array476.length, clusters[plane].length));
+		}
 		clusters[plane][clusterCounts[plane]++] = cluster;
 	}
 
@@ -2499,74 +2523,6 @@ public class SceneGraph {
 		anInt498 = l;
 		anInt493 = k / 2;
 		anInt494 = l / 2;
-		boolean[][][][] aflag = new boolean[13][32][(Options.renderDistance.get() * 2) + 3][(Options.renderDistance.get() * 2) + 3];
-
-		for (int i1 = 0; i1 <= 384; i1 += 32) {
-			for (int j1 = 0; j1 < 2048; j1 += 64) {
-				ySine = Constants.SINE[i1];
-				yCosine = Constants.COSINE[i1];
-				xSine = Constants.SINE[j1];
-				xCosine = Constants.COSINE[j1];
-				int l1 = i1 / 32;
-				int j2 = j1 / 64;
-				for (int l2 = -(Options.renderDistance.get()) - 1; l2 <= (Options.renderDistance.get()) + 1; l2++) {
-					for (int j3 = -(Options.renderDistance.get()) - 1; j3 <= (Options.renderDistance.get()) + 1; j3++) {
-						int k3 = l2 * 128;
-						int i4 = j3 * 128;
-						boolean flag2 = false;
-						for (int k4 = -i; k4 <= j; k4 += 128) {
-							if (!method311(ai[l1] + k4, i4, k3)) {
-								continue;
-							}
-							flag2 = true;
-							break;
-						}
-						aflag[l1][j2][l2 + Options.renderDistance.get() + 1][j3 + Options.renderDistance.get() + 1] = flag2;
-					}
-				}
-			}
-		}
-
-		for (int k1 = 0; k1 < 12; k1++) {
-			for (int i2 = 0; i2 < 32; i2++) {
-				for (int k2 = -Options.renderDistance.get(); k2 < Options.renderDistance.get(); k2++) {
-					for (int i3 = -Options.renderDistance.get(); i3 < Options.renderDistance.get(); i3++) {
-						boolean flag1 = false;
-						label0:
-						for (int l3 = -1; l3 <= 1; l3++) {
-							for (int j4 = -1; j4 <= 1; j4++) {
-								if (aflag[k1][i2][k2 + l3 + Options.renderDistance.get() + 1][i3 + j4 + Options.renderDistance.get() + 1]) {
-									flag1 = true;
-								} else if (aflag[k1][(i2 + 1) % 31][k2 + l3 + Options.renderDistance.get() + 1][i3 + j4 + Options.renderDistance.get() + 1]) {
-									flag1 = true;
-								} else if (aflag[k1 + 1][i2][k2 + l3 + Options.renderDistance.get() + 1][i3 + j4 + Options.renderDistance.get() + 1]) {
-									flag1 = true;
-								} else {
-									if (!aflag[k1 + 1][(i2 + 1) % 31][k2 + l3 + Options.renderDistance.get() + 1][i3 + j4 + Options.renderDistance.get() + 1]) {
-										continue;
-									}
-									flag1 = true;
-								}
-								break label0;
-							}
-						}
-						aBooleanArrayArrayArrayArray491[k1][i2][k2 + Options.renderDistance.get()][i3 + Options.renderDistance.get()] = flag1;
-					}
-				}
-			}
-		}
-	}
-
-	public boolean method311(int i, int j, int k) {
-		int l = j * xSine + k * xCosine >> 16;
-		int i1 = j * xCosine - k * xSine >> 16;
-		int j1 = i * ySine + i1 * yCosine >> 16;
-		int k1 = i * yCosine - i1 * ySine >> 16;
-		if (j1 < 50 || j1 > 3500)
-			return false;
-		int l1 = anInt493 + (l << 9) / j1;
-		int i2 = anInt494 + (k1 << 9) / j1;
-		return l1 >= anInt495 && l1 <= anInt497 && i2 >= anInt496 && i2 <= anInt498;
 	}
 
 	public void resetUpdates() {
@@ -2588,23 +2544,36 @@ public class SceneGraph {
 		maxViewX = absoluteCameraX + Options.renderDistance.get();
 		maxViewY = absoluteCameraY + Options.renderDistance.get();
 
-		boolean chunkHasTiles = false;
-
-		for (int x = minViewX; x < maxViewX; x++) {
-			for (int y = minViewY; y < maxViewY; y++) {
-				if (x >= chunk.offsetX && x < chunk.offsetX + 64 && y >= chunk.offsetY && y < chunk.offsetY + 64) {
-					chunkHasTiles = true;
-					break;
-				}
-			}
-		}
+		boolean chunkHasTiles = minViewX < chunk.offsetX + 64 && maxViewX > chunk.offsetX && minViewY < chunk.offsetY + 64
+				&& maxViewY > chunk.offsetY;
 
 		if (!chunkHasTiles) {
 			//System.out.println("Skipped chunk");
 			return;
 		}
 
+		renderTiles(cameraTileX, cameraTileY, k, cameraTileZ, cameraPlane, j1);
+	}
+
+	/**
+	 * Renders every loaded region in a single traversal of the shared tile grid.
+	 * All chunks share this scene graph and its {@link MapRegion}, so tile ownership
+	 * is resolved by the tile's global position rather than by a pass per chunk.
+	 */
+	public void renderAllChunks(int cameraTileX, int cameraTileY, int k, int cameraTileZ, int cameraPlane, int j1) {
+		xCameraTile = cameraTileX;
+		zCameraTile = cameraTileZ;
+		yCameraTile = cameraTileY;
+		absoluteCameraX = cameraTileX / 128;
+		absoluteCameraY = cameraTileY / 128;
+		minViewX = absoluteCameraX - Options.renderDistance.get();
+		minViewY = absoluteCameraY - Options.renderDistance.get();
+		maxViewX = absoluteCameraX + Options.renderDistance.get();
+		maxViewY = absoluteCameraY + Options.renderDistance.get();
+		renderTiles(cameraTileX, cameraTileY, k, cameraTileZ, cameraPlane, j1);
+	}
 
+	private void renderTiles(int cameraTileX, int cameraTileY, int k, int cameraTileZ, int cameraPlane, int j1) {
 		int cameraX = cameraTileX / 128 - offsetX;
 		int cameraY = cameraTileY / 128 - offsetY;
 
@@ -2618,9 +2587,8 @@ public class SceneGraph {
 		yCosine = Constants.COSINE[j1];
 		xSine = Constants.SINE[k];
 		xCosine = Constants.COSINE[k];
-
-		aBooleanArrayArray492 = aBooleanArrayArrayArrayArray491[j1 / 32][k / 64];
-
+		terrainVertices.begin(getMapRegion().tileHeights, xCameraTile, yCameraTile, zCameraTile, xSine, xCosine, ySine, yCosine,
+				GameRasterizer.getInstance().viewCenter.getX(), GameRasterizer.getInstance().viewCenter.getY());
 
 		currentCameraPlane = cameraPlane;
 
@@ -2633,32 +2601,22 @@ public class SceneGraph {
 		 * (maxViewY > 64) { maxViewY = 64; }
 		 */
 
+		// Tiles outside the blocks marked here keep the cleared flags they were left with, so only the blocks that
+		// were visible last frame need resetting.
+		for (int index = 0; index < culler.visibleCount; index++) {
+			int block = culler.visibleBlocks[index];
+			markBlock(culler.blockX(block), culler.blockY(block), cameraPlane, false);
+		}
+		culler.begin(getMapRegion().tileHeights, width, length, minViewX, minViewY, maxViewX, maxViewY, xCameraTile,
+				yCameraTile, zCameraTile, xSine, xCosine, ySine, yCosine, anInt493, anInt494, anInt495, anInt496, anInt497,
+				anInt498);
+
 		method319();
 		anInt446 = 0;
 
-		for (int z = activePlane; z < planeCount; z++) {
-			SceneTile[][] tiles = this.tiles[z];
-
-			for (int x = minViewX; x < maxViewX; x++) {
-				for (int y = minViewY; y < maxViewY; y++) {
-					if (inChunk(x, y)) {
-						SceneTile tile = tiles[x][y];
-						if (tile != null) {
-							if (tile.collisionPlane > cameraPlane || !aBooleanArrayArray492[x - minViewX][y - minViewY]
-									&& chunk.mapRegion.tileHeights[z][x][y] - cameraTileZ < 50) {
-								tile.needsRendering = false;
-								tile.aBoolean1323 = false;
-								tile.anInt1325 = 0;
-							} else {
-								tile.needsRendering = true;
-								tile.aBoolean1323 = true;
-								tile.hasObjects = tile.getTemporaryObject().isPresent() || tile.objectCount > 0;
-								anInt446++;
-							}
-						}
-					}
-				}
-			}
+		for (int index = 0; index < culler.visibleCount; index++) {
+			int block = culler.visibleBlocks[index];
+			markBlock(culler.blockX(block), culler.blockY(block), cameraPlane, true);
 		}
 		boolean flag = true;
 		for (int loop = 0; loop < 2; loop++) {
@@ -2668,10 +2626,13 @@ public class SceneGraph {
 				for (int dx = -Options.renderDistance.get(); dx <= 0; dx++) {
 					int tileXNeg = absoluteCameraX + dx;
 					int tileXPos = absoluteCameraX - dx;
-					if (tileXNeg >= minViewX || tileXPos < maxViewX) {
+					if ((tileXNeg >= minViewX || tileXPos < maxViewX) && (culler.spansX(tileXNeg) || culler.spansX(tileXPos))) {
 						for (int dy = -Options.renderDistance.get(); dy <= 0; dy++) {
 							int tileYNeg = absoluteCameraY + dy;
 							int tileYPos = absoluteCameraY - dy;
+							if (!culler.spansY(tileYNeg) && !culler.spansY(tileYPos)) {
+								continue;
+							}
 
 							if (inChunk(tileXNeg, tileYNeg)) {
 								SceneTile tile = tiles[toChunkTileX(tileXNeg)][toChunkTileY(tileYNeg)];
@@ -2713,14 +2674,18 @@ public class SceneGraph {
 			flag = false;
 		}
 
+		GameRasterizer.getInstance().flushDeferred();
 		SceneTile[][] tiles = this.tiles[Options.currentHeight.get()];
 		for (int dx = -Options.renderDistance.get(); dx <= 0; dx++) {
 			int tileXNeg = absoluteCameraX + dx;
 			int tileXPos = absoluteCameraX - dx;
-			if (tileXNeg >= minViewX || tileXPos < maxViewX) {
+			if ((tileXNeg >= minViewX || tileXPos < maxViewX) && (culler.spansX(tileXNeg) || culler.spansX(tileXPos))) {
 				for (int dy = -Options.renderDistance.get(); dy <= 0; dy++) {
 					int tileYNeg = absoluteCameraY + dy;
 					int tileYPos = absoluteCameraY - dy;
+					if (!culler.spansY(tileYNeg) && !culler.spansY(tileYPos)) {
+						continue;
+					}
 
 					if (inChunk(tileXNeg, tileYNeg)) {
 						SceneTile tile = tiles[toChunkTileX(tileXNeg)][toChunkTileY(tileYNeg)];
@@ -2807,6 +2772,38 @@ public class SceneGraph {
 		}
 	}
 
+	/**
+	 * Sets the render flags of the tiles in the 8x8 block at the given position. Visible blocks are limited to the
+	 * view distance, hidden ones are cleared whole.
+	 */
+	private void markBlock(int blockX, int blockY, int cameraPlane, boolean visible) {
+		int startX = visible ? Math.max(blockX, minViewX) : blockX;
+		int startY = visible ? Math.max(blockY, minViewY) : blockY;
+		int endX = Math.min(visible ? Math.min(blockX + culler.blockSize(), maxViewX) : blockX + culler.blockSize(), width);
+		int endY = Math.min(visible ? Math.min(blockY + culler.blockSize(), maxViewY) : blockY + culler.blockSize(), length);
+		for (int z = visible ? activePlane : 0; z < planeCount; z++) {
+			SceneTile[][] tiles = this.tiles[z];
+			for (int x = startX; x < endX; x++) {
+				for (int y = startY; y < endY; y++) {
+					SceneTile tile = tiles[x][y];
+					if (tile == null) {
+						continue;
+					}
+					if (!visible || tile.collisionPlane > cameraPlane) {
+						tile.needsRendering = false;
+						tile.aBoolean1323 = false;
+						tile.anInt1325 = 0;
+					} else {
+						tile.needsRendering = true;
+						tile.aBoolean1323 = true;
+						tile.hasObjects = tile.getTemporaryObject().isPresent() || tile.objectCount > 0;
+						anInt446++;
+					}
+				}
+			}
+		}
+	}
+
 	private boolean inChunk(int x, int y) {
 		// TODO Auto-generated method stub
 		return x >= 0 && x < width && y >= 0 && y < length;
@@ -2819,21 +2816,15 @@ public class SceneGraph {
 		for (int k = 0; k < j; k++) {
 			SceneCluster cluster = clusters[k];
 			if (cluster.anInt791 == 1) {
-				int l = cluster.anInt787 - absoluteCameraX + Options.renderDistance.get();
-				if (l < 0 || l > 50) {
+				int l = cluster.anInt787;
+				if (l < minViewX || l > maxViewX) {
 					continue;
 				}
-				int k1 = cluster.anInt789 - absoluteCameraY + Options.renderDistance.get();
-				if (k1 < 0) {
-					k1 = 0;
-				}
-				int j2 = cluster.anInt790 - absoluteCameraY + Options.renderDistance.get();
-				if (j2 > 50) {
-					j2 = 50;
-				}
+				int k1 = Math.max(cluster.anInt789, minViewY);
+				int j2 = Math.min(cluster.anInt790, maxViewY);
 				boolean flag = false;
 				while (k1 <= j2) {
-					if (aBooleanArrayArray492[l][k1++]) {
+					if (culler.isVisible(l, k1++)) {
 						flag = true;
 						break;
 					}
@@ -2859,21 +2850,15 @@ public class SceneGraph {
 				continue;
 			}
 			if (cluster.anInt791 == 2) {
-				int i1 = cluster.anInt789 - absoluteCameraY + Options.renderDistance.get();
-				if (i1 < 0 || i1 > 50) {
+				int i1 = cluster.anInt789;
+				if (i1 < minViewY || i1 > maxViewY) {
 					continue;
 				}
-				int l1 = cluster.anInt787 - absoluteCameraX + Options.renderDistance.get();
-				if (l1 < 0) {
-					l1 = 0;
-				}
-				int k2 = cluster.anInt788 - absoluteCameraX + Options.renderDistance.get();
-				if (k2 > 50) {
-					k2 = 50;
-				}
+				int l1 = Math.max(cluster.anInt787, minViewX);
+				int k2 = Math.min(cluster.anInt788, maxViewX);
 				boolean flag1 = false;
 				while (l1 <= k2) {
-					if (aBooleanArrayArray492[l1++][i1]) {
+					if (culler.isVisible(l1++, i1)) {
 						flag1 = true;
 						break;
 					}
@@ -2899,28 +2884,16 @@ public class SceneGraph {
 			} else if (cluster.anInt791 == 4) {
 				int j1 = cluster.anInt796 - zCameraTile;
 				if (j1 > 128) {
-					int i2 = cluster.anInt789 - absoluteCameraY + Options.renderDistance.get();
-					if (i2 < 0) {
-						i2 = 0;
-					}
-					int l2 = cluster.anInt790 - absoluteCameraY + Options.renderDistance.get();
-					if (l2 > 50) {
-						l2 = 50;
-					}
+					int i2 = Math.max(cluster.anInt789, minViewY);
+					int l2 = Math.min(cluster.anInt790, maxViewY);
 					if (i2 <= l2) {
-						int i3 = cluster.anInt787 - absoluteCameraX + Options.renderDistance.get();
-						if (i3 < 0) {
-							i3 = 0;
-						}
-						int l3 = cluster.anInt788 - absoluteCameraX + Options.renderDistance.get();
-						if (l3 > 50) {
-							l3 = 50;
-						}
+						int i3 = Math.max(cluster.anInt787, minViewX);
+						int l3 = Math.min(cluster.anInt788, maxViewX);
 						boolean flag2 = false;
 						label0:
 						for (int i4 = i3; i4 <= l3; i4++) {
 							for (int j4 = i2; j4 <= l2; j4++) {
-								if (!aBooleanArrayArray492[i4][j4]) {
+								if (!culler.isVisible(i4, j4)) {
 									continue;
 								}
 								flag2 = true;
@@ -3278,60 +3251,35 @@ public class SceneGraph {
 
 	public void renderPlainTileNoMouse(SimpleTile tile, int plane, int ySin, int yCos, int xSin, int xCos, int tileX,
 	                                   int tileY, boolean hiddenTile, boolean highlighted, boolean tileSelected, boolean tileBeingSelected, byte flag) {
-		int xC;
-		int xA = xC = (tileX << 7) - xCameraTile;
-		int yB;
-		int yA = yB = (tileY << 7) - yCameraTile;
-		int xD;
-		int xB = xD = xA + 128;
-		int yC;
-		int yD = yC = yA + 128;
-		int centreHeight = getMapRegion().tileHeights[plane][tileX][tileY] - zCameraTile;
-		int eastHeight = getMapRegion().tileHeights[plane][tileX + 1][tileY] - zCameraTile;
-		int northEastHeight = getMapRegion().tileHeights[plane][tileX + 1][tileY + 1] - zCameraTile;
-		int northHeight = getMapRegion().tileHeights[plane][tileX][tileY + 1] - zCameraTile;
-		int l4 = yA * xSin + xA * xCos >> 16;
-		yA = yA * xCos - xA * xSin >> 16;
-		xA = l4;
-		l4 = centreHeight * yCos - yA * ySin >> 16;
-		yA = centreHeight * ySin + yA * yCos >> 16;
-		centreHeight = l4;
-		if (yA < 50)
-			return;
-		l4 = yB * xSin + xB * xCos >> 16;
-		yB = yB * xCos - xB * xSin >> 16;
-		xB = l4;
-		l4 = eastHeight * yCos - yB * ySin >> 16;
-		yB = eastHeight * ySin + yB * yCos >> 16;
-		eastHeight = l4;
-		if (yB < 50)
-			return;
-		l4 = yD * xSin + xD * xCos >> 16;
-		yD = yD * xCos - xD * xSin >> 16;
-		xD = l4;
-		l4 = northEastHeight * yCos - yD * ySin >> 16;
-		yD = northEastHeight * ySin + yD * yCos >> 16;
-		northEastHeight = l4;
-		if (yD < 50)
-			return;
-		l4 = yC * xSin + xC * xCos >> 16;
-		yC = yC * xCos - xC * xSin >> 16;
-		xC = l4;
-		l4 = northHeight * yCos - yC * ySin >> 16;
-		yC = northHeight * ySin + yC * yCos >> 16;
-		northHeight = l4;
-
-		if (yC < 50)
+		int[][][] heights = getMapRegion().tileHeights;
+		TerrainVertexCache vertices = terrainVertices;
+		int a = vertices.vertex(heights, plane, tileX, tileY);
+		int b = vertices.vertex(heights, plane, tileX + 1, tileY);
+		int d = vertices.vertex(heights, plane, tileX + 1, tileY + 1);
+		int c = vertices.vertex(heights, plane, tileX, tileY + 1);
+		int yA = vertices.depth[a];
+		int yB = vertices.depth[b];
+		int yD = vertices.depth[d];
+		int yC = vertices.depth[c];
+		if (yA < 50 || yB < 50 || yD < 50 || yC < 50)
 			return;
 
-		int screenXA = GameRasterizer.getInstance().viewCenter.getX() + (xA << 9) / yA;
-		int screenYA = GameRasterizer.getInstance().viewCenter.getY() + (centreHeight << 9) / yA;
-		int screenXB = GameRasterizer.getInstance().viewCenter.getX() + (xB << 9) / yB;
-		int screenYB = GameRasterizer.getInstance().viewCenter.getY() + (eastHeight << 9) / yB;
-		int screenXD = GameRasterizer.getInstance().viewCenter.getX() + (xD << 9) / yD;
-		int screenYD = GameRasterizer.getInstance().viewCenter.getY() + (northEastHeight << 9) / yD;
-		int screenXC = GameRasterizer.getInstance().viewCenter.getX() + (xC << 9) / yC;
-		int screenYC = GameRasterizer.getInstance().viewCenter.getY() + (northHeight << 9) / yC;
+		int xA = vertices.cameraX[a];
+		int xB = vertices.cameraX[b];
+		int xD = vertices.cameraX[d];
+		int xC = vertices.cameraX[c];
+		int centreHeight = vertices.cameraY[a];
+		int eastHeight = vertices.cameraY[b];
+		int northEastHeight = vertices.cameraY[d];
+		int northHeight = vertices.cameraY[c];
+		int screenXA = vertices.screenX[a];
+		int screenYA = vertices.screenY[a];
+		int screenXB = vertices.screenX[b];
+		int screenYB = vertices.screenY[b];
+		int screenXD = vertices.screenX[d];
+		int screenYD = vertices.screenY[d];
+		int screenXC = vertices.screenX[c];
+		int screenYC = vertices.screenY[c];
 
 		if ((screenXD - screenXC) * (screenYB - screenYC) - (screenYD - screenYC) * (screenXB - screenXC) > 0) {
 			GameRasterizer.getInstance().restrictEdges = screenXD < 0 || screenXC < 0 || screenXB < 0 || screenXD > GameRasterizer.getInstance().getMaxRight() || screenXC > GameRasterizer.getInstance().getMaxRight()
@@ -3439,60 +3387,35 @@ public class SceneGraph {
 
 	public void renderPlainTile(SimpleTile tile, int plane, int ySin, int yCos, int xSin, int xCos, int tileX,
 	                            int tileY, boolean hiddenTile, boolean highlighted, boolean tileSelected, boolean tileBeingSelected, byte flag) {
-		int xC;
-		int xA = xC = (tileX << 7) - xCameraTile;
-		int yB;
-		int yA = yB = (tileY << 7) - yCameraTile;
-		int xD;
-		int xB = xD = xA + 128;
-		int yC;
-		int yD = yC = yA + 128;
-		int centreHeight = getMapRegion().tileHeights[plane][tileX][tileY] - zCameraTile;
-		int eastHeight = getMapRegion().tileHeights[plane][tileX + 1][tileY] - zCameraTile;
-		int northEastHeight = getMapRegion().tileHeights[plane][tileX + 1][tileY + 1] - zCameraTile;
-		int northHeight = getMapRegion().tileHeights[plane][tileX][tileY + 1] - zCameraTile;
-		int l4 = yA * xSin + xA * xCos >> 16;
-		yA = yA * xCos - xA * xSin >> 16;
-		xA = l4;
-		l4 = centreHeight * yCos - yA * ySin >> 16;
-		yA = centreHeight * ySin + yA * yCos >> 16;
-		centreHeight = l4;
-		if (yA < 50)
-			return;
-		l4 = yB * xSin + xB * xCos >> 16;
-		yB = yB * xCos - xB * xSin >> 16;
-		xB = l4;
-		l4 = eastHeight * yCos - yB * ySin >> 16;
-		yB = eastHeight * ySin + yB * yCos >> 16;
-		eastHeight = l4;
-		if (yB < 50)
-			return;
-		l4 = yD * xSin + xD * xCos >> 16;
-		yD = yD * xCos - xD * xSin >> 16;
-		xD = l4;
-		l4 = northEastHeight * yCos - yD * ySin >> 16;
-		yD = northEastHeight * ySin + yD * yCos >> 16;
-		northEastHeight = l4;
-		if (yD < 50)
-			return;
-		l4 = yC * xSin + xC * xCos >> 16;
-		yC = yC * xCos - xC * xSin >> 16;
-		xC = l4;
-		l4 = northHeight * yCos - yC * ySin >> 16;
-		yC = northHeight * ySin + yC * yCos >> 16;
-		northHeight = l4;
-
-		if (yC < 50)
+		int[][][] heights = getMapRegion().tileHeights;
+		TerrainVertexCache vertices = terrainVertices;
+		int a = vertices.vertex(heights, plane, tileX, tileY);
+		int b = vertices.vertex(heights, plane, tileX + 1, tileY);
+		int d = vertices.vertex(heights, plane, tileX + 1, tileY + 1);
+		int c = vertices.vertex(heights, plane, tileX, tileY + 1);
+		int yA = vertices.depth[a];
+		int yB = vertices.depth[b];
+		int yD = vertices.depth[d];
+		int yC = vertices.depth[c];
+		if (yA < 50 || yB < 50 || yD < 50 || yC < 50)
 			return;
 
-		int screenXA = GameRasterizer.getInstance().viewCenter.getX() + (xA << 9) / yA;
-		int screenYA = GameRasterizer.getInstance().viewCenter.getY() + (centreHeight << 9) / yA;
-		int screenXB = GameRasterizer.getInstance().viewCenter.getX() + (xB << 9) / yB;
-		int screenYB = GameRasterizer.getInstance().viewCenter.getY() + (eastHeight << 9) / yB;
-		int screenXD = GameRasterizer.getInstance().viewCenter.getX() + (xD << 9) / yD;
-		int screenYD = GameRasterizer.getInstance().viewCenter.getY() + (northEastHeight << 9) / yD;
-		int screenXC = GameRasterizer.getInstance().viewCenter.getX() + (xC << 9) / yC;
-		int screenYC = GameRasterizer.getInstance().viewCenter.getY() + (northHeight << 9) / yC;
+		int xA = vertices.cameraX[a];
+		int xB = vertices.cameraX[b];
+		int xD = vertices.cameraX[d];
+		int xC = vertices.cameraX[c];
+		int centreHeight = vertices.cameraY[a];
+		int eastHeight = vertices.cameraY[b];
+		int northEastHeight = vertices.cameraY[d];
+		int northHeight = vertices.cameraY[c];
+		int screenXA = vertices.screenX[a];
+		int screenYA = vertices.screenY[a];
+		int screenXB = vertices.screenX[b];
+		int screenYB = vertices.screenY[b];
+		int screenXD = vertices.screenX[d];
+		int screenYD = vertices.screenY[d];
+		int screenXC = vertices.screenX[c];
+		int screenYC = vertices.screenY[c];
 
 		if ((screenXD - screenXC) * (screenYB - screenYC) - (screenYD - screenYC) * (screenXB - screenXC) > 0) {
 			GameRasterizer.getInstance().restrictEdges = screenXD < 0 || screenXC < 0 || screenXB < 0 || screenXD > GameRasterizer.getInstance().getMaxRight() || screenXC > GameRasterizer.getInstance().getMaxRight()
@@ -3834,6 +3757,7 @@ public class SceneGraph {
 				}
 
 				activeTile.needsRendering = false;
+				tilesRendered++;
 				if (activeTile.tileBelow != null) {
 
 					SceneTile tileBelow = activeTile.tileBelow;
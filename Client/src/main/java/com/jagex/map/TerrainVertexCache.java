@@ -0,0 +1,92 @@
+package com.jagex.map;
+
+/**
+ * Camera space and screen positions of the terrain height grid. Every grid vertex is shared by up to four plain tiles,
+ * so each one is transformed and projected at most once per frame instead of once per tile corner.
+ */
+final class TerrainVertexCache {
+
+	int[] cameraX;
+	int[] cameraY;
+	int[] depth;
+	int[] screenX;
+	int[] screenY;
+
+	private int[] stamps;
+	private int stamp;
+	private int planes;
+	private int width;
+	private int length;
+
+	private int xCamera, yCamera, zCamera;
+	private int xSine, xCosine, ySine, yCosine;
+	private int viewX, viewY;
+
+	/**
+	 * Starts a new frame, discarding every position computed for the previous one.
+	 */
+	void begin(int[][][] heights, int xCamera, int yCamera, int zCamera, int xSine, int xCosine, int ySine, int yCosine,
+			int viewX, int viewY) {
+		int planes = heights.length;
+		int width = heights[0].length;
+		int length = heights[0][0].length;
+		if (stamps == null || planes != this.planes || width != this.width || length != this.length) {
+			int size = planes * width * length;
+			cameraX = new int[size];
+			cameraY = new int[size];
+			depth = new int[size];
+			screenX = new int[size];
+			screenY = new int[size];
+			stamps = new int[size];
+			stamp = 0;
+			this.planes = planes;
+			this.width = width;
+			this.length = length;
+		}
+
+		stamp++;
+		this.xCamera = xCamera;
+		this.yCamera = yCamera;
+		this.zCamera = zCamera;
+		this.xSine = xSine;
+		this.xCosine = xCosine;
+		this.ySine = ySine;
+		this.yCosine = yCosine;
+		this.viewX = viewX;
+		this.viewY = viewY;
+	}
+
+	/**
+	 * Transforms the grid vertex at the given position if it has not been already this frame. Screen positions are
+	 * only valid when the depth is at least 50, the near plane used by the tile renderers.
+	 *
+	 * @return The index of the vertex in the cache arrays.
+	 */
+	int vertex(int[][][] heights, int plane, int x, int y) {
+		int index = (plane * width + x) * length + y;
+		if (stamps[index] == stamp) {
+			return index;
+		}
+
+		int worldX = (x << 7) - xCamera;
+		int worldY = (y << 7) - yCamera;
+		int height = heights[plane][x][y] - zCamera;
+		int rotated = worldY * xSine + worldX * xCosine >> 16;
+		worldY = worldY * xCosine - worldX * xSine >> 16;
+		worldX = rotated;
+		rotated = height * yCosine - worldY * ySine >> 16;
+		worldY = height * ySine + worldY * yCosine >> 16;
+		height = rotated;
+
+		cameraX[index] = worldX;
+		cameraY[index] = height;
+		depth[index] = worldY;
+		if (worldY >= 50) {
+			screenX[index] = viewX + (worldX << 9) / worldY;
+			screenY[index] = viewY + (height << 9) / worldY;
+		}
+		stamps[index] = stamp;
+		return index;
+	}
+
+}
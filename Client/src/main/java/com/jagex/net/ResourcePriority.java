@@ -0,0 +1,28 @@
+package com.jagex.net;
+
+/**
+ * The order in which the {@link ResourceProvider} serves queued requests, most urgent first.
+ */
+public enum ResourcePriority {
+
+	/**
+	 * Map files, which every other resource of a chunk waits on.
+	 */
+	MAP,
+
+	/**
+	 * Resources of the chunk under the camera, or requested without a location.
+	 */
+	VISIBLE,
+
+	/**
+	 * Resources of the chunks next to the one under the camera.
+	 */
+	NEIGHBOUR,
+
+	/**
+	 * Resources of chunks further away, and prefetches.
+	 */
+	BACKGROUND
+
+}
@@ -1,30 +1,71 @@
 package com.jagex.net;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.jagex.Cache;
 import com.rspsi.cache.CacheFileType;
-import org.greenrobot.eventbus.EventBus;
+import lombok.extern.slf4j.Slf4j;
 
 import com.google.common.collect.Lists;
 
+@Slf4j
 public class ResourceProvider implements Runnable {
 
+	public static final int DEFAULT_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
 	private int[] frames;
 
 	private byte[] models;
 	private int[] musicPriorities;
-	private List<ResourceRequest> requests = Collections.synchronizedList(Lists.newArrayList());
+	private Map<Long, ResourceRequest> requests = new ConcurrentHashMap<>();
+	private BlockingQueue<ResourceRequest> queue = new PriorityBlockingQueue<>(64, Comparator.comparing(ResourceRequest::getPriority).thenComparingLong(ResourceRequest::getSequence));
+	private List<Thread> workers = Lists.newArrayList();
+	private AtomicLong sequence = new AtomicLong();
+	private ThreadLocal<int[]> origin = new ThreadLocal<>();
+	private volatile int focusX = -1, focusY = -1;
+	private Map<CacheFileType, List<Consumer<ResourceResponse>>> listeners = new ConcurrentHashMap<>();
 
 	private int[][] versions = new int[4][];
-	
+
 	private Cache cache;
-	
+
 	public ResourceProvider(Cache cache) {
 		this.cache = cache;
 	}
 
+	/**
+	 * Starts the worker threads that serve the requests, in addition to any already running.
+	 * @param count The amount of workers.
+	 */
+	public final synchronized void start(int count) {
+		for (int i = 0; i < count; i++) {
+			Thread worker = new Thread(this, "ResourceProvider-" + workers.size());
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Stops the worker threads. Requests still queued stay pending until workers are started again.
+	 */
+	public final synchronized void stop() {
+		workers.forEach(Thread::interrupt);
+		workers.clear();
+	}
+
 	public final int frameCount() {
 		return frames.length;
 	}
@@ -41,83 +82,197 @@ public class ResourceProvider implements Runnable {
 		return musicPriorities[file] == 1;
 	}
 
-	public final void requestMap(int file, int regionId) {
-		if(Lists.newArrayList(requests).stream().anyMatch(node -> node != null && node.getType() == CacheFileType.MAP && node.getFile() == file)) {
-			return;
+	/**
+	 * Adds a listener that receives every response of the argued type, after the future of its request.
+	 */
+	public final void addListener(CacheFileType type, Consumer<ResourceResponse> listener) {
+		listeners.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(listener);
+	}
+
+	/**
+	 * Adds a listener that receives every response.
+	 */
+	public final void addListener(Consumer<ResourceResponse> listener) {
+		for (CacheFileType type : CacheFileType.values()) {
+			addListener(type, listener);
+		}
+	}
+
+	public final void removeListener(CacheFileType type, Consumer<ResourceResponse> listener) {
+		List<Consumer<ResourceResponse>> typeListeners = listeners.get(type);
+		if (typeListeners != null) {
+			typeListeners.remove(listener);
+		}
+	}
+
+	public final CompletableFuture<ResourceResponse> requestMap(int file, int regionId) {
+		return submit(new MapResourceRequest(regionId, file));
+	}
+
+	public final CompletableFuture<ResourceResponse> requestFile(CacheFileType type, int file) {
+		return submit(new ResourceRequest(file, type));
+	}
+
+	/**
+	 * Requests a file that nothing is waiting on yet, so it is served after everything else.
+	 */
+	public final CompletableFuture<ResourceResponse> prefetchFile(CacheFileType type, int file) {
+		ResourceRequest request = new ResourceRequest(file, type);
+		request.setPrefetch(true);
+		return submit(request);
+	}
+
+	/**
+	 * Runs a task, tagging every request it makes on this thread with the argued scene tile, so they are served by the
+	 * distance of that tile from the camera.
+	 */
+	public final <T> T requestFrom(int x, int y, Supplier<T> task) {
+		int[] previous = origin.get();
+		origin.set(new int[] { x, y });
+		try {
+			return task.get();
+		} finally {
+			origin.set(previous);
+		}
+	}
+
+	/**
+	 * Queues a request, unless one for the same resource is still pending, in which case the caller shares its future.
+	 * @return The future completed with the response, or exceptionally if the resource could not be fetched.
+	 */
+	private CompletableFuture<ResourceResponse> submit(ResourceRequest request) {
+		int[] origin = this.origin.get();
+		if (origin != null) {
+			request.setOrigin(origin[0], origin[1]);
+		}
+		ResourceRequest pending = requests.putIfAbsent(key(request.getType(), request.getFile()), request);
+		if (pending != null) {
+			promote(pending, request);
+			return pending.getFuture();
 		}
-	
-		ResourceRequest node = new MapResourceRequest(regionId, file);
-		requests.add(node);
+		request.setSequence(sequence.getAndIncrement());
+		synchronized (queue) {
+			request.setPriority(priority(request));
+			queue.add(request);
+		}
+		return request.getFuture();
 	}
 
-	public final void requestFile(CacheFileType type, int file) {
-		if(Lists.newArrayList(requests).stream().anyMatch(node -> node != null && node.getType() == type && node.getFile() == file)) {
+	/**
+	 * Moves a queued request up to the priority of a repeat request for the same resource, if that is more urgent.
+	 */
+	private void promote(ResourceRequest pending, ResourceRequest repeat) {
+		ResourcePriority priority = priority(repeat);
+		if (pending.getPriority() == null || priority.compareTo(pending.getPriority()) >= 0) {
 			return;
 		}
-	
-		ResourceRequest node = new ResourceRequest(file, type);
-		requests.add(node);
+		synchronized (queue) {
+			if (queue.remove(pending)) {
+				pending.setOrigin(repeat.getOriginX(), repeat.getOriginY());
+				pending.setPrefetch(repeat.isPrefetch());
+				pending.setPriority(priority);
+				queue.add(pending);
+			}
+		}
 	}
-	
-	public final void handleRequests() {//TODO Add a thread for this
-		if(requests.isEmpty())
+
+	/**
+	 * Moves the camera focus to the argued scene tile. Once it enters another chunk, the queued requests are put in
+	 * order again.
+	 */
+	public final void setFocus(int x, int y) {
+		if (x >> 6 == focusX >> 6 && y >> 6 == focusY >> 6 && focusX != -1) {
 			return;
-		//System.out.println("Grabbing from cache " + (cache == null));
-		List<ResourceRequest> loopedResources = Lists.newArrayList(requests);
-		List<ResourceRequest> successfulRequests = Lists.newArrayList();
-		for(ResourceRequest request : loopedResources) {
-			
-			if(request == null) {
-				//System.out.println("NODE NULL");
-				continue;
+		}
+		synchronized (queue) {
+			focusX = x;
+			focusY = y;
+			List<ResourceRequest> queued = Lists.newArrayList();
+			queue.drainTo(queued);
+			for (ResourceRequest request : queued) {
+				request.setPriority(priority(request));
 			}
-			//System.out.println("Grabbing " + request.getType() + ":" + request.getFile());
-			try {
-				byte[] data;
-				if(request.getType() == CacheFileType.MAP) {
-					MapResourceRequest mapReq = (MapResourceRequest) request;
-					data = cache.readMap(request.getFile(), mapReq.getRegionId());
-				} else {
-					data = cache.readFile(request.getType(), request.getFile());
-				}
-				//System.out.println("data null ? " + (data == null));
-				if(data != null) {
-					successfulRequests.add(request);
-					ResourceResponse response = new ResourceResponse(request, data);
-					EventBus.getDefault().post(response);
-				} else {
-					throw new Exception("Fetch Error");
-				}
-			} catch(Exception ex) {
-				if(request.getAge() > 150000) {
-					requests.remove(request);
-					System.out.println("Failed to fetch resource " + request.getFile() + " from index " + request.getType());
+			queue.addAll(queued);
+		}
+	}
+
+	/**
+	 * Cancels the queued requests with the argued priority or a lower one. Requests already being read are not
+	 * cancelled. The futures of cancelled requests are cancelled too.
+	 * @return The amount of requests cancelled.
+	 */
+	public final int cancel(ResourcePriority lowest) {
+		List<ResourceRequest> cancelled = Lists.newArrayList();
+		synchronized (queue) {
+			queue.removeIf(request -> request.getPriority().compareTo(lowest) >= 0 && cancelled.add(request));
+		}
+		for (ResourceRequest request : cancelled) {
+			requests.remove(key(request.getType(), request.getFile()), request);
+			request.getFuture().cancel(false);
+		}
+		return cancelled.size();
+	}
+
+	private ResourcePriority priority(ResourceRequest request) {
+		if (request.getType() == CacheFileType.MAP) {
+			return ResourcePriority.MAP;
+		} else if (request.isPrefetch()) {
+			return ResourcePriority.BACKGROUND;
+		} else if (!request.hasOrigin() || focusX == -1) {
+			return ResourcePriority.VISIBLE;
+		}
+		int distance = Math.max(Math.abs((request.getOriginX() >> 6) - (focusX >> 6)), Math.abs((request.getOriginY() >> 6) - (focusY >> 6)));
+		return distance == 0 ? ResourcePriority.VISIBLE : distance == 1 ? ResourcePriority.NEIGHBOUR : ResourcePriority.BACKGROUND;
+	}
+
+	private static long key(CacheFileType type, int file) {
+		return (long) type.ordinal() << 32 | file & 0xffffffffL;
+	}
+
+	private void handle(ResourceRequest request) {
+		try {
+			byte[] data;
+			if(request.getType() == CacheFileType.MAP) {
+				MapResourceRequest mapReq = (MapResourceRequest) request;
+				data = cache.readMap(request.getFile(), mapReq.getRegionId());
+			} else {
+				data = cache.readFile(request.getType(), request.getFile());
+			}
+			if(data == null) {
+				throw new IOException("Resource " + request.getType() + ":" + request.getFile() + " does not exist.");
+			}
+			ResourceResponse response = new ResourceResponse(request, data);
+			response.decompress();//once, here, instead of on every subscriber's thread
+			requests.remove(key(request.getType(), request.getFile()), request);
+			request.getFuture().complete(response);
+			for (Consumer<ResourceResponse> listener : listeners.getOrDefault(request.getType(), Collections.emptyList())) {
+				try {
+					listener.accept(response);
+				} catch(Exception ex) {
+					log.error("Failed to deliver resource {} from index {}", request.getFile(), request.getType(), ex);
 				}
 			}
+		} catch(Exception ex) {
+			requests.remove(key(request.getType(), request.getFile()), request);
+			log.warn("Failed to fetch resource {} from index {}", request.getFile(), request.getType(), ex);
+			request.getFuture().completeExceptionally(ex);
 		}
-		requests.removeAll(successfulRequests);
-		
-		
 	}
 
 	public final int remaining() {
-		//synchronized (requests) {
-			return requests.size();
-		//}
+		return requests.size();
 	}
-	
+
 
 	@Override
 	public void run() {
-		while(!Thread.interrupted()) {
+		while(!Thread.currentThread().isInterrupted()) {
 			try {
-			handleRequests();
-				Thread.sleep(50);
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				handle(queue.take());
+			} catch (InterruptedException e) {
+				return;
 			}
 		}
 	}
 
-}
\ No newline at end of file
+}
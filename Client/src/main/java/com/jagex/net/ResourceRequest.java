@@ -5,6 +5,7 @@ import lombok.Getter;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
 
 @Getter
@@ -13,6 +14,11 @@ public class ResourceRequest {
 	private int file;
 	private CacheFileType type;
 	private long requestTime;
+	private CompletableFuture<ResourceResponse> future = new CompletableFuture<>();
+	private int originX = -1, originY = -1;
+	private boolean prefetch;
+	private volatile ResourcePriority priority;
+	private long sequence;
 	
 	public ResourceRequest(int file, CacheFileType type) {
 		this.file = file;
@@ -20,6 +26,27 @@ public class ResourceRequest {
 		this.requestTime = System.currentTimeMillis();
 	}
 
+	void setOrigin(int x, int y) {
+		this.originX = x;
+		this.originY = y;
+	}
+
+	void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	void setPriority(ResourcePriority priority) {
+		this.priority = priority;
+	}
+
+	void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public boolean hasOrigin() {
+		return originX != -1;
+	}
+
 	public long getAge() {
 		return System.currentTimeMillis() - requestTime;
 	}
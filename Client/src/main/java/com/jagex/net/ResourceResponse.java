@@ -2,12 +2,11 @@ package com.jagex.net;
 
 import org.displee.utilities.GZIPUtils;
 
-import java.io.IOException;
-
 public class ResourceResponse {
 	
 	private ResourceRequest request;
 	private byte[] data;
+	private volatile byte[] decompressed;
 	
 	public ResourceResponse(ResourceRequest request, byte[] data) {
 		super();
@@ -23,7 +22,31 @@ public class ResourceResponse {
 		return data;
 	}
 	
+	/**
+	 * Gets the data with the gzip compression removed, or the data itself if it is not gzipped. It is only
+	 * decompressed once, so every subscriber shares the same array and must not modify it.
+	 */
 	public byte[] decompress() {
+		byte[] decompressed = this.decompressed;
+		if (decompressed == null) {
+			this.decompressed = decompressed = unzip(data);
+		}
+		return decompressed;
+	}
+
+	private static byte[] unzip(byte[] data) {
+		if (data.length < 18 || (data[0] & 0xff) != 0x1f || (data[1] & 0xff) != 0x8b) {
+			return data;
+		}
+		if (data[3] == 0) {//no optional header fields, so the trailer's length can size the output
+			int length = (data[data.length - 4] & 0xff) | (data[data.length - 3] & 0xff) << 8 | (data[data.length - 2] & 0xff) << 16 | (data[data.length - 1] & 0xff) << 24;
+			if (length >= 0 && length / 1032 <= data.length) {
+				byte[] unzipped = new byte[length];
+				if (GZIPUtils.inflate(data, 0, data.length, unzipped, 0, length) == length) {
+					return unzipped;
+				}
+			}
+		}
 		byte[] unzipped = GZIPUtils.unzip(data);
 		return unzipped == null ? data : unzipped;
 	}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 import com.jagex.map.SceneTileData;
+import com.jagex.net.ResourceProvider;
 import com.jagex.util.BitFlag;
 import com.rspsi.datasets.ObjectDataset;
 import com.rspsi.misc.BrushType;
@@ -43,6 +44,8 @@ public class Options {
 	public static BooleanProperty showDebug = new SimpleBooleanProperty(false);
 
 	public static IntegerProperty currentHeight = new SimpleIntegerProperty(0);
+	public static BooleanProperty sharedCache = new SimpleBooleanProperty(true);
+	public static IntegerProperty resourceWorkers = new SimpleIntegerProperty(ResourceProvider.DEFAULT_WORKERS);
 	public static IntegerProperty tileHeightLevel = new SimpleIntegerProperty(50);
 	public static IntegerProperty brushSize = new SimpleIntegerProperty(1);
 	public static IntegerProperty objectSelectionType = new SimpleIntegerProperty(0);
@@ -71,6 +74,13 @@ public class Options {
 	public static BooleanProperty unsavedChanges = new SimpleBooleanProperty(false);
 	
 	public static IntegerProperty renderDistance = new SimpleIntegerProperty(30);
+	public static BooleanProperty singlePassRendering = new SimpleBooleanProperty(true);
+	public static BooleanProperty parallelRasterization = new SimpleBooleanProperty(false);
+	public static BooleanProperty depthBuffering = new SimpleBooleanProperty(false);
+	public static BooleanProperty onDemandRendering = new SimpleBooleanProperty(true);
+	public static BooleanProperty meshLevelOfDetail = new SimpleBooleanProperty(false);
+	public static BooleanProperty specializedScanlines = new SimpleBooleanProperty(false);
+	public static IntegerProperty rasterThreads = new SimpleIntegerProperty(Runtime.getRuntime().availableProcessors());
 	public static IntegerProperty mapRegionSize = new SimpleIntegerProperty(256);
 	
 
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import com.jagex.draw.raster.GameRasterizer;
+
+/**
+ * Compares the painter's algorithm face sorting against the depth buffered rasterizer on a synthetic scene of
+ * overlapping gouraud shaded triangles.
+ */
+public class RasterizerBenchmark {
+
+	private static final int WIDTH = 765, HEIGHT = 503;
+	private static final int TRIANGLES = 20000;
+	private static final int FRAMES = 200;
+
+	public static void main(String[] args) {
+		Random random = new Random(742);
+		int[][] triangles = new int[TRIANGLES][];
+		double area = 0;
+		for (int index = 0; index < TRIANGLES; index++) {
+			int x = random.nextInt(WIDTH), y = random.nextInt(HEIGHT), z = 50 + random.nextInt(3000);
+			int size = 10 + random.nextInt(60);
+			int[] triangle = new int[12];
+			for (int vertex = 0; vertex < 3; vertex++) {
+				triangle[vertex] = y + random.nextInt(size * 2) - size;
+				triangle[vertex + 3] = x + random.nextInt(size * 2) - size;
+				triangle[vertex + 6] = random.nextInt(0x10000);
+				triangle[vertex + 9] = z + random.nextInt(100);
+			}
+			triangles[index] = triangle;
+			area += Math.abs((triangle[4] - triangle[3]) * (triangle[2] - triangle[0])
+					- (triangle[5] - triangle[3]) * (triangle[1] - triangle[0])) / 2D;
+		}
+
+		GameRasterizer sorted = create();
+		GameRasterizer depth = create();
+		depth.setDepthBuffering(true);
+
+		for (int warmup = 0; warmup < 20; warmup++) {
+			drawSorted(sorted, triangles);
+			drawDepth(depth, triangles);
+		}
+
+		long sortedTime = 0, depthTime = 0;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			long start = System.nanoTime();
+			drawSorted(sorted, triangles);
+			sortedTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			drawDepth(depth, triangles);
+			depthTime += System.nanoTime() - start;
+		}
+
+		report("Sorted", sortedTime, area);
+		report("Depth buffered", depthTime, area);
+
+		int[] a = sorted.getRaster(), b = depth.getRaster();
+		int different = 0;
+		for (int index = 0; index < a.length; index++) {
+			if (a[index] != b[index]) {
+				different++;
+			}
+		}
+		System.out.printf("Differing pixels: %d / %d%n", different, a.length);
+	}
+
+	private static GameRasterizer create() {
+		GameRasterizer rasterizer = new GameRasterizer();
+		rasterizer.init(HEIGHT, WIDTH, new int[WIDTH * HEIGHT]);
+		rasterizer.useViewport();
+		rasterizer.setBrightness(0.8);
+		return rasterizer;
+	}
+
+	private static void drawSorted(GameRasterizer rasterizer, int[][] triangles) {
+		rasterizer.reset();
+		int[] counts = new int[3200];
+		int[][] buckets = new int[3200][];
+		for (int index = 0; index < triangles.length; index++) {
+			int[] triangle = triangles[index];
+			int bucket = (triangle[9] + triangle[10] + triangle[11]) / 3;
+			if (buckets[bucket] == null) {
+				buckets[bucket] = new int[64];
+			} else if (counts[bucket] == buckets[bucket].length) {
+				buckets[bucket] = Arrays.copyOf(buckets[bucket], counts[bucket] * 2);
+			}
+			buckets[bucket][counts[bucket]++] = index;
+		}
+
+		for (int bucket = buckets.length - 1; bucket >= 0; bucket--) {
+			for (int index = 0; index < counts[bucket]; index++) {
+				int[] t = triangles[buckets[bucket][index]];
+				rasterizer.restrictEdges = true;
+				rasterizer.drawShadedTriangle(t[0], t[1], t[2], t[3], t[4], t[5], t[6], t[7], t[8]);
+			}
+		}
+	}
+
+	private static void drawDepth(GameRasterizer rasterizer, int[][] triangles) {
+		rasterizer.reset();
+		for (int[] t : triangles) {
+			rasterizer.restrictEdges = true;
+			rasterizer.drawShadedTriangle(t[0], t[1], t[2], t[3], t[4], t[5], t[6], t[7], t[8], t[9], t[10], t[11]);
+		}
+	}
+
+	private static void report(String name, long nanos, double area) {
+		double frame = nanos / 1_000_000D / FRAMES;
+		System.out.printf("%s: %.2f ms/frame, %.1f Mpx/s submitted%n", name, frame, area / frame / 1000D);
+	}
+
+}
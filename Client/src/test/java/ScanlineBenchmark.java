@@ -0,0 +1,185 @@
+import java.lang.reflect.Constructor;
+import java.util.Random;
+
+import org.displee.cache.index.archive.Archive;
+
+import com.jagex.cache.def.TextureDef;
+import com.jagex.cache.loader.textures.TextureLoader;
+import com.jagex.draw.raster.GameRasterizer;
+import com.jagex.draw.textures.Texture;
+
+/**
+ * Times the generic scanline kernels of {@link GameRasterizer} against the specialised ones for each material case,
+ * and checks that both draw the same pixels.
+ */
+public class ScanlineBenchmark {
+
+	private static final int WIDTH = 765, HEIGHT = 503;
+	private static final int SPANS = 200000;
+	private static final int TILES = 20000;
+	private static final int FRAMES = 100;
+
+	/**
+	 * A texture with alpha, used by the floor kernel.
+	 */
+	private static final int[] TEXTURE = new int[0x10000];
+
+	private interface Frame {
+		void draw(GameRasterizer rasterizer);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(742);
+		for (int index = 0; index < TEXTURE.length; index++) {
+			int alpha = random.nextInt(3) == 0 ? 0 : random.nextBoolean() ? 0xff : random.nextInt(0x100);
+			TEXTURE[index] = alpha << 24 | random.nextInt(0x1000000) & (random.nextInt(8) == 0 ? 0 : 0xffffff);
+		}
+		installTexture();
+
+		int[][] spans = new int[SPANS][];
+		for (int index = 0; index < SPANS; index++) {
+			int start = random.nextInt(WIDTH + 40) - 20;
+			int shade = random.nextInt(0x10000 << 8);
+			spans[index] = new int[] { random.nextInt(HEIGHT), start, start + 1 + random.nextInt(120), random.nextInt(0x10000),
+					shade, shade + random.nextInt(0x2000 << 8) - (0x1000 << 8), random.nextInt(0x4000) };
+		}
+
+		int[][] tiles = new int[TILES][];
+		for (int index = 0; index < TILES; index++) {
+			int x = random.nextInt(4000) - 2000, height = 200 + random.nextInt(400), depth = 300 + random.nextInt(2500);
+			tiles[index] = new int[] { x, height, depth, random.nextInt(0xffff), random.nextInt(0xffff), random.nextInt(0xffff),
+					random.nextInt(0xffff) };
+		}
+
+		compare("Opaque flat", rasterizer -> flat(rasterizer, spans, 0));
+		compare("Translucent flat", rasterizer -> flat(rasterizer, spans, 128));
+		compare("Opaque gouraud", rasterizer -> gouraud(rasterizer, spans));
+		compare("Textured alpha floor", rasterizer -> floor(rasterizer, tiles));
+	}
+
+	private static void compare(String name, Frame frame) {
+		GameRasterizer generic = create(false);
+		GameRasterizer specialized = create(true);
+		for (int warmup = 0; warmup < 10; warmup++) {
+			frame.draw(generic);
+			frame.draw(specialized);
+		}
+
+		long genericTime = 0, specializedTime = 0;
+		for (int index = 0; index < FRAMES; index++) {
+			long start = System.nanoTime();
+			frame.draw(generic);
+			genericTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			frame.draw(specialized);
+			specializedTime += System.nanoTime() - start;
+		}
+
+		int[] a = generic.getRaster(), b = specialized.getRaster();
+		int different = 0;
+		for (int index = 0; index < a.length; index++) {
+			if (a[index] != b[index]) {
+				different++;
+			}
+		}
+		System.out.printf("%s: generic %.2f ms, specialised %.2f ms (%.2fx), differing pixels %d%n", name,
+				genericTime / 1_000_000D / FRAMES, specializedTime / 1_000_000D / FRAMES, genericTime / (double) specializedTime,
+				different);
+	}
+
+	private static GameRasterizer create(boolean specialized) {
+		GameRasterizer rasterizer = new GameRasterizer();
+		rasterizer.init(HEIGHT, WIDTH, new int[WIDTH * HEIGHT]);
+		rasterizer.useViewport();
+		rasterizer.setBrightness(0.8);
+		rasterizer.specializedScanlines = specialized;
+		return rasterizer;
+	}
+
+	private static void background(GameRasterizer rasterizer) {
+		int[] raster = rasterizer.getRaster();
+		for (int index = 0; index < raster.length; index++) {
+			raster[index] = index * 0x9e3779b1 & 0xffffff;
+		}
+	}
+
+	private static void flat(GameRasterizer rasterizer, int[][] spans, int alpha) {
+		background(rasterizer);
+		rasterizer.currentAlpha = alpha;
+		rasterizer.restrictEdges = true;
+		int[] raster = rasterizer.getRaster();
+		for (int[] span : spans) {
+			rasterizer.method377(raster, span[0] * WIDTH, span[3] * 0x101, 0, span[1], span[2]);
+		}
+		rasterizer.currentAlpha = 0;
+	}
+
+	private static void gouraud(GameRasterizer rasterizer, int[][] spans) {
+		background(rasterizer);
+		rasterizer.restrictEdges = true;
+		int[] raster = rasterizer.getRaster();
+		for (int[] span : spans) {
+			rasterizer.drawLine(raster, span[0] * WIDTH, 0, 0, span[1], span[2], span[4], span[5]);
+		}
+	}
+
+	private static void floor(GameRasterizer rasterizer, int[][] tiles) {
+		background(rasterizer);
+		rasterizer.restrictEdges = true;
+		int centreX = WIDTH / 2, centreY = HEIGHT / 2;
+		for (int[] tile : tiles) {
+			int x = tile[0], height = tile[1], depth = tile[2];
+			int xA = centreX + (x << 9) / depth, yA = centreY + (height << 9) / depth;
+			int xB = centreX + (x + 128 << 9) / depth, yB = yA;
+			int xC = centreX + (x << 9) / (depth + 128), yC = centreY + (height << 9) / (depth + 128);
+			rasterizer.render_texture_triangle(yA, yB, yC, xA, xB, xC, depth, depth, depth + 128, tile[3], tile[4], tile[5], x,
+					x + 128, x, height, height, height, depth, depth, depth + 128, 0, tile[6], true, true);
+		}
+	}
+
+	private static void installTexture() throws ReflectiveOperationException {
+		Constructor<TextureDef> constructor = TextureDef.class.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		TextureDef.textures = new TextureDef[] { constructor.newInstance() };
+
+		Texture texture = new Texture(128, 128) {
+			@Override
+			public boolean supportsAlpha() {
+				return true;
+			}
+		};
+		TextureLoader.instance = new TextureLoader() {
+			@Override
+			public Texture forId(int id) {
+				return texture;
+			}
+
+			@Override
+			public int count() {
+				return 1;
+			}
+
+			@Override
+			public void init(Archive archive) {
+
+			}
+
+			@Override
+			public int[] getPixels(int id) {
+				return TEXTURE;
+			}
+
+			@Override
+			public void setBrightness(double exponent) {
+
+			}
+
+			@Override
+			public boolean isTransparent(int id) {
+				return true;
+			}
+		};
+	}
+
+}
@@ -511,6 +511,17 @@ public class MainWindow extends Application {
 					controller.getFileMenu().getItems().add(controller.getFileMenu().getItems().size() - 2, changeXTEALoc);
 				}
 			}
+			if(clientInstance.getCache() != null && clientInstance.getCache().getIndexedFileSystem().getOverlay() != null) {
+				MenuItem mergeOverlay = new MenuItem("Merge changes into cache");
+				mergeOverlay.setOnAction(evt -> {
+					if(clientInstance.getCache().getIndexedFileSystem().mergeOverlay()) {
+						FXDialogs.showInformation(primaryStage, "Changes merged", "Your changes were written to the cache files.");
+					} else {
+						FXDialogs.showError(primaryStage, "Unable to merge changes", "Close every other editor that has this cache open and try again.");
+					}
+				});
+				controller.getFileMenu().getItems().add(controller.getFileMenu().getItems().size() - 2, mergeOverlay);
+			}
 			primaryStage.addEventHandler(KeyEvent.ANY, gameKeyListener);
 			primaryStage.focusedProperty().addListener((observable, oldValue, newValue) -> {
 				if(!newValue){
@@ -1,7 +1,6 @@
 package com.rspsi.dialogs;
 
 import com.google.common.primitives.Ints;
-import com.jagex.Client;
 import com.jfoenix.controls.JFXSlider;
 import com.rspsi.options.Options;
 import com.rspsi.resources.ResourceLoader;
@@ -55,9 +54,6 @@ public class RenderDistanceDialog extends Application {
 			primaryStage.hide();
 			Options.renderDistance.set((int) renderSlider.getValue());
 			Settings.putSetting("renderDistance", Options.renderDistance.get());
-			if(Client.getSingleton().sceneGraph != null){
-				Client.getSingleton().sceneGraph.setRenderDistance();
-			}
 			okClicked = true;
 		});
 		cancelButton.setOnAction(evt -> {
@@ -33,6 +33,7 @@ public class GameKeyListener implements EventHandler<InputEvent> {
 
 	@Override
 	public void handle(InputEvent event) {
+		client.requestRedraw();
 		// System.out.println(event.getEventType().getName());
 		if (event.getEventType() == KeyEvent.KEY_PRESSED || event.getEventType() == KeyEvent.KEY_RELEASED) {
 			KeyEvent keyEvent = (KeyEvent) event;
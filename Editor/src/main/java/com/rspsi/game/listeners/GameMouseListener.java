@@ -19,6 +19,7 @@ public class GameMouseListener implements EventHandler<InputEvent> {
 
 	@Override
 	public void handle(InputEvent event) {
+		client.requestRedraw();
 		if(event instanceof ScrollEvent) {
 			ScrollEvent scrollEvent = (ScrollEvent) event;
 				if(scrollEvent.getEventType() == ScrollEvent.SCROLL) {
@@ -15,9 +15,6 @@ import com.jagex.net.ResourceResponse;
 
 import com.rspsi.cache.CacheFileType;
 import net.coobird.thumbnailator.Thumbnails;
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 
 public class MapTile {
 
@@ -35,7 +32,6 @@ public class MapTile {
 		private RegionView view;
 
 
-		@Subscribe(threadMode = ThreadMode.ASYNC)
 		public void onResourceResponse(ResourceResponse response) {
 			if(response.getRequest().getType() == CacheFileType.MAP) {
 				int fileId = response.getRequest().getFile();
@@ -55,7 +51,6 @@ public class MapTile {
 		
 		
 		public void init() {
-			EventBus.getDefault().register(this);
 			sceneGraph = new SceneGraph(64, 64, 4);
 			mapRegion = new MapRegion(sceneGraph, 64, 64);
 			
@@ -135,7 +130,7 @@ public class MapTile {
 		
 
 			System.out.println("Requested " + landscapeId);
-			Client.getSingleton().getProvider().requestMap(landscapeId, hash);
+			Client.getSingleton().getProvider().requestMap(landscapeId, hash).thenAccept(this::onResourceResponse);
 
 			loaded = true;
 			return false;
@@ -16,14 +16,9 @@ import javax.swing.JScrollPane;
 import javax.swing.border.EmptyBorder;
 
 import com.rspsi.MainWindow;
-import com.rspsi.cache.CacheFileType;
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 
 import com.google.common.io.Files;
 import com.jagex.cache.loader.map.MapIndexLoader;
-import com.jagex.net.ResourceResponse;
 import com.rspsi.util.ChangeListenerUtil;
 import com.rspsi.util.FXDialogs;
 import com.rspsi.util.FilterMode;
@@ -51,19 +46,6 @@ public class MapView extends JFrame {
 	public static IntegerProperty heightLevel = new SimpleIntegerProperty(0);
 
 
-	@Subscribe(threadMode = ThreadMode.ASYNC)
-	public void onResourceResponse(ResourceResponse response) {
-		if(response.getRequest().getType() == CacheFileType.MAP) {
-			for(Component component : jPanel.getComponents()) {
-				if(component instanceof RegionView) {
-					RegionView view = (RegionView) component;
-					view.deliverResource(response);
-
-				}
-			}
-		}
-	}
-
 	public void invalidateChildren() {
 		for(Component component : jPanel.getComponents()) {
 			if(component instanceof RegionView) {
@@ -122,7 +104,6 @@ public class MapView extends JFrame {
 
 	public void initTiles() {
 
-		EventBus.getDefault().register(this);
 		RegionViewMouseListener listener = new RegionViewMouseListener();
 		System.out.println("INIT TILES 1");
 
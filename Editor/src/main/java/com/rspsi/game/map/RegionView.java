@@ -9,7 +9,6 @@ import java.util.Optional;
 
 import javax.swing.JComponent;
 
-import com.jagex.net.ResourceResponse;
 import com.jagex.util.TextRenderUtils;
 
 public class RegionView extends JComponent {
@@ -141,12 +140,6 @@ public class RegionView extends JComponent {
 
 	}
 
-	public void deliverResource(ResourceResponse response) {
-		if(region != null && region.landscapeId == response.getRequest().getFile()) {
-			region.onResourceResponse(response);
-		}
-	}
-
 	public int getRegionX() {
 		return regionX;
 	}
@@ -8,18 +8,31 @@ import org.displee.progress.ProgressListener;
 import org.displee.utilities.Compression;
 import org.displee.utilities.Compression.CompressionType;
 import org.displee.utilities.Constants;
+import org.displee.utilities.Journal;
+import org.displee.utilities.MappedFile;
+import org.displee.utilities.SharedFiles;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.google.common.collect.Sets;
 
@@ -29,7 +42,28 @@ import com.google.common.collect.Sets;
  */
 public class CacheLibrary {
 
-	private static final HashSet<StandardOpenOption> OPEN_OPTIONS = Sets.newHashSet(StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+	private static final HashSet<StandardOpenOption> OPEN_OPTIONS = Sets.newHashSet(StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+	/**
+	 * The amount of batched bytes after which an open transaction is committed early.
+	 */
+	private static final long GROUP_COMMIT_LENGTH = 64L << 20;
+
+	/**
+	 * The amount of locks the archive sectors are spread over, a power of two.
+	 */
+	private static final int SECTOR_LOCKS = 64;
+
+	/**
+	 * The locks guarding the archive sectors.
+	 */
+	private final ReadWriteLock[] sectorLocks = new ReadWriteLock[SECTOR_LOCKS];
+
+	/**
+	 * The monitor held by writers of the cache files, so only one of them writes at a time.
+	 */
+	private final Object writeMonitor = new Object();
+
 	/**
 	 * An array of indices of this cache.
 	 */
@@ -40,6 +74,11 @@ public class CacheLibrary {
 	 */
 	private FileChannel mainFile;
 
+	/**
+	 * The memory mapped view of the main file.
+	 */
+	private MappedFile mainStore;
+
 	/**
 	 * The checksum table.
 	 */
@@ -60,6 +99,36 @@ public class CacheLibrary {
 	 */
 	private boolean closed;
 
+	/**
+	 * The depth of the open transactions.
+	 */
+	private int transactions;
+
+	/**
+	 * The read-only files shared with the other libraries of this process, in shared mode.
+	 */
+	private SharedFiles shared;
+
+	/**
+	 * The channel of the lock file of the cache directory, which this library holds exclusively outside of shared mode.
+	 */
+	private FileChannel cacheLock;
+
+	/**
+	 * The file holding the private writes of this library, in shared mode.
+	 */
+	private final File overlay;
+
+	/**
+	 * The channel of the lock file of the overlay, in shared mode.
+	 */
+	private FileChannel overlayLock;
+
+	/**
+	 * The runs of the overlay that have not been written to their file yet, by the name of the file.
+	 */
+	private Map<String, SortedMap<Long, byte[]>> overlayRuns;
+
 	/**
 	 * Constructs a new {@code CacheLibrary} {@code Object}.
 	 * @param path The path to the cache files.
@@ -96,6 +165,31 @@ public class CacheLibrary {
 	 * @throws IOException If it failed to read the cache files.
 	 */
 	public CacheLibrary(String path, CacheLibraryMode mode, ProgressListener listener) throws IOException {
+		this(path, mode, null, listener);
+	}
+
+	/**
+	 * Constructs a new {@code CacheLibrary} {@code Object} in {@link CacheLibraryMode#SHARED} mode.
+	 * @param path The path to the cache files.
+	 * @param overlay The file holding the private writes of this library, or {@code null} for the default overlay
+	 * of the current user in the cache directory.
+	 * @param listener The progress listener.
+	 * @throws IOException If it failed to read the cache files, or if the overlay is used by another library.
+	 */
+	public CacheLibrary(String path, File overlay, ProgressListener listener) throws IOException {
+		this(path, CacheLibraryMode.SHARED, overlay, listener);
+	}
+
+	/**
+	 * Constructs a new {@code CacheLibrary} {@code Object}.
+	 * @param path The path to the cache files.
+	 * @param mode The cache library mode.
+	 * @param overlay The overlay file, in shared mode.
+	 * @param listener The progress listener.
+	 * @throws IOException If it failed to read the cache files, or if the cache is opened by another library that
+	 * writes to it or shares it.
+	 */
+	private CacheLibrary(String path, CacheLibraryMode mode, File overlay, ProgressListener listener) throws IOException {
 		if (path == null) {
 			throw new FileNotFoundException("The path to the cache is null.");
 		}
@@ -104,12 +198,138 @@ public class CacheLibrary {
 		}
 		this.path = path;
 		this.mode = mode;
-		final File file = new File(path + "main_file_cache.dat");
-		if (file.exists() && file.length() != 0) {
-			load317(listener);
-			return;
+		this.overlay = mode != CacheLibraryMode.SHARED ? null : overlay != null ? overlay : getDefaultOverlay(path);
+		for (int i = 0; i < sectorLocks.length; i++) {
+			sectorLocks[i] = new ReentrantReadWriteLock();
+		}
+		if (this.overlay != null) {
+			share();
+		} else {
+			lock();
+		}
+		try {
+			final File file = new File(path + "main_file_cache.dat");
+			if (file.exists() && file.length() != 0) {
+				load317(listener);
+			} else {
+				load(listener);
+			}
+		} catch (IOException | RuntimeException e) {
+			if (shared != null) {
+				release();
+			} else {
+				cacheLock.close();
+			}
+			throw e;
+		}
+		if (shared != null) {
+			overlayRuns = null;
+		}
+	}
+
+	/**
+	 * Lock the cache directory exclusively, so no other library writes to the files or shares them while this library
+	 * writes to them.
+	 * @throws IOException If it failed to open the lock file.
+	 * @throws CacheLockedException If another library, in this process or another, has the cache open.
+	 */
+	private void lock() throws IOException {
+		cacheLock = FileChannel.open(new File(path, SharedFiles.LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (cacheLock.tryLock() == null) {
+				throw new OverlappingFileLockException();
+			}
+		} catch (OverlappingFileLockException e) {
+			cacheLock.close();
+			throw new CacheLockedException("The cache[path=" + path + "] is opened by another library.");
+		} catch (IOException e) {
+			cacheLock.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the default overlay of the current user for a cache directory. It lies in the directory, unless the directory
+	 * can not be written to, such as a read-only checkout, in which case it lies in the home directory of the user.
+	 * @param path The path to the cache files.
+	 * @return The overlay file.
+	 * @throws IOException If it failed to resolve the directory.
+	 */
+	private static File getDefaultOverlay(String path) throws IOException {
+		final String name = "main_file_cache." + System.getProperty("user.name");
+		final File directory = new File(path);
+		if (Files.isWritable(directory.toPath())) {
+			return new File(directory, name + ".overlay");
+		}
+		return new File(System.getProperty("user.home"), name + "." + Integer.toHexString(directory.getCanonicalPath().hashCode()) + ".overlay");
+	}
+
+	/**
+	 * Lock the overlay of this library and acquire the shared files of the cache directory.
+	 * @throws IOException If the overlay is used by another library, or if it failed to read it.
+	 */
+	private void share() throws IOException {
+		overlayLock = FileChannel.open(new File(overlay.getPath() + ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			if (overlayLock.tryLock() == null) {
+				throw new OverlappingFileLockException();
+			}
+		} catch (OverlappingFileLockException e) {
+			overlayLock.close();
+			throw new IOException("The overlay[file=" + overlay + "] is used by another library.");
+		}
+		try {
+			overlayRuns = Journal.read(overlay);
+			shared = SharedFiles.acquire(new File(path));
+		} catch (IOException e) {
+			overlayLock.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Release the shared files and the overlay of this library.
+	 * @throws IOException If it failed to close the files.
+	 */
+	private void release() throws IOException {
+		try {
+			shared.release();
+		} finally {
+			overlayLock.close();
+		}
+	}
+
+	/**
+	 * Open a cache file for this library.
+	 * @param file The file.
+	 * @return The channel of the file, which is read-only and shared in shared mode.
+	 * @throws IOException If it failed to open the file.
+	 */
+	private FileChannel open(File file) throws IOException {
+		return shared == null ? FileChannel.open(file.toPath(), OPEN_OPTIONS) : shared.open(file.getName());
+	}
+
+	/**
+	 * Create the memory mapped view of a cache file. In shared mode this is a private overlay of the shared file,
+	 * holding the writes of the overlay file.
+	 * @param name The name of the file in the cache directory.
+	 * @param channel The channel of the file.
+	 * @return The view.
+	 * @throws IOException If it failed to map the file.
+	 */
+	public MappedFile createStore(String name, FileChannel channel) throws IOException {
+		if (shared == null) {
+			return new MappedFile(channel);
+		}
+		final MappedFile store = shared.overlay(name);
+		final SortedMap<Long, byte[]> runs = overlayRuns == null ? null : overlayRuns.remove(name);
+		if (runs != null) {
+			store.beginBatch();
+			for (Map.Entry<Long, byte[]> run : runs.entrySet()) {
+				store.write(run.getKey(), run.getValue(), 0, run.getValue().length);
+			}
 		}
-		load(listener);
+		return store;
 	}
 
 	/**
@@ -152,9 +372,13 @@ public class CacheLibrary {
 	 * @throws IOException If it failed to read the cache files.
 	 */
 	private void load(ProgressListener listener) throws IOException {
+		if (shared == null) {
+			Journal.recover(new File(path));
+		}
 		final File main = new File(path + "main_file_cache.dat2");
 		if (main.exists()) {
-			mainFile = FileChannel.open(main.toPath(), OPEN_OPTIONS);
+			mainFile = open(main);
+			mainStore = createStore(main.getName(), mainFile);
 		} else {
 			if (listener != null) {
 				listener.notify(-1, "Error, main file could not be found");
@@ -168,7 +392,7 @@ public class CacheLibrary {
 			}
 			throw new FileNotFoundException("File[path=" + index255.getAbsolutePath() + "] could not be found.");
 		}
-		checksumTable = new ChecksumTable(this, 255, FileChannel.open(index255.toPath(), OPEN_OPTIONS));
+		checksumTable = new ChecksumTable(this, 255, open(index255));
 		indices = new Index[(int) checksumTable.getRandomAccessFile().size() / Constants.INDEX_SIZE];
 		if (listener != null) {
 			listener.notify(0.0, "Reading indices...");
@@ -183,7 +407,7 @@ public class CacheLibrary {
 				continue;
 			}
 			try {
-				indices[i] = new Index(this, i, FileChannel.open(file.toPath(), OPEN_OPTIONS));
+				indices[i] = new Index(this, i, open(file));
 				if (listener != null) {
 					listener.notify(progress, "Loaded index " + i + " ...");
 				}
@@ -195,7 +419,6 @@ public class CacheLibrary {
 				e.printStackTrace();
 			}
 		}
-		checksumTable.write(new OutputStream(indices.length * Constants.ARCHIVE_HEADER_SIZE));
 	}
 
 	/**
@@ -204,9 +427,13 @@ public class CacheLibrary {
 	 * @throws IOException If it failed to read the cache files.
 	 */
 	private void load317(ProgressListener listener) throws IOException {
+		if (shared == null) {
+			Journal.recover(new File(path));
+		}
 		final File main = new File(path + "main_file_cache.dat");
 		if (main.exists()) {
-			mainFile = FileChannel.open(main.toPath(), OPEN_OPTIONS);
+			mainFile = open(main);
+			mainStore = createStore(main.getName(), mainFile);
 		} else {
 			if (listener != null) {
 				listener.notify(-1, "Error, main file could not be found");
@@ -218,7 +445,7 @@ public class CacheLibrary {
 			if (!list) {
 				return false;
 			}
-			try(FileChannel raf = FileChannel.open(new File(dir.getPath() + "/" + name).toPath(), OPEN_OPTIONS)) {
+			try(FileChannel raf = FileChannel.open(new File(dir.getPath() + "/" + name).toPath(), StandardOpenOption.READ)) {
 				return raf.size() != 0;
 			} catch(Exception e) {
 				return false;
@@ -241,7 +468,7 @@ public class CacheLibrary {
 				continue;
 			}
 			try {
-				indices[i] = new Index317(this, i, FileChannel.open(file.toPath(), OPEN_OPTIONS));
+				indices[i] = new Index317(this, i, open(file));
 				if (listener != null) {
 					listener.notify(progress, "Loaded index " + i + " ...");
 				}
@@ -265,6 +492,9 @@ public class CacheLibrary {
 			if (is317()) {
 				throw new UnsupportedOperationException("317 not supported to add new indices yet.");
 			}
+			if (shared != null) {
+				throw new UnsupportedOperationException("Indices can not be added in shared mode.");
+			}
 			final OutputStream outputStream = new OutputStream(4);
 			outputStream.writeByte(5);
 			outputStream.writeByte((named ? 0x1 : 0x0) | (whirlpool ? 0x2 : 0x0));
@@ -294,6 +524,9 @@ public class CacheLibrary {
 			if (is317()) {
 				throw new UnsupportedOperationException("317 not supported to remove indices yet.");
 			}
+			if (shared != null) {
+				throw new UnsupportedOperationException("Indices can not be removed in shared mode.");
+			}
 			final int id = indices.length - 1;
 			indices[id].getRandomAccessFile().close();
 			final File file = new File(path, "main_file_cache.idx" + id);
@@ -301,7 +534,7 @@ public class CacheLibrary {
 				throw new RuntimeException("Failed to remove the random access file of the argued index[id=" + id + ", file exists=" + file.exists() + "]");
 			}
 			//MappedByteBuffer trimmedFile = checksumTable.getRandomAccessFile().map(MapMode.READ_ONLY, 0, id * Constants.INDEX_SIZE);
-			checksumTable.getRandomAccessFile().truncate(id * Constants.INDEX_SIZE);
+			checksumTable.getStore().truncate(id * Constants.INDEX_SIZE);
 			indices = Arrays.copyOfRange(indices, 0, indices.length - 1);
 		} catch(Exception exception) {
 			exception.printStackTrace();
@@ -316,6 +549,15 @@ public class CacheLibrary {
 			if (closed) {
 				return;
 			}
+			if (transactions > 0) {
+				transactions = 1;
+				commitTransaction();
+			}
+			closed = true;
+			if (shared != null) {
+				release();
+				return;
+			}
 			mainFile.close();
 			if (checksumTable != null) {
 				checksumTable.getRandomAccessFile().close();
@@ -325,12 +567,230 @@ public class CacheLibrary {
 					index.getRandomAccessFile().close();
 				}
 			}
-			closed = true;
+			cacheLock.close();
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Compact the main file. Every archive of every index is copied, as one contiguous chain of sectors, into a fresh
+	 * file that then replaces the main file, leaving out the sectors no archive points to anymore. The idx files are
+	 * pointed at the new chains in the same journal commit that replaces the main file.
+	 * @param listener The progress listener.
+	 * @return The amount of bytes reclaimed, or {@code -1} if it failed.
+	 */
+	public long compact(ProgressListener listener) {
+		synchronized (writeMonitor) {
+			if (transactions > 0) {
+				throw new IllegalStateException("The cache can not be compacted while a transaction is open.");
+			}
+			if (shared != null) {
+				throw new UnsupportedOperationException("The cache can not be compacted in shared mode.");
+			}
+			for (ReadWriteLock lock : sectorLocks) {
+				lock.writeLock().lock();
+			}
+			final String name = is317() ? "main_file_cache.dat" : "main_file_cache.dat2";
+			final File replacement = new File(path, name + Journal.REPLACEMENT_SUFFIX);
+			final Map<String, MappedFile> stores = getStores();
+			stores.remove(name);
+			try {
+				final long length = mainStore.size();
+				final Map<String, Index> tables = new LinkedHashMap<>();
+				if (checksumTable != null && checksumTable.getStore() != null) {
+					tables.put("main_file_cache.idx255", checksumTable);
+				}
+				for (Index index : indices) {
+					if (index != null && index.getStore() != null) {
+						tables.put("main_file_cache.idx" + index.getId(), index);
+					}
+				}
+				final Map<String, byte[]> pointers = new LinkedHashMap<>();
+				try (FileChannel channel = FileChannel.open(replacement.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+					final BufferedOutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 20);
+					output.write(new byte[Constants.ARCHIVE_SIZE]);
+					int position = 1;
+					int count = 0;
+					for (Map.Entry<String, Index> table : tables.entrySet()) {
+						if (listener != null) {
+							listener.notify(count++ * 90.0 / tables.size(), "Compacting index " + table.getValue().getId() + "...");
+						}
+						final byte[] tablePointers = new byte[(int) table.getValue().getStore().size()];
+						position = table.getValue().compact(output, position, tablePointers);
+						pointers.put(table.getKey(), tablePointers);
+					}
+					output.flush();
+					channel.force(true);
+				}
+				if (listener != null) {
+					listener.notify(90, "Replacing the main file...");
+				}
+				for (Map.Entry<String, byte[]> table : pointers.entrySet()) {
+					final MappedFile store = stores.get(table.getKey());
+					store.beginBatch();
+					store.write(0, table.getValue(), 0, table.getValue().length);
+				}
+				mainStore.unmap();
+				mainFile.close();
+				try {
+					Journal.commit(new File(path), stores, Collections.singletonList(name));
+				} finally {
+					mainFile = FileChannel.open(new File(path, name).toPath(), OPEN_OPTIONS);
+					mainStore = new MappedFile(mainFile);
+				}
+				final long reclaimed = length - mainStore.size();
+				if (listener != null) {
+					listener.notify(100, "Reclaimed " + reclaimed + " bytes.");
+				}
+				return reclaimed;
+			} catch (IOException exception) {
+				exception.printStackTrace();
+				if (!new File(path, Journal.FILE_NAME).exists()) {
+					replacement.delete();
+				}
+				return -1;
+			} finally {
+				for (MappedFile store : stores.values()) {
+					store.endBatch();
+				}
+				for (ReadWriteLock lock : sectorLocks) {
+					lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Open a transaction. Until the outermost transaction is committed, all writes to the cache files are kept in
+	 * memory, and are then written to the files in large runs and forced to the disk once, through the {@link Journal}.
+	 * Transactions nest, and {@link Index#update()} and {@link Index#writeArchiveSector(int, byte[])} open their own.
+	 */
+	public void beginTransaction() {
+		synchronized (writeMonitor) {
+			if (transactions++ == 0) {
+				for (MappedFile store : getStores().values()) {
+					store.beginBatch();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Commit a transaction. Committing the outermost transaction writes the batched data to the files; an inner
+	 * transaction only writes it if the batch has grown past {@link #GROUP_COMMIT_LENGTH}. In shared mode, the
+	 * outermost transaction saves all writes to the overlay file instead.
+	 * @return If the batched data was committed with success, or did not need to be committed yet.
+	 */
+	public boolean commitTransaction() {
+		synchronized (writeMonitor) {
+			if (transactions <= 0) {
+				return true;
+			}
+			final boolean outermost = --transactions == 0;
+			final Map<String, MappedFile> stores = getStores();
+			if (shared != null) {
+				try {
+					if (outermost) {
+						Journal.save(overlay, stores);
+					}
+					return true;
+				} catch (IOException exception) {
+					exception.printStackTrace();
+					return false;
+				}
+			}
+			try {
+				if (outermost || stores.values().stream().mapToLong(MappedFile::getBatchedLength).sum() >= GROUP_COMMIT_LENGTH) {
+					Journal.commit(new File(path), stores);
+				}
+				return true;
+			} catch (IOException exception) {
+				exception.printStackTrace();
+				return false;
+			} finally {
+				if (outermost) {
+					for (MappedFile store : stores.values()) {
+						store.endBatch();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merge the overlay of this library into the cache files, and delete it. This only succeeds while no other
+	 * library, in this or another process, has the cache open.
+	 * @return If the overlay was merged.
+	 */
+	public boolean mergeOverlay() {
+		synchronized (writeMonitor) {
+			if (shared == null) {
+				throw new IllegalStateException("Only a library in shared mode has an overlay.");
+			}
+			if (transactions > 0) {
+				throw new IllegalStateException("The overlay can not be merged while a transaction is open.");
+			}
+			for (ReadWriteLock lock : sectorLocks) {
+				lock.writeLock().lock();
+			}
+			try {
+				final Map<String, MappedFile> stores = getStores();
+				if (!shared.merge(stores)) {
+					return false;
+				}
+				for (MappedFile store : stores.values()) {
+					store.endBatch();
+				}
+				Files.deleteIfExists(overlay.toPath());
+				return true;
+			} catch (IOException exception) {
+				exception.printStackTrace();
+				return false;
+			} finally {
+				for (ReadWriteLock lock : sectorLocks) {
+					lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the overlay file of this library.
+	 * @return {@code overlay}, or {@code null} if this library is not in shared mode.
+	 */
+	public File getOverlay() {
+		return overlay;
+	}
+
+	/**
+	 * Check if a transaction is open.
+	 * @return If writes are being batched.
+	 */
+	public boolean isTransactionOpen() {
+		return transactions > 0;
+	}
+
+	/**
+	 * Get the files of this cache, by their name in the cache directory.
+	 * @return The files.
+	 */
+	private Map<String, MappedFile> getStores() {
+		final Map<String, MappedFile> stores = new LinkedHashMap<>();
+		stores.put(is317() ? "main_file_cache.dat" : "main_file_cache.dat2", mainStore);
+		if (checksumTable != null && checksumTable.getStore() != null) {
+			stores.put("main_file_cache.idx255", checksumTable.getStore());
+		}
+		if (indices != null) {
+			for (Index index : indices) {
+				if (index != null && index.getStore() != null) {
+					stores.put("main_file_cache.idx" + index.getId(), index.getStore());
+				}
+			}
+		}
+		return stores;
+	}
+
 	/**
 	 * Get a single index from the cache.
 	 * @param id The id of the index to get.
@@ -372,7 +832,34 @@ public class CacheLibrary {
 	}
 	
 	public long getMainFileLength() throws IOException {
-		return mainFile.size();
+		return mainStore.size();
+	}
+
+	/**
+	 * Get the monitor held by writers of the cache files.
+	 * @return {@code writeMonitor}
+	 */
+	public Object getWriteMonitor() {
+		return writeMonitor;
+	}
+
+	/**
+	 * Get the lock guarding the sectors of an archive. Readers of archives on different locks never wait on each
+	 * other, and a writer only blocks the readers sharing its lock.
+	 * @param index The id of the index.
+	 * @param archive The id of the archive.
+	 * @return The lock.
+	 */
+	public ReadWriteLock getSectorLock(int index, int archive) {
+		return sectorLocks[(index * 31 + archive) & (SECTOR_LOCKS - 1)];
+	}
+
+	/**
+	 * Get the memory mapped view of the main file.
+	 * @return {@code mainStore}
+	 */
+	public MappedFile getMainStore() {
+		return mainStore;
 	}
 
 	
@@ -25,6 +25,14 @@ public enum CacheLibraryMode {
 	 * reading the same file again from the cache. This mode is recommended when using this cache library
 	 * in a tool application.
 	 */
-    UN_CACHED
+    UN_CACHED,
+
+	/**
+	 * The shared mode.
+	 * In this mode, the cache files are opened read-only and mapped once per process, and every library keeps its
+	 * writes in a private overlay file, so several editors can open the same cache at once. The overlay is written
+	 * back to the cache files with {@link CacheLibrary#mergeOverlay()}. Data is cached like in {@link #CACHED}.
+	 */
+    SHARED
 
 }
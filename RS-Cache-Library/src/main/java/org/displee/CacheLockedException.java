@@ -0,0 +1,20 @@
+package org.displee;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when a cache can not be opened because another library, in this process or another, has it open
+ * in a mode that excludes the requested one: a library that writes to the cache files excludes every other library,
+ * and libraries in {@link CacheLibraryMode#SHARED} mode exclude the ones that write.
+ */
+public class CacheLockedException extends IOException {
+
+	/**
+	 * Constructs a new {@code CacheLockedException} {@code Object}.
+	 * @param message The detail message.
+	 */
+	public CacheLockedException(String message) {
+		super(message);
+	}
+
+}
@@ -4,6 +4,7 @@ import org.displee.CacheLibrary;
 import org.displee.cache.Container;
 import org.displee.io.impl.InputStream;
 import org.displee.io.impl.OutputStream;
+import org.displee.utilities.Constants;
 
 import java.nio.channels.FileChannel;
 
@@ -52,10 +53,13 @@ public class ChecksumTable extends Index implements Container {
 	}
 
 	/**
-	 * Get the checksum table data.
+	 * Get the checksum table data, writing it the first time.
 	 * @return {@code data}
 	 */
 	public byte[] getData() {
+		if (data == null) {
+			write(new OutputStream(super.origin.getIndices().length * Constants.ARCHIVE_HEADER_SIZE));
+		}
 		return data;
 	}
 
@@ -10,13 +10,26 @@ import org.displee.progress.ProgressListener;
 import org.displee.utilities.Compression;
 import org.displee.utilities.Compression.CompressionType;
 import org.displee.utilities.Constants;
-import org.displee.utilities.FileChannelUtil;
 import org.displee.utilities.HashGenerator;
+import org.displee.utilities.MappedFile;
 import org.displee.utilities.Whirlpool;
 
+import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
 
 /**
  * A class that represents a single index inside the cache.
@@ -24,20 +37,40 @@ import java.util.Map;
  */
 public class Index extends ReferenceTable {
 
+	/**
+	 * The amount of archives per worker that may be repacked ahead of the one being written.
+	 */
+	private static final int REPACK_AHEAD = 4;
+
 	/**
 	 * The {@link RandomAccessFile} of this index.
 	 */
 	private FileChannel randomAccessFile;
 
+	/**
+	 * The memory mapped view of the random access file.
+	 */
+	private MappedFile store;
+
 	/**
 	 * The crc hash of this index.
 	 */
 	private int crc;
 
 	/**
-	 * The whirlpool hash of this index.
+	 * The whirlpool hash of this index, computed the first time it is asked for.
+	 */
+	private volatile byte[] whirlpool;
+
+	/**
+	 * If decoding the reference table has been deferred to its first use.
+	 */
+	private volatile boolean deferred;
+
+	/**
+	 * If the reference table is being decoded by the thread holding the lock of this index.
 	 */
-	private byte[] whirlpool;
+	private boolean decoding;
 
 	/**
 	 * If this index has been cached.
@@ -57,26 +90,88 @@ public class Index extends ReferenceTable {
 	public Index(CacheLibrary origin, int id, FileChannel randomAccessFile) {
 		super(origin, id);
 		this.randomAccessFile = randomAccessFile;
+		try {
+			this.store = randomAccessFile == null ? null : origin.createStore("main_file_cache.idx" + id, randomAccessFile);
+			if (store != null && origin.isTransactionOpen()) {
+				store.beginBatch();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 		read();
 	}
 
 	/**
 	 * Read this index.
+	 * Only the entry of this index in the checksum table is read, the reference table is decoded when it is first used.
 	 */
 	protected void read() {
 		if (id < 255) {
-			final ArchiveSector archiveSector = super.origin.getChecksumTable().readArchiveSector(id);
-			if (archiveSector != null) {
-				crc = HashGenerator.getCRCHash(archiveSector.getData());
-				whirlpool = Whirlpool.getHash(archiveSector.getData(), 0, archiveSector.getData().length);
-				super.read(new InputStream(Compression.decompress(archiveSector, null)));
-				type = archiveSector.getCompression();
+			if (super.origin.getChecksumTable().containsArchiveSector(id)) {
+				deferred = true;
 			} else {
 				this.randomAccessFile = null;
+				this.store = null;
 			}
 		}
 	}
 
+	@Override
+	protected void ensureDecoded() {
+		if (!deferred) {
+			return;
+		}
+		synchronized (this) {
+			if (deferred && !decoding) {
+				decoding = true;
+				try {
+					decode();
+				} finally {
+					decoding = false;
+					deferred = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read and decode the reference table of this index from the checksum table.
+	 */
+	private void decode() {
+		final ArchiveSector archiveSector = super.origin.getChecksumTable().readArchiveSector(id);
+		if (archiveSector != null) {
+			crc = HashGenerator.getCRCHash(archiveSector.getData());
+			super.read(new InputStream(Compression.decompress(archiveSector, null)));
+			type = archiveSector.getCompression();
+		} else {
+			super.reset();
+			this.randomAccessFile = null;
+			this.store = null;
+		}
+	}
+
+	/**
+	 * Check if the argued archive has a valid entry in this index, without reading its sectors.
+	 * @param id The id of the archive.
+	 * @return If the entry points to a sector inside the main file.
+	 */
+	public boolean containsArchiveSector(int id) {
+		if (store == null || store.size() < (long) Constants.INDEX_SIZE * id + Constants.INDEX_SIZE) {
+			return false;
+		}
+		final byte[] buffer = new byte[Constants.INDEX_SIZE];
+		try {
+			store.read((long) id * Constants.INDEX_SIZE, buffer, 0, Constants.INDEX_SIZE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		final InputStream inputStream = new InputStream(buffer);
+		final int size = inputStream.read24BitInt();
+		final int position = inputStream.read24BitInt();
+		return size >= 0 && position > 0 && position <= super.origin.getMainStore().size() / Constants.ARCHIVE_SIZE;
+	}
+
 	/**
 	 * Update this index.
 	 * @return If this index was updated with success.
@@ -104,52 +199,88 @@ public class Index extends ReferenceTable {
 	}
 
 	/**
-	 * Update all the archives and files in this index.
+	 * Update all the archives and files in this index, in a single transaction.
 	 * @param listener The progress listener.
 	 * @param map A map of xteas.
 	 * @return If we have updated the cache with success {@code true}.
 	 */
 	public boolean update(ProgressListener listener, Map<Integer, int[]> map) {
-		boolean updateChecksumTable = false;
-		int updateCount = 0;
-		for(Archive archive : archives) {
-			if (archive == null || !archive.isUpdateRequired()) {
-				continue;
-			}
-			updateCount++;
+		super.origin.beginTransaction();
+		boolean updated = false;
+		try {
+			updated = writeArchives(listener, map);
+		} finally {
+			updated &= super.origin.commitTransaction();
 		}
-		double i = 0;
+		return updated;
+	}
+
+	/**
+	 * Write all the flagged archives of this index.
+	 * @param listener The progress listener.
+	 * @param map A map of xteas.
+	 * @return If the archives were written with success.
+	 */
+	protected boolean writeArchives(ProgressListener listener, Map<Integer, int[]> map) {
+		ensureDecoded();
+		final List<Archive> flagged = new ArrayList<>();
 		for (Archive archive : archives) {
-			if (archive == null || !archive.isUpdateRequired()) {
-				continue;
-			}
-			i++;
-			archive.unFlag();
-			int[] keys = map == null ? null : map.get(archive.getId());
-			if (!updateChecksumTable) {
-				updateChecksumTable = true;
+			if (archive != null && archive.isUpdateRequired()) {
+				flagged.add(archive);
 			}
-			if (listener != null) {
-				listener.notify((i / updateCount) * 80.0, "Repacking archive " + archive.getId() + "...");
-			}
-			final byte[] compressed = Compression.compress(archive.write(new OutputStream(0)), super.id == 7 ? CompressionType.NONE : CompressionType.GZIP, keys, archive.getRevision());
-			archive.setCRC(HashGenerator.getCRCHash(compressed, 0, compressed.length - 2));
-			archive.setWhirlpool(Whirlpool.getHash(compressed, 0, compressed.length - 2));
-			final ArchiveSector backup = readArchiveSector(archive.getId());
-			if (!writeArchiveSector(archive.getId(), compressed)) {
-				System.err.println("Could not write the archive sector for index[id=" + super.id + ", archive=" + archive.getId() + "]");
-				System.err.println("Reverting changes...");
-				if (backup != null) {
-					if (writeArchiveSector(archive.getId(), backup.getData())) {
-						System.out.println("Changes have been reverted.");
-					} else {
-						System.err.println("Your cache is corrupt.");
+		}
+		final boolean updateChecksumTable = !flagged.isEmpty();
+		final int updateCount = flagged.size();
+		final int workers = Math.min(updateCount, Runtime.getRuntime().availableProcessors());
+		final ExecutorService executor = workers > 1 ? Executors.newFixedThreadPool(workers, runnable -> {
+			final Thread thread = new Thread(runnable, "Index " + id + " repack");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+		final Queue<Future<RepackedArchive>> pending = new ArrayDeque<>();
+		try {
+			int submitted = 0;
+			for (int i = 0; i < updateCount; i++) {
+				if (executor != null) {
+					while (submitted < updateCount && submitted < i + workers * REPACK_AHEAD) {
+						final Archive archive = flagged.get(submitted++);
+						final int[] keys = map == null ? null : map.get(archive.getId());
+						pending.add(executor.submit(() -> repack(archive, keys)));
 					}
 				}
-				return false;
+				final Archive archive = flagged.get(i);
+				if (listener != null) {
+					listener.notify(((i + 1D) / updateCount) * 80.0, "Repacking archive " + archive.getId() + "...");
+				}
+				final RepackedArchive repacked = executor == null ? repack(archive, map == null ? null : map.get(archive.getId())) : pending.poll().get();
+				archive.unFlag();
+				archive.setCRC(repacked.crc);
+				if (repacked.whirlpool != null) {
+					archive.setWhirlpool(repacked.whirlpool);
+				}
+				final ArchiveSector backup = readArchiveSector(archive.getId());
+				if (!writeArchiveSector(archive.getId(), repacked.data)) {
+					System.err.println("Could not write the archive sector for index[id=" + super.id + ", archive=" + archive.getId() + "]");
+					System.err.println("Reverting changes...");
+					if (backup != null) {
+						if (writeArchiveSector(archive.getId(), backup.getData())) {
+							System.out.println("Changes have been reverted.");
+						} else {
+							System.err.println("Your cache is corrupt.");
+						}
+					}
+					return false;
+				}
+				if (origin.getMode() == CacheLibraryMode.UN_CACHED) {
+					archive.restore();
+				}
 			}
-			if (origin.getMode() == CacheLibraryMode.UN_CACHED) {
-				archive.restore();
+		} catch (InterruptedException | ExecutionException exception) {
+			exception.printStackTrace();
+			return false;
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
 		}
 		if (listener != null) {
@@ -158,9 +289,8 @@ public class Index extends ReferenceTable {
 		if (updateChecksumTable || super.needUpdate) {
 			super.revision++;
 			final byte[] indexData = Compression.compress(super.write(new OutputStream()), type, null, -1);
-			byte[] clonedData = indexData.clone();
-			crc = HashGenerator.getCRCHash(clonedData);
-			whirlpool = Whirlpool.getHash(clonedData, 0, clonedData.length);
+			crc = HashGenerator.getCRCHash(indexData);
+			whirlpool = null;
 			super.origin.getChecksumTable().writeArchiveSector(super.id, indexData);
 		}
 		if (listener != null) {
@@ -169,66 +299,81 @@ public class Index extends ReferenceTable {
 		return true;
 	}
 
+	/**
+	 * Serialize, compress and hash an archive so it is ready to be written.
+	 * The whirlpool hash is only computed if the reference table stores it.
+	 * @param archive The archive to repack.
+	 * @param keys The xteas to encrypt the archive with.
+	 * @return The repacked archive.
+	 */
+	private RepackedArchive repack(Archive archive, int[] keys) {
+		final byte[] compressed = Compression.compress(archive.write(new OutputStream(0)), super.id == 7 ? CompressionType.NONE : CompressionType.GZIP, keys, archive.getRevision());
+		return new RepackedArchive(compressed, HashGenerator.getCRCHash(compressed, 0, compressed.length - 2), usingWhirlpool() ? Whirlpool.getHash(compressed, 0, compressed.length - 2) : null);
+	}
+
 	/**
 	 * Get the archive sector from this index.
 	 * @param id The id of the archive sector to get.
 	 * @return The archive sector instance.
 	 */
 	public ArchiveSector readArchiveSector(int id) {
-		synchronized (super.origin.getMainFile()) {
-			try {
-				int type = 0;
-				if (id > 65535) {
-					type = 1;
-				}
-				if (super.origin.getMainFile().size() < (Constants.INDEX_SIZE * id + Constants.INDEX_SIZE)) {
-					throw new RuntimeException("File is too small.");
-				}
-				final byte[] buffer = new byte[Constants.ARCHIVE_SIZE];
-				FileChannelUtil.readData(randomAccessFile, (long) id * Constants.INDEX_SIZE, Constants.INDEX_SIZE, buffer);
-				final InputStream inputStream = new InputStream(buffer);
-				final ArchiveSector archiveSector = new ArchiveSector(type, inputStream.read24BitInt(), inputStream.read24BitInt());
-				if (archiveSector.getSize() < 0) {
-					return null;
-				} else if (archiveSector.getPosition() <= 0 || archiveSector.getPosition() > (super.origin.getMainFile().size() / Constants.ARCHIVE_SIZE)) {
+		final Lock lock = super.origin.getSectorLock(super.id, id).readLock();
+		lock.lock();
+		try {
+			int type = 0;
+			if (id > 65535) {
+				type = 1;
+			}
+			if (store == null || store.size() < (long) Constants.INDEX_SIZE * id + Constants.INDEX_SIZE) {
+				return null;
+			}
+			final MappedFile mainStore = super.origin.getMainStore();
+			final long sectors = mainStore.size() / Constants.ARCHIVE_SIZE;
+			final byte[] buffer = new byte[Constants.ARCHIVE_SIZE];
+			store.read((long) id * Constants.INDEX_SIZE, buffer, 0, Constants.INDEX_SIZE);
+			final InputStream inputStream = new InputStream(buffer);
+			final ArchiveSector archiveSector = new ArchiveSector(type, inputStream.read24BitInt(), inputStream.read24BitInt());
+			if (archiveSector.getSize() < 0) {
+				return null;
+			} else if (archiveSector.getPosition() <= 0 || archiveSector.getPosition() > sectors) {
+				return null;
+			}
+			int read = 0;
+			int chunk = 0;
+			int archiveDataSize = Constants.ARCHIVE_DATA_SIZE;
+			int archiveHeaderSize = Constants.ARCHIVE_HEADER_SIZE;
+			if (type == 1) {
+				archiveDataSize -= 2;
+				archiveHeaderSize += 2;
+			}
+			while (read < archiveSector.getSize()) {
+				if (archiveSector.getPosition() == 0) {
 					return null;
 				}
-				int read = 0;
-				int chunk = 0;
-				int archiveDataSize = Constants.ARCHIVE_DATA_SIZE;
-				int archiveHeaderSize = Constants.ARCHIVE_HEADER_SIZE;
-				if (type == 1) {
-					archiveDataSize -= 2;
-					archiveHeaderSize += 2;
+				int requiredToRead = archiveSector.getSize() - read;
+				if (requiredToRead > archiveDataSize) {
+					requiredToRead = archiveDataSize;
 				}
-				while (read < archiveSector.getSize()) {
-					if (archiveSector.getPosition() == 0) {
-						return null;
-					}
-					int requiredToRead = archiveSector.getSize() - read;
-					if (requiredToRead > archiveDataSize) {
-						requiredToRead = archiveDataSize;
-					}
-
-					FileChannelUtil.readData(super.origin.getMainFile(),(long) archiveSector.getPosition() * Constants.ARCHIVE_SIZE, requiredToRead + archiveHeaderSize,  inputStream.getBytes());
-					inputStream.setOffset(0);
-					if (!archiveSector.read(inputStream)) {
-						throw new RuntimeException("Error, could not read the archive.");
-					} else if (!isIndexValid(archiveSector.getIndex()) || id != archiveSector.getId() || chunk != archiveSector.getChunk()) {
-						throw new RuntimeException("Error, the read data is incorrect. Data[currentIndex=" + super.id + ", index=" + archiveSector.getIndex() + ", currentId=" + id + ", id=" + archiveSector.getId() + ", currentChunk=" + chunk + ", chunk=" + archiveSector.getChunk() + "]");
-					} else if (archiveSector.getNextPosition() < 0 || archiveSector.getNextPosition() > (super.origin.getMainFile().size() / Constants.ARCHIVE_SIZE)) {
-						throw new RuntimeException("Error, the next position is invalid.");
-					}
-					for (int i = 0; i < requiredToRead; i++) {
-						archiveSector.setData(read++, inputStream.getBytes()[i + archiveHeaderSize]);
-					}
-					archiveSector.setPosition(archiveSector.getNextPosition());
-					chunk++;
+				final ByteBuffer sector = mainStore.slice((long) archiveSector.getPosition() * Constants.ARCHIVE_SIZE, requiredToRead + archiveHeaderSize);
+				sector.get(buffer, 0, archiveHeaderSize);
+				inputStream.setOffset(0);
+				if (!archiveSector.read(inputStream)) {
+					throw new RuntimeException("Error, could not read the archive.");
+				} else if (!isIndexValid(archiveSector.getIndex()) || id != archiveSector.getId() || chunk != archiveSector.getChunk()) {
+					throw new RuntimeException("Error, the read data is incorrect. Data[currentIndex=" + super.id + ", index=" + archiveSector.getIndex() + ", currentId=" + id + ", id=" + archiveSector.getId() + ", currentChunk=" + chunk + ", chunk=" + archiveSector.getChunk() + "]");
+				} else if (archiveSector.getNextPosition() < 0 || archiveSector.getNextPosition() > sectors) {
+					throw new RuntimeException("Error, the next position is invalid.");
 				}
-				return archiveSector;
-			} catch (Exception exception) {
-				exception.printStackTrace();
+				sector.get(archiveSector.getData(), read, requiredToRead);
+				read += requiredToRead;
+				archiveSector.setPosition(archiveSector.getNextPosition());
+				chunk++;
 			}
+			return archiveSector;
+		} catch (Exception exception) {
+			exception.printStackTrace();
+		} finally {
+			lock.unlock();
 		}
 		return null;
 	}
@@ -240,100 +385,167 @@ public class Index extends ReferenceTable {
 	 * @return If the archive sector was written successfully.
 	 */
 	public boolean writeArchiveSector(int id, byte[] data) {
-		synchronized (super.origin.getMainFile()) {
+		synchronized (super.origin.getWriteMonitor()) {
+			super.origin.beginTransaction();
+			boolean written = false;
 			try {
-				int position;
-				Archive archive = null;
-				ArchiveSector archiveSector = null;
-				if (super.id != 255) {
-					archive = getArchive(id, true);
+				written = writeSectors(id, data);
+			} finally {
+				written &= super.origin.commitTransaction();
+			}
+			return written;
+		}
+	}
+
+	/**
+	 * Write the sectors of an archive.
+	 * @param id The id of the archive.
+	 * @param data The data to write to the archive sectors.
+	 * @return If the sectors were written successfully.
+	 */
+	private boolean writeSectors(int id, byte[] data) {
+		final Lock lock = super.origin.getSectorLock(super.id, id).writeLock();
+		lock.lock();
+		try {
+			final MappedFile mainStore = super.origin.getMainStore();
+			int position;
+			Archive archive = null;
+			ArchiveSector archiveSector = null;
+			if (super.id != 255) {
+				archive = getArchive(id, true);
+			}
+			boolean overWrite = (super.id == 255 && (archiveSector = readArchiveSector(id)) != null) || (archive != null && !archive.isNew());
+			final byte[] buffer = new byte[Constants.ARCHIVE_SIZE];
+			if (overWrite) {
+				if (Constants.INDEX_SIZE * id + Constants.INDEX_SIZE > store.size()) {
+					return false;
 				}
-				boolean overWrite = (super.id == 255 && (archiveSector = readArchiveSector(id)) != null) || (archive != null && !archive.isNew());
-				final byte[] buffer = new byte[Constants.ARCHIVE_SIZE];
+				archiveSector = readArchiveSector(id);
+				store.read((long) id * Constants.INDEX_SIZE, buffer, 0, Constants.INDEX_SIZE);
+				final InputStream inputStream = new InputStream(buffer);
+				inputStream.setOffset(3);
+				position = inputStream.read24BitInt();
+				if (position <= 0 || position > mainStore.size() / Constants.ARCHIVE_SIZE) {
+					return false;
+				}
+			} else {
+				position = (int) ((mainStore.size() + (Constants.ARCHIVE_SIZE - 1)) / Constants.ARCHIVE_SIZE);
+				if (position == 0) {
+					position = 1;
+				}
+			}
+			final OutputStream outputStream = new OutputStream();
+			outputStream.write24BitInt(data.length);
+			outputStream.write24BitInt(position);
+			store.write((long) id * Constants.INDEX_SIZE, outputStream.flip(), 0, Constants.INDEX_SIZE);
+			int written = 0;
+			int chunk = 0;
+			int archiveDataSize = Constants.ARCHIVE_DATA_SIZE;
+			int archiveHeaderSize = Constants.ARCHIVE_HEADER_SIZE;
+			if (id > 65535) {
+				archiveDataSize -= 2;
+				archiveHeaderSize += 2;
+			}
+			while (written < data.length) {
+				int currentPosition = 0;
 				if (overWrite) {
-					if (Constants.INDEX_SIZE * id + Constants.INDEX_SIZE > randomAccessFile.size()) {
+					mainStore.read((long) position * Constants.ARCHIVE_SIZE, buffer, 0, archiveHeaderSize);
+					archiveSector.read(new InputStream(buffer));
+					currentPosition = archiveSector.getNextPosition();
+					if (archiveSector.getId() != id || chunk != archiveSector.getChunk() || !isIndexValid(archiveSector.getIndex())) {
 						return false;
 					}
-					archiveSector = readArchiveSector(id);
-					FileChannelUtil.readData(randomAccessFile, (long) id * Constants.INDEX_SIZE, Constants.INDEX_SIZE, buffer);
-					final InputStream inputStream = new InputStream(buffer);
-					inputStream.setOffset(3);
-					position = inputStream.read24BitInt();
-					if (position <= 0 || position > super.origin.getMainFile().size() / Constants.ARCHIVE_SIZE) {
+					if (currentPosition < 0 || mainStore.size() / Constants.ARCHIVE_SIZE < currentPosition) {
 						return false;
 					}
-				} else {
-					position = (int) ((super.origin.getMainFile().size() + (Constants.ARCHIVE_SIZE - 1)) / Constants.ARCHIVE_SIZE);
-					if (position == 0) {
-						position = 1;
-					}
-				}
-				final OutputStream outputStream = new OutputStream();
-				outputStream.write24BitInt(data.length);
-				outputStream.write24BitInt(position);
-				FileChannelUtil.writeData(randomAccessFile, (long) id * Constants.INDEX_SIZE, Constants.INDEX_SIZE, outputStream.flip());
-				int written = 0;
-				int chunk = 0;
-				int archiveDataSize = Constants.ARCHIVE_DATA_SIZE;
-				int archiveHeaderSize = Constants.ARCHIVE_HEADER_SIZE;
-				if (id > 65535) {
-					archiveDataSize -= 2;
-					archiveHeaderSize += 2;
 				}
-				while (written < data.length) {
-					int currentPosition = 0;
-					if (overWrite) {
-						FileChannelUtil.readData(super.origin.getMainFile(),(long) archiveSector.getPosition() * Constants.ARCHIVE_SIZE, archiveHeaderSize,  buffer);
-						archiveSector.read(new InputStream(buffer));
-						currentPosition = archiveSector.getNextPosition();
-						if (archiveSector.getId() != id || chunk != archiveSector.getChunk() || !isIndexValid(archiveSector.getIndex())) {
-							return false;
-						}
-						if (currentPosition < 0 || super.origin.getMainFile().size() / Constants.ARCHIVE_SIZE < currentPosition) {
-							return false;
-						}
-					}
+				if (currentPosition == 0) {
+					overWrite = false;
+					currentPosition = (int) ((mainStore.size() + (Constants.ARCHIVE_SIZE - 1)) / Constants.ARCHIVE_SIZE);
 					if (currentPosition == 0) {
-						overWrite = false;
-						currentPosition = (int) ((super.origin.getMainFile().size() + (Constants.ARCHIVE_SIZE - 1)) / Constants.ARCHIVE_SIZE);
-						if (currentPosition == 0) {
-							currentPosition++;
-						}
-						if (currentPosition == position) {
-							currentPosition++;
-						}
-					}
-					if (data.length - written <= archiveDataSize) {
-						currentPosition = 0;
+						currentPosition++;
 					}
-					if (archiveSector == null) {
-						archiveSector = new ArchiveSector(0, data.length, position, id, indexToWrite(super.id));
+					if (currentPosition == position) {
+						currentPosition++;
 					}
-					archiveSector.setType(archiveDataSize == 510 ? 1 : 0);
-					archiveSector.setChunk(chunk);
-					archiveSector.setPosition(currentPosition);
-					archiveSector.write(new OutputStream(archiveHeaderSize));
+				}
+				if (data.length - written <= archiveDataSize) {
+					currentPosition = 0;
+				}
+				if (archiveSector == null) {
+					archiveSector = new ArchiveSector(0, data.length, position, id, indexToWrite(super.id));
+				}
+				archiveSector.setType(archiveDataSize == 510 ? 1 : 0);
+				archiveSector.setChunk(chunk);
+				archiveSector.setPosition(currentPosition);
+				archiveSector.write(new OutputStream(archiveHeaderSize));
 	
-					FileChannelUtil.writeData(super.origin.getMainFile(), (long) position * Constants.ARCHIVE_SIZE, archiveHeaderSize, archiveSector.write(new OutputStream(archiveHeaderSize)));
-					
-					
-					int length = data.length - written;
-					if (length > archiveDataSize) {
-						length = archiveDataSize;
-					}
-					FileChannelUtil.writeData(super.origin.getMainFile(), (long) written, length, data);
-					
-					written += length;
-					position = currentPosition;
-					chunk++;
+				mainStore.write((long) position * Constants.ARCHIVE_SIZE, archiveSector.write(new OutputStream(archiveHeaderSize)), 0, archiveHeaderSize);
+
+				int length = data.length - written;
+				if (length > archiveDataSize) {
+					length = archiveDataSize;
 				}
-				return true;
-			} catch (Throwable t) {
-				t.printStackTrace();
-				System.err.println("ERROR!");
-				return false;
+				mainStore.write((long) position * Constants.ARCHIVE_SIZE + archiveHeaderSize, data, written, length);
+
+				written += length;
+				position = currentPosition;
+				chunk++;
+			}
+			return true;
+		} catch (Throwable t) {
+			t.printStackTrace();
+			System.err.println("ERROR!");
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Copy the sectors of every archive in this index to the argued stream, each archive as one contiguous chain.
+	 * Archives that can not be read are left out.
+	 * @param output The stream, positioned at the start of the sector at {@code position}.
+	 * @param position The sector to start writing at.
+	 * @param pointers The new content of the idx file, filled by this method.
+	 * @return The sector after the last one written.
+	 * @throws IOException If it failed to write to the stream.
+	 */
+	public int compact(java.io.OutputStream output, int position, byte[] pointers) throws IOException {
+		final byte[] sector = new byte[Constants.ARCHIVE_SIZE];
+		for (int id = 0; id < pointers.length / Constants.INDEX_SIZE; id++) {
+			final ArchiveSector archiveSector = readArchiveSector(id);
+			if (archiveSector == null) {
+				continue;
+			}
+			final byte[] data = archiveSector.getData();
+			final OutputStream pointer = new OutputStream(Constants.INDEX_SIZE);
+			pointer.write24BitInt(data.length);
+			pointer.write24BitInt(position);
+			System.arraycopy(pointer.flip(), 0, pointers, id * Constants.INDEX_SIZE, Constants.INDEX_SIZE);
+			int archiveDataSize = Constants.ARCHIVE_DATA_SIZE;
+			int archiveHeaderSize = Constants.ARCHIVE_HEADER_SIZE;
+			if (id > 65535) {
+				archiveDataSize -= 2;
+				archiveHeaderSize += 2;
+			}
+			final ArchiveSector header = new ArchiveSector(id > 65535 ? 1 : 0, 0, 0, id, indexToWrite(super.id));
+			int written = 0;
+			int chunk = 0;
+			while (written < data.length) {
+				final int length = Math.min(data.length - written, archiveDataSize);
+				header.setChunk(chunk);
+				header.setPosition(written + length < data.length ? position + 1 : 0);
+				System.arraycopy(header.write(new OutputStream(archiveHeaderSize)), 0, sector, 0, archiveHeaderSize);
+				System.arraycopy(data, written, sector, archiveHeaderSize, length);
+				Arrays.fill(sector, archiveHeaderSize + length, Constants.ARCHIVE_SIZE, (byte) 0);
+				output.write(sector);
+				written += length;
+				position++;
+				chunk++;
 			}
 		}
+		return position;
 	}
 
 	/**
@@ -366,6 +578,7 @@ public class Index extends ReferenceTable {
 	 * @param xteas An 2D array of xteas. Syntax: xteas[archive id] = xtea.
 	 */
 	public boolean cache(int[][] xteas)  {
+		ensureDecoded();
 		if (!cached) {
 			for (final int archive : super.archiveIds) {
 				try {
@@ -383,6 +596,9 @@ public class Index extends ReferenceTable {
 	 * Uncache this index (clears all stored data).
 	 */
 	public void uncache() {
+		if (deferred) {
+			return;
+		}
 		for (Archive archive : super.archives) {
 			archive.restore();
 		}
@@ -397,19 +613,35 @@ public class Index extends ReferenceTable {
 		return randomAccessFile;
 	}
 
+	/**
+	 * Get the memory mapped view of the random access file.
+	 * @return {@code store}
+	 */
+	public MappedFile getStore() {
+		return store;
+	}
+
 	/**
 	 * Get the crc value of this index.
 	 * @return The crc value.
 	 */
 	public int getCRC() {
+		ensureDecoded();
 		return crc;
 	}
 
 	/**
-	 * Get the whirlpool of this index.
+	 * Get the whirlpool of this index, hashing the reference table the first time.
 	 * @return {@code whirlpool}
 	 */
 	public byte[] getWhirlpool() {
+		byte[] whirlpool = this.whirlpool;
+		if (whirlpool == null && id < 255) {
+			final ArchiveSector archiveSector = super.origin.getChecksumTable().readArchiveSector(id);
+			if (archiveSector != null) {
+				this.whirlpool = whirlpool = Whirlpool.getHash(archiveSector.getData(), 0, archiveSector.getData().length);
+			}
+		}
 		return whirlpool;
 	}
 
@@ -418,6 +650,7 @@ public class Index extends ReferenceTable {
 	 * @param crc The new crc value to set.
 	 */
 	public void setCRC(int crc) {
+		ensureDecoded();
 		this.crc = crc;
 	}
 
@@ -426,6 +659,7 @@ public class Index extends ReferenceTable {
 	 * @return {@code type}
 	 */
 	public CompressionType getCompressionType() {
+		ensureDecoded();
 		return type;
 	}
 
@@ -434,6 +668,7 @@ public class Index extends ReferenceTable {
 	 * @return The info.
 	 */
 	public String getInfo() {
+		ensureDecoded();
 		return "Index[id=" + id + ", archives=" + archives.length + ", compression=" + type + "]";
 	}
 
@@ -448,4 +683,38 @@ public class Index extends ReferenceTable {
 			addArchive(file);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * An archive that has been serialized, compressed and hashed, waiting to be written.
+	 */
+	private static final class RepackedArchive {
+
+		/**
+		 * The compressed data.
+		 */
+		private final byte[] data;
+
+		/**
+		 * The crc hash of the compressed data.
+		 */
+		private final int crc;
+
+		/**
+		 * The whirlpool hash of the compressed data, or {@code null} if the index does not store it.
+		 */
+		private final byte[] whirlpool;
+
+		/**
+		 * Constructs a new {@code RepackedArchive} {@code Object}.
+		 * @param data The compressed data.
+		 * @param crc The crc hash.
+		 * @param whirlpool The whirlpool hash.
+		 */
+		private RepackedArchive(byte[] data, int crc, byte[] whirlpool) {
+			this.data = data;
+			this.crc = crc;
+			this.whirlpool = whirlpool;
+		}
+
+	}
+
+}
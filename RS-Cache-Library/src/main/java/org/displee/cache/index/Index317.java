@@ -42,7 +42,7 @@ public class Index317 extends Index {
 	}
 
 	@Override
-	public boolean update(ProgressListener listener, Map<Integer, int[]> map) {
+	protected boolean writeArchives(ProgressListener listener, Map<Integer, int[]> map) {
 		boolean updateChecksumTable = false;
 		int updateCount = 0;
 		for(Archive archive : archives) {
@@ -156,24 +156,28 @@ public class Index317 extends Index {
 		if (origin.isClosed()) {
 			return null;
 		}
-		for (final Archive archive : archives) {
-			if (archive.getId() == id) {
-				if (direct || archive.isRead() || archive.isNew()) {
-					return archive;
-				}
-				final ArchiveSector archiveSector = origin.getIndex(this.id).readArchiveSector(id);
-				if (archiveSector == null) {
-					archive.setIsRead(true);
-					archive.setIsNew(true);
-					archive.reset();
-					return archive;
-				}
-				((Archive317) archive).setCompressionType(this.id == 0 ? Compression.CompressionType.BZIP2 : Compression.CompressionType.GZIP);
-				archive.read(new InputStream(archiveSector.getData()));
+		final Archive archive = lookup.get(archives, id);
+		if (archive == null) {
+			return null;
+		}
+		if (direct || archive.isRead() || archive.isNew()) {
+			return archive;
+		}
+		synchronized (archive) {
+			if (archive.isRead() || archive.isNew()) {
+				return archive;
+			}
+			final ArchiveSector archiveSector = origin.getIndex(this.id).readArchiveSector(id);
+			if (archiveSector == null) {
+				archive.setIsRead(true);
+				archive.setIsNew(true);
+				archive.reset();
 				return archive;
 			}
+			((Archive317) archive).setCompressionType(this.id == 0 ? Compression.CompressionType.BZIP2 : Compression.CompressionType.GZIP);
+			archive.read(new InputStream(archiveSector.getData()));
+			return archive;
 		}
-		return null;
 	}
 
 	@Override
@@ -188,6 +192,7 @@ public class Index317 extends Index {
 					archiveNames.set(archiveNames.indexOf(current.getName()), name);
 				}
 				current.setName(name);
+				lookup.invalidateNames();
 			}
 			if (resetFiles) {
 				current.reset();
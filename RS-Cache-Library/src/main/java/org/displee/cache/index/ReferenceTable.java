@@ -15,6 +15,7 @@ import org.displee.io.impl.InputStream;
 import org.displee.io.impl.OutputStream;
 import org.displee.utilities.Compression;
 import org.displee.utilities.Constants;
+import org.displee.utilities.LookupTable;
 import org.displee.utilities.Miscellaneous;
 
 /**
@@ -83,6 +84,11 @@ public class ReferenceTable implements Container {
 	 */
 	protected List<Integer> archiveNames = new ArrayList<>();
 
+	/**
+	 * The lookup table of the archives by their id and name.
+	 */
+	protected final LookupTable<Archive> lookup = new LookupTable<>(Archive::getId, Archive::getName);
+
 	/**
 	 * Constructs a new {@code ReferenceTable} {@code Object}.
 	 * @param id The id of the index.
@@ -188,6 +194,7 @@ public class ReferenceTable implements Container {
 
 	@Override
 	public byte[] write(OutputStream outputStream) {
+		ensureDecoded();
 		outputStream.writeByte(version);
 		if (version >= 6) {
 			outputStream.writeInt(revision);
@@ -284,10 +291,18 @@ public class ReferenceTable implements Container {
 		return outputStream.flip();
 	}
 
+	/**
+	 * Decode this reference table if that was deferred to its first use.
+	 * Tables are decoded as soon as they are read, unless a subclass overrides this method.
+	 */
+	protected void ensureDecoded() {
+	}
+
 	/**
 	 * Reset this index.
 	 */
 	public void reset() {
+		ensureDecoded();
 		archiveIds = new int[0];
 		archives = new Archive[0];
 	}
@@ -297,6 +312,7 @@ public class ReferenceTable implements Container {
 	 * @return The new index.
 	 */
 	public ReferenceTable copy() {
+		ensureDecoded();
 		final ReferenceTable referenceTable = new ReferenceTable(origin, id);
 		referenceTable.version = version;
 		referenceTable.revision = revision;
@@ -328,6 +344,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code version}
 	 */
 	public int getVersion() {
+		ensureDecoded();
 		return version;
 	}
 
@@ -336,6 +353,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code revision}
 	 */
 	public int getRevision() {
+		ensureDecoded();
 		return revision;
 	}
 
@@ -344,6 +362,7 @@ public class ReferenceTable implements Container {
 	 * @param revision The new value.
 	 */
 	public void setRevision(int revision) {
+		ensureDecoded();
 		this.revision = revision;
 	}
 
@@ -352,6 +371,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code archiveIds}
 	 */
 	public int[] getArchiveIds() {
+		ensureDecoded();
 		return archiveIds;
 	}
 
@@ -360,6 +380,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code archives}
 	 */
 	public Archive[] getArchives() {
+		ensureDecoded();
 		return archives;
 	}
 
@@ -368,6 +389,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code archives}
 	 */
 	public Archive[] copyArchives() {
+		ensureDecoded();
 		final Archive[] archives = new Archive[archiveIds.length];
 		for(int i = 0; i < archives.length; i++) {
 			final Archive original = getArchive(archiveIds[i]);
@@ -497,6 +519,7 @@ public class ReferenceTable implements Container {
 	 * @return The archive instance.
 	 */
 	public Archive addArchive(int id, int name, boolean resetFiles) {
+		ensureDecoded();
 		Archive current = getArchive(id, true);
 		if (current != null && !current.isRead() && !current.isNew() && !current.isUpdateRequired()) {
 			current = getArchive(id);
@@ -507,6 +530,7 @@ public class ReferenceTable implements Container {
 					archiveNames.set(archiveNames.indexOf(current.getName()), name);
 				}
 				current.setName(name);
+				lookup.invalidateNames();
 			}
 			if (resetFiles) {
 				current.reset();
@@ -540,14 +564,9 @@ public class ReferenceTable implements Container {
 	 * @param id The id of the archive to remove.
 	 */
 	public void removeArchive(int id) {
+		ensureDecoded();
 		try {
-			boolean exists = false;
-			for (final Archive archive : archives) {
-				if (archive.getId() == id) {
-					exists = true;
-				}
-			}
-			if (!exists) {
+			if (lookup.get(archives, id) == null) {
 				throw new FileNotFoundException("The argued archive id=" + id + " could not be removed as it is not stored in this index.");
 			}
 			final int[] archiveIds = new int[this.archiveIds.length - 1];
@@ -585,6 +604,7 @@ public class ReferenceTable implements Container {
 	 * Sort the holders of this index.
 	 */
 	public void sort() {
+		ensureDecoded();
 		Arrays.sort(archiveIds);
 		Arrays.sort(archives, Comparator.comparingInt(Archive::getId));
 	}
@@ -655,37 +675,42 @@ public class ReferenceTable implements Container {
 	 * @return The archive instance.
 	 */
 	public Archive getArchive(int id, int[] xtea, boolean direct) {
+		ensureDecoded();
 		if (origin.isClosed()) {
 			return null;
 		}
-		for (final Archive archive : archives) {
-			if (archive.getId() == id) {
-				if (direct || archive.isRead() || archive.isNew()) {
-					return archive;
-				}
-				final ArchiveSector archiveSector = origin.getIndex(this.id).readArchiveSector(id);
-				if (archiveSector == null) {
-					archive.setIsRead(true);
-					archive.setIsNew(true);
-					archive.reset();
-					return archive;
-				}
-				archive.read(new InputStream(Compression.decompress(archiveSector, xtea)));
-				if (this.id == 5 && !archive.containsData()) {//reset map data if archive has no data
-					archive.setIsRead(false);
-					return archive;
-				}
-				final InputStream inputStream = new InputStream(archiveSector.getData());
-				inputStream.setOffset(1);
-				final int remaining = inputStream.getBytes().length - ((inputStream.readInt() & 0xFFFFFF) + inputStream.getOffset());
-				if (remaining >= 2) {
-					inputStream.setOffset(inputStream.getBytes().length - 2);
-					archive.setRevision(inputStream.readUnsignedShort());
-				}
+		final Archive archive = lookup.get(archives, id);
+		if (archive == null) {
+			return null;
+		}
+		if (direct || archive.isRead() || archive.isNew()) {
+			return archive;
+		}
+		synchronized (archive) {
+			if (archive.isRead() || archive.isNew()) {
+				return archive;
+			}
+			final ArchiveSector archiveSector = origin.getIndex(this.id).readArchiveSector(id);
+			if (archiveSector == null) {
+				archive.setIsRead(true);
+				archive.setIsNew(true);
+				archive.reset();
 				return archive;
 			}
+			archive.read(new InputStream(Compression.decompress(archiveSector, xtea)));
+			if (this.id == 5 && !archive.containsData()) {//reset map data if archive has no data
+				archive.setIsRead(false);
+				return archive;
+			}
+			final InputStream inputStream = new InputStream(archiveSector.getData());
+			inputStream.setOffset(1);
+			final int remaining = inputStream.getBytes().length - ((inputStream.readInt() & 0xFFFFFF) + inputStream.getOffset());
+			if (remaining >= 2) {
+				inputStream.setOffset(inputStream.getBytes().length - 2);
+				archive.setRevision(inputStream.readUnsignedShort());
+			}
+			return archive;
 		}
-		return null;
 	}
 
 	/**
@@ -694,17 +719,17 @@ public class ReferenceTable implements Container {
 	 * @return The archive id of the argued name.
 	 */
 	public int getArchiveId(String name) {
-		boolean is317 = origin.is317();
-		for (Archive archive : archives) {
-			if (name != null && (is317 ? archive.getName() == Miscellaneous.to317Hash(name) : archive.getName() == name.toLowerCase().hashCode())) {
-				return archive.getId();
-			}
+		ensureDecoded();
+		if (name == null) {
+			return -1;
 		}
-		return -1;
+		final Archive archive = lookup.getByName(archives, origin.is317() ? Miscellaneous.to317Hash(name) : name.toLowerCase().hashCode());
+		return archive == null ? -1 : archive.getId();
 	}
 
 	public boolean containsName(String name) {
-		return archiveNames.indexOf(origin.is317() ? Miscellaneous.to317Hash(name) : name.hashCode()) != -1;
+		ensureDecoded();
+		return lookup.getByName(archives, origin.is317() ? Miscellaneous.to317Hash(name) : name.hashCode()) != null;
 	}
 
 	/**
@@ -712,6 +737,7 @@ public class ReferenceTable implements Container {
 	 * @return The last archive instance of this index.
 	 */
 	public Archive getLastArchive() {
+		ensureDecoded();
 		Archive archive = archives[archives.length - 1];
 		if (!archive.isRead()) {
 			archive = getArchive(archive.getId());
@@ -720,6 +746,7 @@ public class ReferenceTable implements Container {
 	}
 
 	public int getLastArchiveId(){
+		ensureDecoded();
 		return IntStream.of(archiveIds).max().orElse(-1);
 	}
 	/**
@@ -735,6 +762,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code named}
 	 */
 	public boolean isNamed() {
+		ensureDecoded();
 		return named;
 	}
 
@@ -743,6 +771,7 @@ public class ReferenceTable implements Container {
 	 * @return {@code whirlpool}
 	 */
 	public boolean usingWhirlpool() {
+		ensureDecoded();
 		return whirlpool;
 	}
 
@@ -759,6 +788,7 @@ public class ReferenceTable implements Container {
 	 * @param length The new length to set.
 	 */
 	public void setArchivesLength(int length) {
+		ensureDecoded();
 		archives = new Archive[length];
 	}
 
@@ -9,6 +9,7 @@ import org.displee.cache.index.archive.file.File;
 import org.displee.io.impl.InputStream;
 import org.displee.io.impl.OutputStream;
 import org.displee.utilities.Constants;
+import org.displee.utilities.LookupTable;
 import org.displee.utilities.Miscellaneous;
 
 /**
@@ -52,10 +53,15 @@ public class Archive implements Container {
 	 */
 	private File[] files;
 
+	/**
+	 * The lookup table of the files by their id and name.
+	 */
+	private final LookupTable<File> lookup = new LookupTable<>(File::getId, File::getName);
+
 	/**
 	 * If this archive has been read.
 	 */
-	protected boolean read;
+	protected volatile boolean read;
 
 	/**
 	 * If this archive needs to be updated.
@@ -249,6 +255,7 @@ public class Archive implements Container {
 			}
 			if (name != -1 && current.getName() != name) {
 				current.setName(name);
+				lookup.invalidateNames();
 				flag = true;
 			}
 			if (flag) {
@@ -304,13 +311,7 @@ public class Archive implements Container {
 	 */
 	public void removeFile(int id) {
 		try {
-			boolean exists = false;
-			for (final File file : files) {
-				if (file.getId() == id) {
-					exists = true;
-				}
-			}
-			if (!exists) {
+			if (getFile(id) == null) {
 				throw new FileNotFoundException("The argued file id could not be removed as it is not stored in this archive.");
 			}
 			final int[] fileIds = new int[this.fileIds.length - 1];
@@ -503,16 +504,11 @@ public class Archive implements Container {
 	 * @return The file id of the argued name.
 	 */
 	public int getFileId(String name) {
-		if (files == null) {
+		if (files == null || name == null) {
 			return -1;
 		}
-		boolean is317 = this instanceof Archive317;
-		for (final File file : files) {
-			if (name != null && (is317 ? file.getName() == Miscellaneous.to317Hash(name) : file.getName() == name.toLowerCase().hashCode())) {
-				return file.getId();
-			}
-		}
-		return -1;
+		final File file = lookup.getByName(files, this instanceof Archive317 ? Miscellaneous.to317Hash(name) : name.toLowerCase().hashCode());
+		return file == null ? -1 : file.getId();
 	}
 
 	/**
@@ -521,15 +517,7 @@ public class Archive implements Container {
 	 * @return The file instance.
 	 */
 	public File getFile(int id) {
-		if (files == null) {
-			return null;
-		}
-		for (final File file : files) {
-			if (file.getId() == id) {
-				return file;
-			}
-		}
-		return null;
+		return lookup.get(files, id);
 	}
 
 	/**
@@ -12,14 +12,9 @@ import java.io.*;
 public class BZIP2Compressor {
 
 	/**
-	 * The current bzip2 block entry.
+	 * The bzip2 block entry of each thread, so threads can decompress at the same time.
 	 */
-	public static BZIP2BlockEntry bzip2BlockEntry = new BZIP2BlockEntry();
-
-	/**
-	 * An unkown integer array.
-	 */
-	private static int[] anIntArray5786;
+	private static final ThreadLocal<BZIP2BlockEntry> BLOCK_ENTRY = ThreadLocal.withInitial(BZIP2BlockEntry::new);
 
 	/**
 	 * Compress a decompressed BZIP2 file.
@@ -65,22 +60,34 @@ public class BZIP2Compressor {
 	 * @return The decompressed length.
 	 */
 	public static int decompress(byte[] decompressed, int decompressedLength, byte[] archiveData, int compressedSize, int startOffset) {
-		synchronized (bzip2BlockEntry) {
-			bzip2BlockEntry.compressed = archiveData;
-			bzip2BlockEntry.startOffset = startOffset;
-			bzip2BlockEntry.decompressed = decompressed;
-			bzip2BlockEntry.anInt3100 = 0;
-			bzip2BlockEntry.decompressedLength = decompressedLength;
-			bzip2BlockEntry.anInt3088 = 0;
-			bzip2BlockEntry.anInt3078 = 0;
-			bzip2BlockEntry.anInt3085 = 0;
-			bzip2BlockEntry.anInt3097 = 0;
-			decompress(bzip2BlockEntry);
-			decompressedLength -= bzip2BlockEntry.decompressedLength;
-			bzip2BlockEntry.compressed = null;
-			bzip2BlockEntry.decompressed = null;
-			return decompressedLength;
-		}
+		return decompress(decompressed, 0, decompressedLength, archiveData, startOffset);
+	}
+
+	/**
+	 * Decompress a compressed BZIP2 file into the argued array.
+	 * @param decompressed The array to put the decompressed data in.
+	 * @param offset The offset in the array.
+	 * @param decompressedLength The length to decompress.
+	 * @param archiveData The compressed BZIP2 file.
+	 * @param startOffset The start offset.
+	 * @return The decompressed length.
+	 */
+	public static int decompress(byte[] decompressed, int offset, int decompressedLength, byte[] archiveData, int startOffset) {
+		final BZIP2BlockEntry bzip2BlockEntry = BLOCK_ENTRY.get();
+		bzip2BlockEntry.compressed = archiveData;
+		bzip2BlockEntry.startOffset = startOffset;
+		bzip2BlockEntry.decompressed = decompressed;
+		bzip2BlockEntry.anInt3100 = offset;
+		bzip2BlockEntry.decompressedLength = decompressedLength;
+		bzip2BlockEntry.anInt3088 = 0;
+		bzip2BlockEntry.anInt3078 = 0;
+		bzip2BlockEntry.anInt3085 = 0;
+		bzip2BlockEntry.anInt3097 = 0;
+		decompress(bzip2BlockEntry);
+		decompressedLength -= bzip2BlockEntry.decompressedLength;
+		bzip2BlockEntry.compressed = null;
+		bzip2BlockEntry.decompressed = null;
+		return decompressedLength;
 	}
 
 	/**
@@ -111,8 +118,8 @@ public class BZIP2Compressor {
 		int[] is_26_ = null;
 		int[] is_27_ = null;
 		bzip2BlockEntry.anInt3096 = 1;
-		if (anIntArray5786 == null) {
-			anIntArray5786 = new int[bzip2BlockEntry.anInt3096 * 100000];
+		if (bzip2BlockEntry.anIntArray5786 == null) {
+			bzip2BlockEntry.anIntArray5786 = new int[bzip2BlockEntry.anInt3096 * 100000];
 		}
 		boolean bool_28_ = true;
 		while (bool_28_) {
@@ -291,7 +298,7 @@ public class BZIP2Compressor {
 									& 0xff)]);
 					bzip2BlockEntry.anIntArray3075[i_30_ & 0xff] += i_65_;
 					for (/**/; i_65_ > 0; i_65_--) {
-						anIntArray5786[i_59_]
+						bzip2BlockEntry.anIntArray5786[i_59_]
 								= i_30_ & 0xff;
 						i_59_++;
 					}
@@ -350,7 +357,7 @@ public class BZIP2Compressor {
 					}
 					bzip2BlockEntry.anIntArray3075[(bzip2BlockEntry.aByteArray3107[i_29_ & 0xff]
 							& 0xff)]++;
-					anIntArray5786[i_59_]
+					bzip2BlockEntry.anIntArray5786[i_59_]
 							= bzip2BlockEntry.aByteArray3107[i_29_ & 0xff] & 0xff;
 					i_59_++;
 					if (i_54_ == 0) {
@@ -382,18 +389,18 @@ public class BZIP2Compressor {
 				bzip2BlockEntry.anIntArray3091[i_79_] += bzip2BlockEntry.anIntArray3091[i_79_ - 1];
 			}
 			for (int i_80_ = 0; i_80_ < i_59_; i_80_++) {
-				i_30_ = (byte) (anIntArray5786[i_80_]
+				i_30_ = (byte) (bzip2BlockEntry.anIntArray5786[i_80_]
 						& 0xff);
-				anIntArray5786[(bzip2BlockEntry.anIntArray3091
+				bzip2BlockEntry.anIntArray5786[(bzip2BlockEntry.anIntArray3091
 						[i_30_ & 0xff])]
 								|= i_80_ << 8;
 				bzip2BlockEntry.anIntArray3091[i_30_ & 0xff]++;
 			}
 			bzip2BlockEntry.anInt3106
-			= anIntArray5786[bzip2BlockEntry.anInt3083] >> 8;
+			= bzip2BlockEntry.anIntArray5786[bzip2BlockEntry.anInt3083] >> 8;
 				bzip2BlockEntry.anInt3071 = 0;
 				bzip2BlockEntry.anInt3106
-				= anIntArray5786[bzip2BlockEntry.anInt3106];
+				= bzip2BlockEntry.anIntArray5786[bzip2BlockEntry.anInt3106];
 				bzip2BlockEntry.anInt3070 = (byte) (bzip2BlockEntry.anInt3106 & 0xff);
 				bzip2BlockEntry.anInt3106 >>= 8;
 			bzip2BlockEntry.anInt3071++;
@@ -431,7 +438,7 @@ public class BZIP2Compressor {
 		int i_81_ = arg0.anInt3080;
 		int i_82_ = arg0.anInt3071;
 		int i_83_ = arg0.anInt3070;
-		int[] is = anIntArray5786;
+		int[] is = arg0.anIntArray5786;
 		int i_84_ = arg0.anInt3106;
 		byte[] is_85_ = arg0.decompressed;
 		int i_86_ = arg0.anInt3100;
@@ -530,7 +537,7 @@ public class BZIP2Compressor {
 		arg0.anInt3080 = i_81_;
 		arg0.anInt3071 = i_82_;
 		arg0.anInt3070 = i_83_;
-		anIntArray5786 = is;
+		arg0.anIntArray5786 = is;
 		arg0.anInt3106 = i_84_;
 		arg0.decompressed = is_85_;
 		arg0.anInt3100 = i_86_;
@@ -576,7 +583,7 @@ public class BZIP2Compressor {
 	}
 
 	public static void method148() {
-		bzip2BlockEntry = null;
+		BLOCK_ENTRY.remove();
 	}
 
 	public static void method149(BZIP2BlockEntry arg0) {
@@ -634,6 +641,7 @@ public class BZIP2Compressor {
 		public byte[] aByteArray3107;
 		public byte aByte3108;
 		public byte[] compressed;
+		public int[] anIntArray5786;
 
 		public BZIP2BlockEntry() {
 			aBooleanArray3072 = new boolean[16];
@@ -4,6 +4,11 @@ import org.displee.cache.index.archive.ArchiveSector;
 import org.displee.io.impl.InputStream;
 import org.displee.io.impl.OutputStream;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * A class used to (de)compress the data of an {@link ArchiveSector}.
  * @author Displee
@@ -11,6 +16,11 @@ import org.displee.io.impl.OutputStream;
  */
 public class Compression {
 
+	/**
+	 * The codec of each compression type, replaced as a whole whenever a codec is set.
+	 */
+	private static volatile Map<CompressionType, CompressionCodec> codecs = createCodecs();
+
 	/**
 	 * Compress archive data with the argued compression type.
 	 * @param uncompressed The data to compressed.
@@ -21,21 +31,7 @@ public class Compression {
 	 */
 	public static byte[] compress(byte[] uncompressed, CompressionType compressionType, int[] xteas, int revision) {
 		final OutputStream outputStream = new OutputStream();
-		final byte[] compressed;
-		switch(compressionType) {
-		case BZIP2:
-			compressed = BZIP2Compressor.compress(uncompressed);
-			break;
-		case GZIP:
-			compressed = GZIPUtils.unzip(uncompressed);
-			break;
-		case LZMA:
-			compressed = LZMACompressor.compress(uncompressed);
-			break;
-		default:
-			compressed = uncompressed;
-			break;
-		}
+		final byte[] compressed = compressionType == CompressionType.NONE ? uncompressed : getCodec(compressionType).compress(uncompressed);
 		outputStream.writeByte(compressionType.ordinal());
 		outputStream.writeInt(compressed.length);
 		if (!compressionType.equals(CompressionType.NONE)) {
@@ -58,32 +54,133 @@ public class Compression {
 	 * @return The decompressed data.
 	 */
 	public static byte[] decompress(ArchiveSector archiveSector, int[] keys) {
-		byte[] packedData = archiveSector.getData();
-		InputStream inputStream = new InputStream(packedData);
-		if(keys != null && (keys[0] != 0 || keys[1] != 0 || keys[2] != 0 || 0 != keys[3])) {
-			inputStream.decodeXTEA(keys, 5, packedData.length);
+		final byte[] decompressed = new byte[getDecompressedLength(archiveSector, keys)];
+		if (decompress(archiveSector, keys, decompressed, 0) == -1) {
+			return null;
+		}
+		return decompressed;
+	}
+
+	/**
+	 * Decompress an archive its data into the argued array, without allocating an array for the result.
+	 * Nothing is changed if the array is too small, see {@link #getDecompressedLength(ArchiveSector, int[])}.
+	 * @param archiveSector The archive to decompress.
+	 * @param keys The tea keys.
+	 * @param output The array to decompress into.
+	 * @param offset The offset in the array.
+	 * @return The decompressed length, or {@code -1} if the array is too small or the data could not be decompressed.
+	 */
+	public static int decompress(ArchiveSector archiveSector, int[] keys, byte[] output, int offset) {
+		final int length = getDecompressedLength(archiveSector, keys);
+		if (offset < 0 || length > output.length - offset) {
+			return -1;
+		}
+		final byte[] packedData = archiveSector.getData();
+		if (hasKeys(keys)) {
+			new InputStream(packedData).decodeXTEA(keys, 5, packedData.length);
 		}
-		int type = inputStream.readUnsignedByte();
+		final int type = packedData[0] & 0xFF;
+		final int compressedSize = (packedData[2] & 0xFF) << 16 | (packedData[3] & 0xFF) << 8 | packedData[4] & 0xFF;
 		archiveSector.setCompression(CompressionType.values()[type]);
+		if (type == CompressionType.NONE.ordinal()) {
+			System.arraycopy(packedData, 5, output, offset, length);
+		} else if (getCodec(CompressionType.values()[type]).decompress(packedData, 9, Math.min(compressedSize, packedData.length - 9), output, offset, length) == -1) {
+			return -1;
+		}
+		return length;
+	}
+
+	/**
+	 * Decompress an archive its data into the argued buffer, from its position on, and advance the position.
+	 * Buffers without an accessible array, such as direct buffers, are filled through a temporary array.
+	 * @param archiveSector The archive to decompress.
+	 * @param keys The tea keys.
+	 * @param output The buffer to decompress into.
+	 * @return The decompressed length, or {@code -1} if the buffer is too small or the data could not be decompressed.
+	 */
+	public static int decompress(ArchiveSector archiveSector, int[] keys, ByteBuffer output) {
+		final int length;
+		if (output.hasArray()) {
+			final int position = output.position();
+			length = output.remaining() < getDecompressedLength(archiveSector, keys) ? -1 : decompress(archiveSector, keys, output.array(), output.arrayOffset() + position);
+			if (length != -1) {
+				output.position(position + length);
+			}
+		} else {
+			final byte[] decompressed = output.remaining() < getDecompressedLength(archiveSector, keys) ? null : decompress(archiveSector, keys);
+			length = decompressed == null ? -1 : decompressed.length;
+			if (decompressed != null) {
+				output.put(decompressed);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Get the decompressed length of an archive its data, without decrypting it.
+	 * @param archiveSector The archive.
+	 * @param keys The tea keys.
+	 * @return The decompressed length.
+	 */
+	public static int getDecompressedLength(ArchiveSector archiveSector, int[] keys) {
+		final byte[] packedData = archiveSector.getData();
+		final int type = packedData[0] & 0xFF;
 		if (type > CompressionType.values().length - 1) {
 			throw new RuntimeException("Unknown compression type - type=" + type);
 		}
-		int compressedSize = inputStream.readInt() & 0xFFFFFF;
-		if (type != 0) {
-			int decompressedSize = inputStream.readInt() & 0xFFFFFF;
-			byte[] decompressed = new byte[decompressedSize];
-			if (type == CompressionType.BZIP2.ordinal()) {
-				BZIP2Compressor.decompress(decompressed, decompressed.length, archiveSector.getData(), compressedSize, 9);
-			} else if (type == CompressionType.GZIP.ordinal()) {
-				if (!GZIPUtils.inflate(inputStream, decompressed)) {
-					return null;
-				}
-			} else if (type == CompressionType.LZMA.ordinal()) {
-				return LZMACompressor.decompress(inputStream, decompressedSize);
-			}
-			return decompressed;
+		if (type == CompressionType.NONE.ordinal()) {
+			return (packedData[2] & 0xFF) << 16 | (packedData[3] & 0xFF) << 8 | packedData[4] & 0xFF;
 		}
-		return inputStream.flip(compressedSize);
+		final InputStream header = new InputStream(Arrays.copyOf(packedData, 13));
+		if (hasKeys(keys)) {
+			header.decodeXTEA(keys, 5, 13);
+		}
+		header.setOffset(5);
+		return header.readInt() & 0xFFFFFF;
+	}
+
+	/**
+	 * Get the codec of a compression type.
+	 * @param compressionType The compression type.
+	 * @return The codec, or {@code null} for {@link CompressionType#NONE}.
+	 */
+	public static CompressionCodec getCodec(CompressionType compressionType) {
+		return codecs.get(compressionType);
+	}
+
+	/**
+	 * Set the codec of a compression type, for every archive (de)compressed after this call.
+	 * @param compressionType The compression type.
+	 * @param codec The codec, or {@code null} to restore the default one.
+	 */
+	public static synchronized void setCodec(CompressionType compressionType, CompressionCodec codec) {
+		if (compressionType == CompressionType.NONE) {
+			throw new IllegalArgumentException("Uncompressed data has no codec.");
+		}
+		final Map<CompressionType, CompressionCodec> codecs = new EnumMap<>(Compression.codecs);
+		codecs.put(compressionType, codec == null ? createCodecs().get(compressionType) : codec);
+		Compression.codecs = codecs;
+	}
+
+	/**
+	 * Create the default codecs.
+	 * @return The codecs, by their compression type.
+	 */
+	private static Map<CompressionType, CompressionCodec> createCodecs() {
+		final Map<CompressionType, CompressionCodec> codecs = new EnumMap<>(CompressionType.class);
+		codecs.put(CompressionType.BZIP2, CompressionCodecs.BZIP2);
+		codecs.put(CompressionType.GZIP, CompressionCodecs.GZIP);
+		codecs.put(CompressionType.LZMA, CompressionCodecs.LZMA);
+		return codecs;
+	}
+
+	/**
+	 * Check if the argued tea keys are set.
+	 * @param keys The tea keys.
+	 * @return If the data is encrypted with them.
+	 */
+	private static boolean hasKeys(int[] keys) {
+		return keys != null && (keys[0] != 0 || keys[1] != 0 || keys[2] != 0 || 0 != keys[3]);
 	}
 
 	/**
@@ -0,0 +1,29 @@
+package org.displee.utilities;
+
+/**
+ * An implementation of a single {@link Compression.CompressionType}, registered through
+ * {@link Compression#setCodec(Compression.CompressionType, CompressionCodec)}.
+ * Codecs are shared between threads, so they must not keep state between calls.
+ */
+public interface CompressionCodec {
+
+	/**
+	 * Compress the argued data.
+	 * @param decompressed The data to compress.
+	 * @return The compressed data, without the container header, or {@code null} if it failed.
+	 */
+	byte[] compress(byte[] decompressed);
+
+	/**
+	 * Decompress the argued data into an array.
+	 * @param compressed The array holding the compressed data.
+	 * @param offset The offset of the compressed data.
+	 * @param length The length of the compressed data.
+	 * @param output The array to decompress into.
+	 * @param outputOffset The offset in the output array.
+	 * @param decompressedLength The decompressed length.
+	 * @return The amount of bytes decompressed, or {@code -1} if the data could not be decompressed.
+	 */
+	int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength);
+
+}
@@ -0,0 +1,162 @@
+package org.displee.utilities;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.displee.io.impl.OutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A class holding the available {@link CompressionCodec}s.
+ * The codecs a cache is written with have to be readable by the client, so the alternatives only change how fast
+ * (and, for the deflater, how small) the same format is produced or read.
+ */
+public class CompressionCodecs {
+
+	/**
+	 * The default bzip2 codec.
+	 */
+	public static final CompressionCodec BZIP2 = new CompressionCodec() {
+
+		@Override
+		public byte[] compress(byte[] decompressed) {
+			return BZIP2Compressor.compress(decompressed);
+		}
+
+		@Override
+		public int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+			return BZIP2Compressor.decompress(output, outputOffset, decompressedLength, compressed, offset);
+		}
+
+	};
+
+	/**
+	 * The default gzip codec.
+	 */
+	public static final CompressionCodec GZIP = new CompressionCodec() {
+
+		@Override
+		public byte[] compress(byte[] decompressed) {
+			return GZIPUtils.gzipBytes(decompressed);
+		}
+
+		@Override
+		public int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+			return GZIPUtils.inflate(compressed, offset, length, output, outputOffset, decompressedLength);
+		}
+
+	};
+
+	/**
+	 * The default LZMA codec.
+	 */
+	public static final CompressionCodec LZMA = new CompressionCodec() {
+
+		@Override
+		public byte[] compress(byte[] decompressed) {
+			return LZMACompressor.compress(decompressed);
+		}
+
+		@Override
+		public int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+			return LZMACompressor.decompress(compressed, offset, length, output, outputOffset, decompressedLength);
+		}
+
+	};
+
+	/**
+	 * A bzip2 codec using the streams of Apache Commons Compress.
+	 */
+	public static final CompressionCodec COMMONS_BZIP2 = new CompressionCodec() {
+
+		/**
+		 * The stream header the cache leaves out, for a block size of 100k.
+		 */
+		private final byte[] header = { 'B', 'Z', 'h', '1' };
+
+		@Override
+		public byte[] compress(byte[] decompressed) {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(decompressed.length / 2 + header.length);
+			try (BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(output, 1)) {
+				bzip2.write(decompressed);
+			} catch (IOException e) {
+				e.printStackTrace();
+				return null;
+			}
+			final byte[] stream = output.toByteArray();
+			final byte[] compressed = new byte[stream.length - header.length];
+			System.arraycopy(stream, header.length, compressed, 0, compressed.length);
+			return compressed;
+		}
+
+		@Override
+		public int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+			try (BZip2CompressorInputStream bzip2 = new BZip2CompressorInputStream(new SequenceInputStream(new ByteArrayInputStream(header), new ByteArrayInputStream(compressed, offset, length)))) {
+				int read = 0;
+				while (read < decompressedLength) {
+					final int count = bzip2.read(output, outputOffset + read, decompressedLength - read);
+					if (count == -1) {
+						break;
+					}
+					read += count;
+				}
+				return read;
+			} catch (IOException e) {
+				e.printStackTrace();
+				return -1;
+			}
+		}
+
+	};
+
+	/**
+	 * Get a gzip codec that compresses with a {@link Deflater} at the argued level.
+	 * It decompresses like {@link #GZIP}.
+	 * @param level The compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+	 * @return The codec.
+	 */
+	public static CompressionCodec deflater(int level) {
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level - level=" + level);
+		}
+		return new CompressionCodec() {
+
+			/**
+			 * The deflater of each thread.
+			 */
+			private final ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(() -> new Deflater(level, true));
+
+			@Override
+			public byte[] compress(byte[] decompressed) {
+				final Deflater deflater = this.deflater.get();
+				final CRC32 crc = new CRC32();
+				crc.update(decompressed, 0, decompressed.length);
+				final OutputStream outputStream = new OutputStream(decompressed.length / 2 + 32);
+				outputStream.writeBytes(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 });
+				final byte[] buffer = new byte[4096];
+				deflater.setInput(decompressed);
+				deflater.finish();
+				while (!deflater.finished()) {
+					outputStream.writeBytes(buffer, 0, deflater.deflate(buffer));
+				}
+				deflater.reset();
+				final int checksum = (int) crc.getValue();
+				outputStream.writeBytes(new byte[] { (byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24) });
+				outputStream.writeBytes(new byte[] { (byte) decompressed.length, (byte) (decompressed.length >> 8), (byte) (decompressed.length >> 16), (byte) (decompressed.length >> 24) });
+				return outputStream.flip();
+			}
+
+			@Override
+			public int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+				return GZIPUtils.inflate(compressed, offset, length, output, outputOffset, decompressedLength);
+			}
+
+		};
+	}
+
+}
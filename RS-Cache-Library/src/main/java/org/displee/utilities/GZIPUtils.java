@@ -45,27 +45,38 @@ public class GZIPUtils {
 	}
 	
 
-	private static Inflater inflater;
+	/**
+	 * The inflater of each thread, so threads can inflate at the same time.
+	 */
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
 	public static boolean inflate(InputStream inputStream, byte[] data) {
+		return inflate(inputStream.getBytes(), inputStream.getOffset(), inputStream.getBytes().length - inputStream.getOffset(), data, 0, data.length) != -1;
+	}
+
+	/**
+	 * Inflate gzip data into the argued array.
+	 * @param input The array holding the gzip data.
+	 * @param offset The offset of the gzip data.
+	 * @param length The length of the gzip data, including its header and trailer.
+	 * @param output The array to inflate into.
+	 * @param outputOffset The offset in the output array.
+	 * @param outputLength The maximum amount of bytes to inflate.
+	 * @return The amount of bytes inflated, or {@code -1} if the data is not gzip or could not be inflated.
+	 */
+	public static int inflate(byte[] input, int offset, int length, byte[] output, int outputOffset, int outputLength) {
+		if (length < 18 || (input[offset] & 0xff) != 0x1f || (input[offset + 1] & 0xff) != 0x8b) {
+			return -1;
+		}
+		final Inflater inflater = INFLATER.get();
 		try {
-			if ((inputStream.getBytes()[inputStream.getOffset()] ^ 0xffffffff) != -32 || inputStream.getBytes()[inputStream.getOffset() + 1] != -117) {
-				return false;
-			}
-			if (inflater == null) {
-				inflater = new Inflater(true);
-			}
-			try {
-				inflater.setInput(inputStream.getBytes(), 10 + inputStream.getOffset(), (-10 - inputStream.getOffset() - (8 - inputStream.getBytes().length)));
-				inflater.inflate(data);
-			} catch (Exception exception) {
-				inflater.reset();
-				return false;
-			}
+			inflater.setInput(input, offset + 10, length - 18);
+			return inflater.inflate(output, outputOffset, outputLength);
+		} catch (Exception exception) {
+			return -1;
+		} finally {
 			inflater.reset();
-		} catch (RuntimeException runtimeException) {
-			runtimeException.printStackTrace();
 		}
-		return true;
 	}
 
 }
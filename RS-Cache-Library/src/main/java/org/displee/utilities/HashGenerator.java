@@ -9,9 +9,9 @@ import java.util.zip.CRC32;
 public class HashGenerator {
 
 	/**
-	 * The CRC instance.
+	 * The CRC instance of each thread.
 	 */
-	public static final CRC32 CRC = new CRC32();
+	private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
 
 	/**
 	 * Get the CRC hash from the argued array of data.
@@ -30,9 +30,10 @@ public class HashGenerator {
 	 * @return The CRC hash.
 	 */
 	public static int getCRCHash(byte[] data, int offset, int length) {
-		CRC.update(data, offset, length);
-		final int hash = (int)CRC.getValue();
-		CRC.reset();
+		final CRC32 crc = CRC.get();
+		crc.update(data, offset, length);
+		final int hash = (int)crc.getValue();
+		crc.reset();
 		return hash;
 	}
 
@@ -0,0 +1,411 @@
+package org.displee.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A class that commits the batched writes of the cache files through a write-ahead journal.
+ * All runs of a commit are written to the journal and forced to the disk before any cache file is touched, so a crash
+ * either leaves an incomplete journal and untouched cache files, or a complete journal that is replayed the next time
+ * the cache is opened.
+ * <p>
+ * A commit may also replace whole files, by a sibling with the {@link #REPLACEMENT_SUFFIX} written beforehand. The
+ * replacements are moved into place after the journal is forced and before its runs are written, keeping the file they
+ * replace aside with the {@link #PREVIOUS_SUFFIX} until the journal is removed. A replacement that cannot be moved is
+ * rolled back along with the journal, and a journal whose replacement is neither pending nor done is not replayed, as
+ * its runs only fit the replacement. Replacements and previous files left behind without a journal are deleted.
+ * <p>
+ * A journal can also be saved and read back without being committed, which is how the overlay of a shared cache is kept
+ * until it is merged.
+ */
+public class Journal {
+
+	/**
+	 * The name of the journal file.
+	 */
+	public static final String FILE_NAME = "main_file_cache.journal";
+
+	/**
+	 * The suffix of a file that replaces the file with the same name without it.
+	 */
+	public static final String REPLACEMENT_SUFFIX = ".new";
+
+	/**
+	 * The suffix of a replaced file, kept until the commit that replaced it is complete.
+	 */
+	public static final String PREVIOUS_SUFFIX = ".old";
+
+	/**
+	 * The value every journal starts with.
+	 */
+	private static final int MAGIC = 0x4a524e4c;
+
+	/**
+	 * Commit the batched writes of the argued files.
+	 * @param directory The directory of the cache.
+	 * @param stores The files, by their name in the directory.
+	 * @throws IOException If it failed to write the journal or the files.
+	 */
+	public static void commit(File directory, Map<String, MappedFile> stores) throws IOException {
+		commit(directory, stores, Collections.emptyList());
+	}
+
+	/**
+	 * Commit the batched writes of the argued files, replacing other files as part of the same commit.
+	 * @param directory The directory of the cache.
+	 * @param stores The files, by their name in the directory.
+	 * @param replacements The names of the files to replace by their sibling with the {@link #REPLACEMENT_SUFFIX}.
+	 * @throws IOException If it failed to write the journal, replace the files or write the runs. If it failed to
+	 * replace the files, the replacements are rolled back and the journal is removed, unless the rollback failed too.
+	 */
+	public static void commit(File directory, Map<String, MappedFile> stores, Collection<String> replacements) throws IOException {
+		final Map<String, SortedMap<Long, byte[]>> runs = getRuns(stores);
+		if (runs.isEmpty() && replacements.isEmpty()) {
+			return;
+		}
+		final File journal = new File(directory, FILE_NAME);
+		write(journal, runs, replacements);
+		final List<String> replaced = new ArrayList<>();
+		try {
+			for (String replacement : replacements) {
+				replace(directory, replacement);
+				replaced.add(replacement);
+			}
+		} catch (IOException exception) {
+			for (String replacement : replaced) {
+				restore(directory, replacement);
+			}
+			Files.delete(journal.toPath());
+			throw exception;
+		}
+		for (Map.Entry<String, SortedMap<Long, byte[]>> file : runs.entrySet()) {
+			stores.get(file.getKey()).apply(file.getValue());
+		}
+		Files.delete(journal.toPath());
+		for (String replacement : replacements) {
+			Files.deleteIfExists(new File(directory, replacement + PREVIOUS_SUFFIX).toPath());
+		}
+	}
+
+	/**
+	 * Save the batched writes of the argued files to a journal that is kept instead of committed, such as the overlay
+	 * of a shared cache. The journal is replaced as a whole, so a crash leaves either the old or the new one.
+	 * @param journal The journal file.
+	 * @param stores The files, by their name in the cache directory.
+	 * @throws IOException If it failed to write the journal.
+	 */
+	public static void save(File journal, Map<String, MappedFile> stores) throws IOException {
+		final Map<String, SortedMap<Long, byte[]>> runs = getRuns(stores);
+		if (runs.isEmpty()) {
+			Files.deleteIfExists(journal.toPath());
+			return;
+		}
+		final File temporary = new File(journal.getPath() + ".tmp");
+		write(temporary, runs, Collections.emptyList());
+		try {
+			Files.move(temporary.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException exception) {
+			Files.move(temporary.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Read the runs of a saved journal, without touching the files they belong to.
+	 * @param journal The journal file.
+	 * @return The runs of every file, by its name, or nothing if the journal does not exist or is incomplete.
+	 * @throws IOException If it failed to read the journal.
+	 */
+	public static Map<String, SortedMap<Long, byte[]>> read(File journal) throws IOException {
+		final Map<String, SortedMap<Long, byte[]>> runs = new HashMap<>();
+		if (journal.exists() && isComplete(journal)) {
+			replay(journal, (name, position, data) -> runs.computeIfAbsent(name, key -> new TreeMap<>()).put(position, data));
+		}
+		return runs;
+	}
+
+	/**
+	 * Commit the batched writes of the argued files, such as the overlays of a shared cache, to the files with the same
+	 * names in the argued directory, which are opened for writing for the duration of the commit.
+	 * @param directory The directory of the cache.
+	 * @param stores The files holding the batched writes, by their name in the directory.
+	 * @throws IOException If it failed to open the files or commit the writes.
+	 */
+	public static void merge(File directory, Map<String, MappedFile> stores) throws IOException {
+		final Map<String, SortedMap<Long, byte[]>> runs = getRuns(stores);
+		final Map<String, MappedFile> targets = new LinkedHashMap<>();
+		try {
+			for (Map.Entry<String, SortedMap<Long, byte[]>> file : runs.entrySet()) {
+				final MappedFile target = new MappedFile(FileChannel.open(new File(directory, file.getKey()).toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE));
+				targets.put(file.getKey(), target);
+				target.beginBatch();
+				for (Map.Entry<Long, byte[]> run : file.getValue().entrySet()) {
+					target.write(run.getKey(), run.getValue(), 0, run.getValue().length);
+				}
+			}
+			commit(directory, targets);
+		} finally {
+			for (MappedFile target : targets.values()) {
+				target.getChannel().close();
+			}
+		}
+	}
+
+	/**
+	 * Replay the journal left behind in the argued directory, if it is complete, and remove it. The runs are not
+	 * replayed if a file the journal replaces has neither its replacement nor its previous file left.
+	 * @param directory The directory of the cache.
+	 * @return If a journal was replayed.
+	 * @throws IOException If it failed to write the cache files.
+	 */
+	public static boolean recover(File directory) throws IOException {
+		final File journal = new File(directory, FILE_NAME);
+		boolean complete = journal.exists() && isComplete(journal);
+		if (complete) {
+			complete = replay(journal, new Replay() {
+
+				@Override
+				public boolean replace(String name) throws IOException {
+					final File target = new File(directory, name);
+					final File previous = new File(directory, name + PREVIOUS_SUFFIX);
+					if (new File(directory, name + REPLACEMENT_SUFFIX).exists()) {
+						if (target.exists()) {
+							Files.deleteIfExists(previous.toPath());
+							Journal.replace(directory, name);
+						} else {
+							move(new File(directory, name + REPLACEMENT_SUFFIX), target);
+						}
+						return true;
+					} else if (previous.exists() && !target.exists()) {
+						move(previous, target);
+						return false;
+					}
+					return previous.exists();
+				}
+
+				@Override
+				public void run(String name, long position, byte[] data) throws IOException {
+					try (FileChannel channel = FileChannel.open(new File(directory, name).toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+						final ByteBuffer buffer = ByteBuffer.wrap(data);
+						while (buffer.hasRemaining()) {
+							channel.write(buffer, position + buffer.position());
+						}
+						channel.force(false);
+					}
+				}
+
+			});
+		}
+		final File[] leftovers = directory.listFiles((dir, name) -> name.startsWith("main_file_cache.") && (name.endsWith(REPLACEMENT_SUFFIX) || name.endsWith(PREVIOUS_SUFFIX)));
+		if (leftovers != null) {
+			for (File leftover : leftovers) {
+				Files.delete(leftover.toPath());
+			}
+		}
+		Files.deleteIfExists(journal.toPath());
+		return complete;
+	}
+
+	/**
+	 * Get the batched writes of the argued files.
+	 * @param stores The files, by their name.
+	 * @return The runs of every file that has any, by its name.
+	 */
+	private static Map<String, SortedMap<Long, byte[]>> getRuns(Map<String, MappedFile> stores) {
+		final Map<String, SortedMap<Long, byte[]>> runs = new LinkedHashMap<>();
+		for (Map.Entry<String, MappedFile> store : stores.entrySet()) {
+			final SortedMap<Long, byte[]> storeRuns = store.getValue().getBatchedRuns();
+			if (!storeRuns.isEmpty()) {
+				runs.put(store.getKey(), storeRuns);
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * Write a journal and force it to the disk.
+	 * @param journal The journal file.
+	 * @param runs The runs of the files, by their name.
+	 * @param replacements The names of the files to replace.
+	 * @throws IOException If it failed to write the journal.
+	 */
+	private static void write(File journal, Map<String, SortedMap<Long, byte[]>> runs, Collection<String> replacements) throws IOException {
+		try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+			final DataOutputStream output = new DataOutputStream(checked);
+			output.writeInt(MAGIC);
+			output.writeInt(replacements.size());
+			for (String replacement : replacements) {
+				output.writeUTF(replacement);
+			}
+			for (Map.Entry<String, SortedMap<Long, byte[]>> file : runs.entrySet()) {
+				for (Map.Entry<Long, byte[]> run : file.getValue().entrySet()) {
+					output.writeBoolean(true);
+					output.writeUTF(file.getKey());
+					output.writeLong(run.getKey());
+					output.writeInt(run.getValue().length);
+					output.write(run.getValue());
+				}
+			}
+			output.writeBoolean(false);
+			output.writeLong(checked.getChecksum().getValue());
+			output.flush();
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Read a complete journal, passing its replacements and then its runs to the argued handler. The runs are skipped
+	 * if the handler refused any of the replacements.
+	 * @param journal The journal file.
+	 * @param replay The handler.
+	 * @return If the runs were passed to the handler.
+	 * @throws IOException If it failed to read the journal, or the handler failed.
+	 */
+	private static boolean replay(File journal, Replay replay) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal.toPath()), 1 << 16))) {
+			input.readInt();
+			boolean accepted = true;
+			for (int replacement = input.readInt(); replacement > 0; replacement--) {
+				accepted &= replay.replace(input.readUTF());
+			}
+			if (!accepted) {
+				return false;
+			}
+			while (input.readBoolean()) {
+				final String name = input.readUTF();
+				final long position = input.readLong();
+				final byte[] data = new byte[input.readInt()];
+				input.readFully(data);
+				replay.run(name, position, data);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Move the replacement of a file into its place, keeping the file aside with the {@link #PREVIOUS_SUFFIX}. If the
+	 * replacement cannot be moved, the file is moved back.
+	 * @param directory The directory of the cache.
+	 * @param name The name of the file to replace.
+	 * @throws IOException If it failed to move the files.
+	 */
+	private static void replace(File directory, String name) throws IOException {
+		final File target = new File(directory, name);
+		final File previous = new File(directory, name + PREVIOUS_SUFFIX);
+		move(target, previous);
+		try {
+			move(new File(directory, name + REPLACEMENT_SUFFIX), target);
+		} catch (IOException exception) {
+			move(previous, target);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Undo the replacement of a file, moving the replacement back beside it and the previous file into its place.
+	 * @param directory The directory of the cache.
+	 * @param name The name of the replaced file.
+	 * @throws IOException If it failed to move the files.
+	 */
+	private static void restore(File directory, String name) throws IOException {
+		final File target = new File(directory, name);
+		move(target, new File(directory, name + REPLACEMENT_SUFFIX));
+		move(new File(directory, name + PREVIOUS_SUFFIX), target);
+	}
+
+	/**
+	 * Move a file, atomically if the file system supports it.
+	 * @param source The file to move.
+	 * @param target The file to move it to, which is replaced if it exists.
+	 * @throws IOException If it failed to move the file.
+	 */
+	private static void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException exception) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Check if the journal was written completely.
+	 * @param journal The journal file.
+	 * @return If the journal ends with a valid checksum.
+	 */
+	private static boolean isComplete(File journal) {
+		try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(journal.toPath()), 1 << 16), new CRC32())) {
+			final DataInputStream input = new DataInputStream(checked);
+			if (input.readInt() != MAGIC) {
+				return false;
+			}
+			for (int replacement = input.readInt(); replacement > 0; replacement--) {
+				input.readUTF();
+			}
+			while (input.readBoolean()) {
+				input.readUTF();
+				input.readLong();
+				final int length = input.readInt();
+				if (length < 0 || input.skipBytes(length) != length) {
+					return false;
+				}
+			}
+			final long checksum = checked.getChecksum().getValue();
+			return input.readLong() == checksum;
+		} catch (EOFException exception) {
+			return false;
+		} catch (IOException exception) {
+			exception.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * A handler of the content of a journal.
+	 */
+	private interface Replay {
+
+		/**
+		 * Handle a file that is replaced by the journal.
+		 * @param name The name of the file.
+		 * @return If the runs of the journal can be handled.
+		 * @throws IOException If it failed to replace the file.
+		 */
+		default boolean replace(String name) throws IOException {
+			return true;
+		}
+
+		/**
+		 * Handle a run of the journal.
+		 * @param name The name of the file.
+		 * @param position The position in the file.
+		 * @param data The data.
+		 * @throws IOException If it failed to write the run.
+		 */
+		void run(String name, long position, byte[] data) throws IOException;
+
+	}
+
+}
@@ -15,9 +15,9 @@ import java.io.*;
 public class LZMACompressor {
 
 	/**
-	 * The decoder.
+	 * The decoder of each thread, so threads can decompress at the same time.
 	 */
-	private static final Decoder DECODER = new Decoder();
+	private static final ThreadLocal<Decoder> DECODER = ThreadLocal.withInitial(Decoder::new);
 
 	/**
 	 * The encoder.
@@ -49,6 +49,17 @@ public class LZMACompressor {
 	 * @return The compressed data.
 	 */
 	public static byte[] compress(byte[] decompressed) {
+		synchronized (ENCODER) {
+			return compressLocked(decompressed);
+		}
+	}
+
+	/**
+	 * Compress the decompressed data, while holding the lock of the shared encoder.
+	 * @param decompressed The decompressed data.
+	 * @return The compressed data.
+	 */
+	private static byte[] compressLocked(byte[] decompressed) {
 		try {
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
 			ByteArrayInputStream bais = new ByteArrayInputStream(decompressed);
@@ -101,14 +112,95 @@ public class LZMACompressor {
 			throw new IOException("LZMA: Bad input.");
 		}
 		ByteArrayOutputStream output = new ByteArrayOutputStream(decompressedLength);
-		synchronized (DECODER) {
-			if (!DECODER.setDecoderProperties(properties)) {
-				throw new IOException("LZMA: Bad properties.");
-			}
-			DECODER.code(input, output, decompressedLength);
+		final Decoder decoder = DECODER.get();
+		if (!decoder.setDecoderProperties(properties)) {
+			throw new IOException("LZMA: Bad properties.");
 		}
+		decoder.code(input, output, decompressedLength);
 		output.flush();
 		return output.toByteArray();
 	}
 
+	/**
+	 * Decompress LZMA data into the argued array.
+	 * @param compressed The array holding the compressed data.
+	 * @param offset The offset of the compressed data.
+	 * @param length The length of the compressed data.
+	 * @param output The array to decompress into.
+	 * @param outputOffset The offset in the output array.
+	 * @param decompressedLength The decompressed length.
+	 * @return The amount of bytes decompressed, or {@code -1} if the data could not be decompressed.
+	 */
+	public static int decompress(byte[] compressed, int offset, int length, byte[] output, int outputOffset, int decompressedLength) {
+		if (length < 5 || outputOffset + decompressedLength > output.length) {
+			return -1;
+		}
+		final Decoder decoder = DECODER.get();
+		final byte[] properties = new byte[5];
+		System.arraycopy(compressed, offset, properties, 0, properties.length);
+		if (!decoder.setDecoderProperties(properties)) {
+			return -1;
+		}
+		final ArrayOutput target = new ArrayOutput(output, outputOffset, decompressedLength);
+		try {
+			decoder.code(new ByteArrayInputStream(compressed, offset + 5, length - 5), target, decompressedLength);
+		} catch (IOException e) {
+			e.printStackTrace();
+			DECODER.remove();
+			return -1;
+		}
+		return target.position - outputOffset;
+	}
+
+	/**
+	 * An output stream that writes into a region of an existing array.
+	 */
+	private static final class ArrayOutput extends java.io.OutputStream {
+
+		/**
+		 * The array to write into.
+		 */
+		private final byte[] array;
+
+		/**
+		 * The position to write at next.
+		 */
+		private int position;
+
+		/**
+		 * The position the region ends at.
+		 */
+		private final int limit;
+
+		/**
+		 * Constructs a new {@code ArrayOutput} {@code Object}.
+		 * @param array The array to write into.
+		 * @param offset The offset of the region.
+		 * @param length The length of the region.
+		 */
+		private ArrayOutput(byte[] array, int offset, int length) {
+			this.array = array;
+			this.position = offset;
+			this.limit = offset + length;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (position >= limit) {
+				throw new IOException("LZMA: Output overflow.");
+			}
+			array[position++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len > limit - position) {
+				throw new IOException("LZMA: Output overflow.");
+			}
+			System.arraycopy(b, off, array, position, len);
+			position += len;
+		}
+
+	}
+
 }
@@ -0,0 +1,210 @@
+package org.displee.utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * A class that finds the elements of an array by their id or name in constant time.
+ * The tables are built from the array the first time it is looked up, and built again once the owner replaces the
+ * array, or when an id is missed while the array still has empty slots. Owners that rename an element in place have to
+ * call {@link #invalidateNames()}.
+ * @param <T> The type of the elements.
+ */
+public class LookupTable<T> {
+
+	/**
+	 * The smallest amount of slots a dense id table may have, no matter how few elements there are.
+	 */
+	private static final int MINIMUM_DENSE_LENGTH = 256;
+
+	/**
+	 * The function that gets the id of an element.
+	 */
+	private final ToIntFunction<T> id;
+
+	/**
+	 * The function that gets the unformatted name of an element.
+	 */
+	private final ToIntFunction<T> name;
+
+	/**
+	 * The tables of the array that was last looked up.
+	 */
+	private volatile Tables tables;
+
+	/**
+	 * Constructs a new {@code LookupTable} {@code Object}.
+	 * @param id The function that gets the id of an element.
+	 * @param name The function that gets the unformatted name of an element.
+	 */
+	public LookupTable(ToIntFunction<T> id, ToIntFunction<T> name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	/**
+	 * Get an element by its id.
+	 * @param elements The array to look in.
+	 * @param id The id of the element.
+	 * @return The element, or {@code null} if the array does not contain it.
+	 */
+	public T get(T[] elements, int id) {
+		if (elements == null) {
+			return null;
+		}
+		Tables tables = tables(elements);
+		T element = tables.get(id);
+		if (element == null && tables.incomplete) {
+			this.tables = tables = new Tables(elements);
+			element = tables.get(id);
+		}
+		return element != null && this.id.applyAsInt(element) == id ? element : null;
+	}
+
+	/**
+	 * Get an element by its unformatted name.
+	 * If more elements share the name, the one that comes first in the array is returned.
+	 * @param elements The array to look in.
+	 * @param name The unformatted name of the element.
+	 * @return The element, or {@code null} if the array does not contain it.
+	 */
+	public T getByName(T[] elements, int name) {
+		if (elements == null) {
+			return null;
+		}
+		Tables tables = tables(elements);
+		T element = tables.getByName(name);
+		if (element != null && this.name.applyAsInt(element) != name) {
+			tables.names = null;
+			element = tables.getByName(name);
+		}
+		return element;
+	}
+
+	/**
+	 * Drop the name table, so it is built again the next time a name is looked up.
+	 */
+	public void invalidateNames() {
+		final Tables tables = this.tables;
+		if (tables != null) {
+			tables.names = null;
+		}
+	}
+
+	/**
+	 * Get the tables of the argued array, building them if it is not the array they were built from.
+	 * @param elements The array.
+	 * @return The tables.
+	 */
+	private Tables tables(T[] elements) {
+		Tables tables = this.tables;
+		if (tables == null || tables.elements != elements) {
+			this.tables = tables = new Tables(elements);
+		}
+		return tables;
+	}
+
+	/**
+	 * The id and name tables of a single array.
+	 */
+	private final class Tables {
+
+		/**
+		 * The array the tables were built from.
+		 */
+		private final T[] elements;
+
+		/**
+		 * The elements indexed by their id, if the ids are dense enough.
+		 */
+		private final Object[] dense;
+
+		/**
+		 * The elements mapped by their id, if the ids are too sparse for {@code dense}.
+		 */
+		private final Map<Integer, T> sparse;
+
+		/**
+		 * If the array still had empty slots, as it does while its owner is filling it.
+		 */
+		private final boolean incomplete;
+
+		/**
+		 * The elements mapped by their unformatted name, built on the first name lookup.
+		 */
+		private volatile Map<Integer, T> names;
+
+		/**
+		 * Constructs a new {@code Tables} {@code Object}.
+		 * @param elements The array to build the tables from.
+		 */
+		private Tables(T[] elements) {
+			this.elements = elements;
+			int highest = -1;
+			boolean negative = false;
+			boolean incomplete = false;
+			for (T element : elements) {
+				if (element == null) {
+					incomplete = true;
+				} else {
+					final int id = LookupTable.this.id.applyAsInt(element);
+					highest = Math.max(highest, id);
+					negative |= id < 0;
+				}
+			}
+			this.incomplete = incomplete;
+			if (!negative && highest < Math.max(MINIMUM_DENSE_LENGTH, elements.length * 4)) {
+				dense = new Object[highest + 1];
+				sparse = null;
+				for (int index = elements.length - 1; index >= 0; index--) {
+					if (elements[index] != null) {
+						dense[LookupTable.this.id.applyAsInt(elements[index])] = elements[index];
+					}
+				}
+			} else {
+				dense = null;
+				sparse = new HashMap<>(elements.length * 2);
+				for (int index = elements.length - 1; index >= 0; index--) {
+					if (elements[index] != null) {
+						sparse.put(LookupTable.this.id.applyAsInt(elements[index]), elements[index]);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Get an element by its id.
+		 * @param id The id.
+		 * @return The element.
+		 */
+		@SuppressWarnings("unchecked")
+		private T get(int id) {
+			if (dense != null) {
+				return id >= 0 && id < dense.length ? (T) dense[id] : null;
+			}
+			return sparse.get(id);
+		}
+
+		/**
+		 * Get an element by its unformatted name.
+		 * @param name The unformatted name.
+		 * @return The element.
+		 */
+		private T getByName(int name) {
+			Map<Integer, T> names = this.names;
+			if (names == null) {
+				names = new HashMap<>(elements.length * 2);
+				for (int index = elements.length - 1; index >= 0; index--) {
+					if (elements[index] != null) {
+						names.put(LookupTable.this.name.applyAsInt(elements[index]), elements[index]);
+					}
+				}
+				this.names = names;
+			}
+			return names.get(name);
+		}
+
+	}
+
+}
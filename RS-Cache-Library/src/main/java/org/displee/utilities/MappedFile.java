@@ -0,0 +1,524 @@
+package org.displee.utilities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class that keeps a {@link FileChannel} mapped into memory in large windows, so reading and writing sectors does
+ * not map the file again for every access.
+ * The windows only ever cover the current length of the file, as mapping past the end would grow it. Writes past the
+ * mapped length go through the channel, and the windows are remapped the next time that region is accessed.
+ * <p>
+ * While a batch is open, writes are kept in memory pages instead and reads see them on top of the file. The
+ * {@link Journal} takes the pages when the batch is committed and writes them to the file in one go.
+ * <p>
+ * A read only file can be shared through overlays, see {@link #MappedFile(MappedFile)}, which are always batching and
+ * read the file through the windows of the shared file.
+ */
+public class MappedFile {
+
+	/**
+	 * The size of a single mapped window in bytes.
+	 */
+	public static final int WINDOW_SIZE = 1 << 26;
+
+	/**
+	 * The size of a page of batched writes in bytes.
+	 */
+	private static final int PAGE_SIZE = 4096;
+
+	/**
+	 * The file channel.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * If the channel is only opened for reading.
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * The shared file this file is an overlay of, or {@code null} if it maps the channel itself.
+	 */
+	private final MappedFile base;
+
+	/**
+	 * The mapped windows, every one of them {@link #WINDOW_SIZE} bytes long except for the last.
+	 */
+	private volatile MappedByteBuffer[] windows = new MappedByteBuffer[0];
+
+	/**
+	 * The windows that were mapped again to cover more of the file, kept until they are unmapped.
+	 */
+	private final List<MappedByteBuffer> retired = new ArrayList<>();
+
+	/**
+	 * The amount of bytes covered by the windows.
+	 */
+	private volatile long mapped;
+
+	/**
+	 * The length of the file on disk.
+	 */
+	private volatile long stored;
+
+	/**
+	 * The length of the file, including the batched writes.
+	 */
+	private volatile long size;
+
+	/**
+	 * The pages written since the batch was opened, by their index, or {@code null} if no batch is open.
+	 */
+	private volatile Map<Long, byte[]> pages;
+
+	/**
+	 * Constructs a new {@code MappedFile} {@code Object}.
+	 * @param channel The file channel to map, opened for reading and writing.
+	 * @throws IOException If it failed to get the size of the channel.
+	 */
+	public MappedFile(FileChannel channel) throws IOException {
+		this(channel, false);
+	}
+
+	/**
+	 * Constructs a new {@code MappedFile} {@code Object}.
+	 * @param channel The file channel to map.
+	 * @param readOnly If the channel is only opened for reading, in which case it can only be written to in a batch.
+	 * @throws IOException If it failed to get the size of the channel.
+	 */
+	public MappedFile(FileChannel channel, boolean readOnly) throws IOException {
+		this.channel = channel;
+		this.readOnly = readOnly;
+		this.base = null;
+		this.stored = this.size = channel.size();
+	}
+
+	/**
+	 * Constructs a new {@code MappedFile} {@code Object} that is a private, copy-on-write overlay of a shared file.
+	 * The overlay is always batching, so writes never reach the shared file.
+	 * @param base The shared file.
+	 */
+	public MappedFile(MappedFile base) {
+		this.channel = base.channel;
+		this.readOnly = true;
+		this.base = base;
+		this.stored = this.size = base.size();
+		this.pages = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get a view of the argued region, sharing the mapped memory when the region lies within a single window.
+	 * @param position The position in the file.
+	 * @param length The length of the region.
+	 * @return The region as a read only buffer.
+	 * @throws IOException If the region is not within the file.
+	 */
+	public ByteBuffer slice(long position, int length) throws IOException {
+		if (pages != null && isBatched(position, length)) {
+			final byte[] data = new byte[length];
+			read(position, data, 0, length);
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		} else if (base != null) {
+			return base.slice(position, length);
+		}
+		map(position, length);
+		final MappedByteBuffer[] windows = this.windows;
+		final int window = (int) (position / WINDOW_SIZE);
+		final int offset = (int) (position % WINDOW_SIZE);
+		if (offset + length <= windows[window].capacity()) {
+			final ByteBuffer duplicate = windows[window].duplicate();
+			duplicate.limit(offset + length);
+			duplicate.position(offset);
+			return duplicate.slice().asReadOnlyBuffer();
+		}
+		final byte[] data = new byte[length];
+		read(position, data, 0, length);
+		return ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Read data from the file.
+	 * @param position The position in the file.
+	 * @param output The array to read into.
+	 * @param offset The offset in the array.
+	 * @param length The amount of bytes to read.
+	 * @throws IOException If the region is not within the file.
+	 */
+	public void read(long position, byte[] output, int offset, int length) throws IOException {
+		final Map<Long, byte[]> pages = this.pages;
+		if (pages == null) {
+			readStored(position, output, offset, length);
+			return;
+		}
+		if (position < 0 || length < 0 || position + length > size) {
+			throw new EOFException("Region[position=" + position + ", length=" + length + "] is beyond the end of the file[size=" + size + "].");
+		}
+		while (length > 0) {
+			final int pageOffset = (int) (position % PAGE_SIZE);
+			final int count = Math.min(length, PAGE_SIZE - pageOffset);
+			final byte[] page = pages.get(position / PAGE_SIZE);
+			if (page != null) {
+				System.arraycopy(page, pageOffset, output, offset, count);
+			} else {
+				final int available = (int) Math.max(0, Math.min(count, stored - position));
+				if (available > 0) {
+					readStored(position, output, offset, available);
+				}
+				Arrays.fill(output, offset + available, offset + count, (byte) 0);
+			}
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Read data from the file on disk, ignoring the batched writes.
+	 * @param position The position in the file.
+	 * @param output The array to read into.
+	 * @param offset The offset in the array.
+	 * @param length The amount of bytes to read.
+	 * @throws IOException If the region is not within the file.
+	 */
+	private void readStored(long position, byte[] output, int offset, int length) throws IOException {
+		if (base != null) {
+			base.readStored(position, output, offset, length);
+			return;
+		}
+		map(position, length);
+		final MappedByteBuffer[] windows = this.windows;
+		while (length > 0) {
+			final ByteBuffer window = windows[(int) (position / WINDOW_SIZE)].duplicate();
+			window.position((int) (position % WINDOW_SIZE));
+			final int count = Math.min(length, window.remaining());
+			window.get(output, offset, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Write data to the file, growing it if required.
+	 * @param position The position in the file.
+	 * @param input The array to write from.
+	 * @param offset The offset in the array.
+	 * @param length The amount of bytes to write.
+	 * @throws IOException If it failed to write the data.
+	 */
+	public void write(long position, byte[] input, int offset, int length) throws IOException {
+		final Map<Long, byte[]> pages = this.pages;
+		if (pages != null) {
+			final long end = position + length;
+			while (length > 0) {
+				final long index = position / PAGE_SIZE;
+				final int pageOffset = (int) (position % PAGE_SIZE);
+				final int count = Math.min(length, PAGE_SIZE - pageOffset);
+				byte[] page = pages.get(index);
+				if (page == null) {
+					page = new byte[PAGE_SIZE];
+					final long start = index * PAGE_SIZE;
+					final int available = (int) Math.max(0, Math.min(PAGE_SIZE, stored - start));
+					if (available > 0) {
+						readStored(start, page, 0, available);
+					}
+					pages.put(index, page);
+				}
+				System.arraycopy(input, offset, page, pageOffset, count);
+				position += count;
+				offset += count;
+				length -= count;
+			}
+			size = Math.max(size, end);
+			return;
+		} else if (readOnly) {
+			throw new IOException("The file is read only.");
+		}
+		if (position + length > mapped) {
+			synchronized (this) {
+				final ByteBuffer buffer = ByteBuffer.wrap(input, offset, length);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, position + buffer.position() - offset);
+				}
+				stored = Math.max(stored, position + length);
+				size = Math.max(size, stored);
+			}
+			return;
+		}
+		final MappedByteBuffer[] windows = this.windows;
+		while (length > 0) {
+			final ByteBuffer window = windows[(int) (position / WINDOW_SIZE)].duplicate();
+			window.position((int) (position % WINDOW_SIZE));
+			final int count = Math.min(length, window.remaining());
+			window.put(input, offset, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Truncate the file to the argued size.
+	 * @param size The new size.
+	 * @throws IOException If it failed to truncate the file.
+	 */
+	public synchronized void truncate(long size) throws IOException {
+		mapped = 0;
+		windows = new MappedByteBuffer[0];
+		channel.truncate(size);
+		stored = channel.size();
+		final Map<Long, byte[]> pages = this.pages;
+		if (pages == null) {
+			this.size = stored;
+			return;
+		}
+		pages.keySet().removeIf(index -> index * PAGE_SIZE >= size);
+		final byte[] last = pages.get(size / PAGE_SIZE);
+		if (last != null) {
+			Arrays.fill(last, (int) (size % PAGE_SIZE), PAGE_SIZE, (byte) 0);
+		}
+		this.size = Math.min(this.size, size);
+	}
+
+	/**
+	 * Open a batch, keeping all writes in memory until the {@link Journal} commits them.
+	 */
+	public synchronized void beginBatch() {
+		if (pages == null) {
+			pages = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * Close the batch. Writes that have not been committed are discarded.
+	 * An overlay keeps batching, it is emptied and takes over the current length of the shared file instead.
+	 */
+	public synchronized void endBatch() {
+		if (base != null) {
+			pages = new ConcurrentHashMap<>();
+			try {
+				stored = size = channel.size();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+		pages = null;
+		size = stored;
+	}
+
+	/**
+	 * Check if a batch is open.
+	 * @return If writes are being batched.
+	 */
+	public boolean isBatching() {
+		return pages != null;
+	}
+
+	/**
+	 * Get the amount of bytes held by the batch.
+	 * @return The size of the batched pages.
+	 */
+	public long getBatchedLength() {
+		final Map<Long, byte[]> pages = this.pages;
+		return pages == null ? 0 : (long) pages.size() * PAGE_SIZE;
+	}
+
+	/**
+	 * Check if the argued region touches any batched page.
+	 * @param position The position in the file.
+	 * @param length The length of the region.
+	 * @return If a page in the region has been written since the batch was opened.
+	 */
+	private boolean isBatched(long position, int length) {
+		final Map<Long, byte[]> pages = this.pages;
+		if (pages == null) {
+			return false;
+		} else if (position + length > stored) {
+			return true;
+		}
+		for (long index = position / PAGE_SIZE, last = (position + length - 1) / PAGE_SIZE; index <= last; index++) {
+			if (pages.containsKey(index)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the batched writes, with adjacent pages joined into a single run.
+	 * @return The runs, by their position in the file.
+	 */
+	SortedMap<Long, byte[]> getBatchedRuns() {
+		final SortedMap<Long, byte[]> runs = new TreeMap<>();
+		final Map<Long, byte[]> pages = this.pages;
+		if (pages == null || pages.isEmpty()) {
+			return runs;
+		}
+		final long[] indices = pages.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+		final long size = this.size;
+		int first = 0;
+		while (first < indices.length) {
+			int last = first;
+			while (last + 1 < indices.length && indices[last + 1] == indices[last] + 1) {
+				last++;
+			}
+			final long start = indices[first] * PAGE_SIZE;
+			final byte[] run = new byte[(int) Math.max(0, Math.min((long) (last - first + 1) * PAGE_SIZE, size - start))];
+			for (int index = first; index <= last; index++) {
+				final int offset = (index - first) * PAGE_SIZE;
+				if (offset < run.length) {
+					System.arraycopy(pages.get(indices[index]), 0, run, offset, Math.min(PAGE_SIZE, run.length - offset));
+				}
+			}
+			if (run.length > 0) {
+				runs.put(start, run);
+			}
+			first = last + 1;
+		}
+		return runs;
+	}
+
+	/**
+	 * Write committed runs to the file and force them to the disk, emptying the batch.
+	 * @param runs The runs, by their position in the file.
+	 * @throws IOException If it failed to write the runs.
+	 */
+	synchronized void apply(SortedMap<Long, byte[]> runs) throws IOException {
+		if (readOnly) {
+			throw new IOException("The file is read only.");
+		}
+		for (Map.Entry<Long, byte[]> run : runs.entrySet()) {
+			final ByteBuffer buffer = ByteBuffer.wrap(run.getValue());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, run.getKey() + buffer.position());
+			}
+		}
+		channel.force(false);
+		stored = channel.size();
+		if (pages != null) {
+			pages = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * Make sure the argued region is mapped.
+	 * @param position The position in the file.
+	 * @param length The length of the region.
+	 * @throws IOException If the region is not within the file.
+	 */
+	private void map(long position, int length) throws IOException {
+		final long end = position + length;
+		if (position < 0 || length < 0) {
+			throw new IllegalArgumentException("Invalid region[position=" + position + ", length=" + length + "]");
+		} else if (end <= mapped) {
+			return;
+		}
+		synchronized (this) {
+			if (end <= mapped) {
+				return;
+			}
+			if (end > stored) {
+				stored = Math.max(stored, channel.size());
+				size = Math.max(size, stored);
+				if (end > stored) {
+					throw new EOFException("Region[position=" + position + ", length=" + length + "] is beyond the end of the file[size=" + stored + "].");
+				}
+			}
+			final long stored = this.stored;
+			final int full = (int) (mapped / WINDOW_SIZE);
+			final int count = (int) ((stored + WINDOW_SIZE - 1) / WINDOW_SIZE);
+			final MappedByteBuffer[] windows = Arrays.copyOf(this.windows, count);
+			if (full < this.windows.length) {
+				retired.add(this.windows[full]);
+			}
+			for (int window = full; window < count; window++) {
+				final long start = (long) window * WINDOW_SIZE;
+				windows[window] = channel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, start, Math.min(WINDOW_SIZE, stored - start));
+			}
+			this.windows = windows;
+			mapped = stored;
+		}
+	}
+
+	/**
+	 * Unmap the windows, so the file can be moved or deleted on platforms that refuse to while it is mapped. The
+	 * windows are mapped again the next time they are accessed. No view of the windows may be in use, nor be used
+	 * afterwards.
+	 * @return If the windows were unmapped, rather than left for the garbage collector.
+	 */
+	public synchronized boolean unmap() {
+		if (base != null) {
+			return false;
+		}
+		final List<MappedByteBuffer> buffers = new ArrayList<>(retired);
+		buffers.addAll(Arrays.asList(windows));
+		windows = new MappedByteBuffer[0];
+		mapped = 0;
+		retired.clear();
+		boolean unmapped = true;
+		for (MappedByteBuffer buffer : buffers) {
+			unmapped &= clean(buffer);
+		}
+		return unmapped;
+	}
+
+	/**
+	 * Release the memory mapped by a buffer, through the cleaner of the runtime.
+	 * @param buffer The buffer.
+	 * @return If the buffer was released.
+	 */
+	private static boolean clean(MappedByteBuffer buffer) {
+		try {
+			try {
+				final Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+				final Method invokeCleaner = unsafe.getMethod("invokeCleaner", ByteBuffer.class);
+				final Field instance = unsafe.getDeclaredField("theUnsafe");
+				instance.setAccessible(true);
+				invokeCleaner.invoke(instance.get(null), buffer);
+			} catch (NoSuchMethodException exception) {
+				final Method getCleaner = buffer.getClass().getMethod("cleaner");
+				getCleaner.setAccessible(true);
+				final Object cleaner = getCleaner.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get the length of the file.
+	 * @return {@code size}
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Get the file channel.
+	 * @return {@code channel}
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+}
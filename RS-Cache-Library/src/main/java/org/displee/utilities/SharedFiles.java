@@ -0,0 +1,230 @@
+package org.displee.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.displee.CacheLockedException;
+
+/**
+ * A class that shares the read only files of a cache directory between all cache libraries of this process, so they
+ * map every file once.
+ * While any library has the directory open, this process holds a shared lock on the {@link #LOCK_FILE_NAME}, which
+ * keeps other processes from merging into the files. Merging takes the lock exclusively, so it only succeeds when no
+ * other library, in this process or another, has the directory open in shared mode. Libraries that write to the files
+ * directly hold the lock exclusively for as long as they are open, so the directory can not be shared meanwhile.
+ * <p>
+ * A directory that can not be written to, such as a read-only checkout, is shared through a lock file opened for
+ * reading only, or without any lock if it has no lock file. Such a directory can not be merged into.
+ */
+public class SharedFiles {
+
+	/**
+	 * The name of the file that is locked by the processes sharing a cache directory.
+	 */
+	public static final String LOCK_FILE_NAME = "main_file_cache.lock";
+
+	/**
+	 * The shared directories, by their canonical path.
+	 */
+	private static final Map<String, SharedFiles> DIRECTORIES = new HashMap<>();
+
+	/**
+	 * The canonical path of the directory.
+	 */
+	private final String key;
+
+	/**
+	 * The directory.
+	 */
+	private final File directory;
+
+	/**
+	 * The channel of the lock file, or {@code null} if the directory can not be written to and has no lock file.
+	 */
+	private final FileChannel lockChannel;
+
+	/**
+	 * If the lock file is opened for writing, which taking it exclusively requires.
+	 */
+	private final boolean writable;
+
+	/**
+	 * The lock this process holds on the lock file.
+	 */
+	private FileLock lock;
+
+	/**
+	 * The shared files, by their name in the directory.
+	 */
+	private final Map<String, MappedFile> files = new HashMap<>();
+
+	/**
+	 * The amount of libraries that have the directory open.
+	 */
+	private int references;
+
+	/**
+	 * Constructs a new {@code SharedFiles} {@code Object}.
+	 * @param key The canonical path of the directory.
+	 * @param directory The directory.
+	 * @throws IOException If it failed to open or lock the lock file.
+	 * @throws CacheLockedException If another library writes to the files.
+	 */
+	private SharedFiles(String key, File directory) throws IOException {
+		this.key = key;
+		this.directory = directory;
+		final File lockFile = new File(directory, LOCK_FILE_NAME);
+		FileChannel lockChannel;
+		boolean writable = true;
+		try {
+			lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (FileSystemException exception) {
+			lockChannel = lockFile.exists() ? FileChannel.open(lockFile.toPath(), StandardOpenOption.READ) : null;
+			writable = false;
+		}
+		this.lockChannel = lockChannel;
+		this.writable = writable;
+		if (lockChannel == null) {
+			return;
+		}
+		try {
+			if (writable && new File(directory, Journal.FILE_NAME).exists()) {
+				final FileLock exclusive = lockChannel.tryLock();
+				if (exclusive != null) {
+					try {
+						Journal.recover(directory);
+					} finally {
+						exclusive.release();
+					}
+				}
+			}
+			lock = lockChannel.tryLock(0, Long.MAX_VALUE, true);
+			if (lock == null) {
+				throw new OverlappingFileLockException();
+			}
+		} catch (OverlappingFileLockException exception) {
+			lockChannel.close();
+			throw new CacheLockedException("The cache[directory=" + directory + "] is opened for writing by another library.");
+		} catch (IOException exception) {
+			lockChannel.close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Open the argued directory for sharing, or share it with the libraries that already have.
+	 * @param directory The cache directory.
+	 * @return The shared files of the directory.
+	 * @throws IOException If it failed to lock the directory.
+	 */
+	public static SharedFiles acquire(File directory) throws IOException {
+		final String key = directory.getCanonicalPath();
+		synchronized (DIRECTORIES) {
+			SharedFiles shared = DIRECTORIES.get(key);
+			if (shared == null) {
+				DIRECTORIES.put(key, shared = new SharedFiles(key, directory));
+			}
+			shared.references++;
+			return shared;
+		}
+	}
+
+	/**
+	 * Release the directory, closing the files and the lock once no library has it open anymore.
+	 */
+	public void release() {
+		synchronized (DIRECTORIES) {
+			if (--references > 0) {
+				return;
+			}
+			DIRECTORIES.remove(key);
+			try {
+				for (MappedFile file : files.values()) {
+					file.getChannel().close();
+				}
+				if (lockChannel != null) {
+					lockChannel.close();
+				}
+			} catch (IOException exception) {
+				exception.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Open a file in the directory for reading, or get it if it is already open.
+	 * @param name The name of the file.
+	 * @return The channel of the file, which is closed once the directory is released.
+	 * @throws IOException If it failed to open the file.
+	 */
+	public FileChannel open(String name) throws IOException {
+		return get(name).getChannel();
+	}
+
+	/**
+	 * Create a private overlay of a file in the directory.
+	 * @param name The name of the file.
+	 * @return The overlay, sharing the mapped file with every other overlay of it.
+	 * @throws IOException If it failed to open the file.
+	 */
+	public MappedFile overlay(String name) throws IOException {
+		return new MappedFile(get(name));
+	}
+
+	/**
+	 * Get the shared mapped file of a file in the directory, opening it the first time.
+	 * @param name The name of the file.
+	 * @return The mapped file.
+	 * @throws IOException If it failed to open the file.
+	 */
+	private MappedFile get(String name) throws IOException {
+		synchronized (DIRECTORIES) {
+			MappedFile file = files.get(name);
+			if (file == null) {
+				file = new MappedFile(FileChannel.open(new File(directory, name).toPath(), StandardOpenOption.READ), true);
+				files.put(name, file);
+			}
+			return file;
+		}
+	}
+
+	/**
+	 * Merge the overlays of a library into the files of the directory.
+	 * @param overlays The overlays, by the name of their file.
+	 * @return If the overlays were merged, or {@code false} if another library has the directory open.
+	 * @throws IOException If it failed to lock the directory or write the files, or if the directory can not be
+	 * written to.
+	 */
+	public boolean merge(Map<String, MappedFile> overlays) throws IOException {
+		synchronized (DIRECTORIES) {
+			if (!writable) {
+				throw new IOException("The cache[directory=" + directory + "] can not be written to.");
+			}
+			if (references > 1) {
+				return false;
+			}
+			lock.release();
+			final FileLock exclusive = lockChannel.tryLock();
+			try {
+				if (exclusive == null) {
+					return false;
+				}
+				Journal.merge(directory, overlays);
+				return true;
+			} finally {
+				if (exclusive != null) {
+					exclusive.release();
+				}
+				lock = lockChannel.lock(0, Long.MAX_VALUE, true);
+			}
+		}
+	}
+
+}
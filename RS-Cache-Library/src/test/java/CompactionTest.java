@@ -0,0 +1,84 @@
+import org.displee.CacheLibrary;
+import org.displee.cache.index.Index;
+import org.displee.utilities.Constants;
+import org.displee.utilities.Journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fragments a synthetic cache by growing archives, compacts it and checks that every archive still reads back, from a
+ * single run of sectors.
+ */
+public class CompactionTest {
+
+	private static final int ARCHIVES = 500;
+
+	public static void main(String[] args) throws IOException {
+		final Path directory = Files.createTempDirectory("cache");
+		Files.createFile(directory.resolve("main_file_cache.dat2"));
+		Files.createFile(directory.resolve("main_file_cache.idx255"));
+		Files.createFile(directory.resolve("main_file_cache.idx0"));
+
+		final Random random = new Random(742);
+		final byte[][] contents = new byte[ARCHIVES][];
+		CacheLibrary library = new CacheLibrary(directory.toString());
+		Index index = library.addIndex(false, false);
+		for (int id = 0; id < ARCHIVES; id++) {
+			contents[id] = new byte[1 + random.nextInt(3000)];
+			random.nextBytes(contents[id]);
+			index.addArchive(id).addFile(0, contents[id]);
+		}
+		check(index.update(), "initial write");
+		for (int id = 0; id < ARCHIVES; id += 2) {
+			contents[id] = new byte[4000 + random.nextInt(4000)];
+			random.nextBytes(contents[id]);
+			index.getArchive(id).addFile(0, contents[id]);
+		}
+		check(index.update(), "growing write");
+		library.close();
+
+		library = new CacheLibrary(directory.toString());
+		final long length = library.getMainFileLength();
+		final long reclaimed = library.compact(null);
+		check(reclaimed > 0 && library.getMainFileLength() == length - reclaimed, "bytes reclaimed");
+		verify(library, contents);
+		library.close();
+
+		library = new CacheLibrary(directory.toString());
+		verify(library, contents);
+		check(!directory.resolve(Journal.FILE_NAME).toFile().exists() && !directory.resolve("main_file_cache.dat2" + Journal.REPLACEMENT_SUFFIX).toFile().exists(), "no leftovers");
+		System.out.println("Compacted " + length / 1024 + " KiB to " + library.getMainFileLength() / 1024 + " KiB.");
+		library.close();
+
+		for (File file : directory.toFile().listFiles()) {
+			file.delete();
+		}
+		directory.toFile().delete();
+	}
+
+	private static void verify(CacheLibrary library, byte[][] contents) throws IOException {
+		final Index index = library.getIndex(0);
+		final byte[] pointer = new byte[Constants.INDEX_SIZE];
+		int expected = 0;
+		for (int id = 0; id < contents.length; id++) {
+			check(index.readArchiveSector(id) != null && Arrays.equals(index.getArchive(id).readFile(0), contents[id]), "archive " + id);
+			index.getStore().read((long) id * Constants.INDEX_SIZE, pointer, 0, pointer.length);
+			final int size = (pointer[0] & 0xff) << 16 | (pointer[1] & 0xff) << 8 | pointer[2] & 0xff;
+			final int position = (pointer[3] & 0xff) << 16 | (pointer[4] & 0xff) << 8 | pointer[5] & 0xff;
+			check(id == 0 || position == expected, "archive " + id + " follows the one before it");
+			expected = position + (size + Constants.ARCHIVE_DATA_SIZE - 1) / Constants.ARCHIVE_DATA_SIZE;
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Failed: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+import org.displee.CacheLibrary;
+import org.displee.cache.index.Index;
+import org.displee.cache.index.archive.ArchiveSector;
+import org.displee.utilities.Compression;
+import org.displee.utilities.Compression.CompressionType;
+import org.displee.utilities.CompressionCodec;
+import org.displee.utilities.CompressionCodecs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Times every codec of every compression type over the archives of the config, map and model indices of the cache in
+ * the argued directory, or over synthetic archives if no directory is argued, and checks that each codec and the
+ * default codec read what the other wrote.
+ */
+public class CompressionBenchmark {
+
+	private static final int[] INDICES = { 2, 5, 7 };
+	private static final int SAMPLES = 300;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		final List<byte[]> samples = args.length > 0 ? read(args[0]) : generate();
+		long total = 0;
+		for (byte[] sample : samples) {
+			total += sample.length;
+		}
+		System.out.println("Sampled " + samples.size() + " archives, " + total / 1024 + " KiB.");
+
+		final Map<String, CompressionCodec> bzip2 = new LinkedHashMap<>();
+		bzip2.put("default", CompressionCodecs.BZIP2);
+		bzip2.put("commons", CompressionCodecs.COMMONS_BZIP2);
+		final Map<String, CompressionCodec> gzip = new LinkedHashMap<>();
+		gzip.put("default", CompressionCodecs.GZIP);
+		gzip.put("deflater 1", CompressionCodecs.deflater(Deflater.BEST_SPEED));
+		gzip.put("deflater 6", CompressionCodecs.deflater(6));
+		gzip.put("deflater 9", CompressionCodecs.deflater(Deflater.BEST_COMPRESSION));
+		final Map<String, CompressionCodec> lzma = new LinkedHashMap<>();
+		lzma.put("default", CompressionCodecs.LZMA);
+		final Map<CompressionType, Map<String, CompressionCodec>> codecs = new LinkedHashMap<>();
+		codecs.put(CompressionType.BZIP2, bzip2);
+		codecs.put(CompressionType.GZIP, gzip);
+		codecs.put(CompressionType.LZMA, lzma);
+
+		for (Map.Entry<CompressionType, Map<String, CompressionCodec>> type : codecs.entrySet()) {
+			final List<byte[]> reference = compress(type.getValue().get("default"), samples);
+			for (Map.Entry<String, CompressionCodec> codec : type.getValue().entrySet()) {
+				Compression.setCodec(type.getKey(), codec.getValue());
+				List<byte[]> containers = null;
+				long compressTime = Long.MAX_VALUE;
+				long decompressTime = Long.MAX_VALUE;
+				for (int round = 0; round < ROUNDS; round++) {
+					long start = System.nanoTime();
+					containers = new ArrayList<>(samples.size());
+					for (byte[] sample : samples) {
+						containers.add(Compression.compress(sample, type.getKey(), null, -1));
+					}
+					compressTime = Math.min(compressTime, System.nanoTime() - start);
+					start = System.nanoTime();
+					for (int index = 0; index < containers.size(); index++) {
+						check(Arrays.equals(Compression.decompress(sector(containers.get(index)), null), samples.get(index)), codec.getKey() + " " + type.getKey() + " archive " + index);
+					}
+					decompressTime = Math.min(decompressTime, System.nanoTime() - start);
+				}
+				for (int index = 0; index < reference.size(); index++) {
+					check(Arrays.equals(Compression.decompress(sector(reference.get(index)), null), samples.get(index)), codec.getKey() + " " + type.getKey() + " reads default archive " + index);
+				}
+				Compression.setCodec(type.getKey(), null);
+				for (int index = 0; index < containers.size(); index++) {
+					check(Arrays.equals(Compression.decompress(sector(containers.get(index)), null), samples.get(index)), "default " + type.getKey() + " reads " + codec.getKey() + " archive " + index);
+				}
+				long size = 0;
+				for (byte[] container : containers) {
+					size += container.length;
+				}
+				System.out.printf("%-5s %-10s %6d KiB, compress %8.2f ms, decompress %8.2f ms%n", type.getKey(), codec.getKey(), size / 1024, compressTime / 1_000_000D, decompressTime / 1_000_000D);
+			}
+		}
+	}
+
+	private static List<byte[]> read(String directory) throws IOException {
+		final List<byte[]> samples = new ArrayList<>();
+		final CacheLibrary library = new CacheLibrary(directory);
+		for (int id : INDICES) {
+			final Index index = library.getIndex(id);
+			if (index == null) {
+				continue;
+			}
+			final int[] archives = index.getArchiveIds();
+			for (int sample = 0; sample < Math.min(SAMPLES, archives.length); sample++) {
+				final ArchiveSector sector = index.readArchiveSector(archives[sample * archives.length / Math.min(SAMPLES, archives.length)]);
+				try {
+					final byte[] data = sector == null ? null : Compression.decompress(sector, null);
+					if (data != null && data.length > 0) {
+						samples.add(data);
+					}
+				} catch (RuntimeException encrypted) {
+				}
+			}
+		}
+		library.close();
+		return samples;
+	}
+
+	private static List<byte[]> generate() {
+		final Random random = new Random(742);
+		final List<byte[]> samples = new ArrayList<>();
+		for (int sample = 0; sample < SAMPLES; sample++) {
+			final byte[] data = new byte[64 + random.nextInt(random.nextInt(8) == 0 ? 40000 : 4000)];
+			for (int index = 0; index < data.length; index++) {
+				data[index] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : index % 7 * (index >> 9));
+			}
+			samples.add(data);
+		}
+		return samples;
+	}
+
+	private static List<byte[]> compress(CompressionCodec codec, List<byte[]> samples) {
+		final List<byte[]> compressed = new ArrayList<>(samples.size());
+		for (CompressionType type : CompressionType.values()) {
+			if (type != CompressionType.NONE && Compression.getCodec(type) == codec) {
+				for (byte[] sample : samples) {
+					compressed.add(Compression.compress(sample, type, null, -1));
+				}
+			}
+		}
+		return compressed;
+	}
+
+	private static ArchiveSector sector(byte[] container) {
+		final ArchiveSector sector = new ArchiveSector(0, 0, 0);
+		sector.setData(container);
+		return sector;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Failed: " + message);
+		}
+	}
+
+}
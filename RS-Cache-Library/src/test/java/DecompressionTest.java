@@ -0,0 +1,97 @@
+import org.displee.cache.index.archive.ArchiveSector;
+import org.displee.utilities.Compression;
+import org.displee.utilities.Compression.CompressionType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decompresses containers of every compression type from several threads at once and checks each result, then checks
+ * that the zero-copy methods fill caller-supplied arrays and buffers.
+ */
+public class DecompressionTest {
+
+	private static final int THREADS = 4;
+	private static final int ROUNDS = 200;
+	private static final int[] KEYS = { 1, 2, 3, 4 };
+
+	public static void main(String[] args) throws Exception {
+		final Random random = new Random(742);
+		final List<byte[]> originals = new ArrayList<>();
+		final List<byte[]> containers = new ArrayList<>();
+		final List<int[]> keys = new ArrayList<>();
+		for (CompressionType type : CompressionType.values()) {
+			for (int container = 0; container < 4; container++) {
+				final byte[] original = new byte[1000 + random.nextInt(20000)];
+				for (int index = 0; index < original.length; index++) {
+					original[index] = (byte) (random.nextInt(16) + (index / 64));
+				}
+				final int[] xteas = container % 2 == 0 ? null : KEYS;
+				originals.add(original);
+				containers.add(Compression.compress(original, type, xteas, -1));
+				keys.add(xteas);
+			}
+		}
+
+		final AtomicInteger failures = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < THREADS; thread++) {
+			final int first = thread;
+			futures.add(executor.submit(() -> {
+				for (int round = 0; round < ROUNDS; round++) {
+					final int index = (first + round) % containers.size();
+					final byte[] decompressed = Compression.decompress(sector(containers.get(index)), keys.get(index));
+					if (!Arrays.equals(decompressed, originals.get(index))) {
+						failures.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		check(failures.get() == 0, failures.get() + " concurrent decompressions differ");
+		System.out.println("Decompressed " + THREADS * ROUNDS + " containers on " + THREADS + " threads.");
+
+		for (int index = 0; index < containers.size(); index++) {
+			final byte[] original = originals.get(index);
+			final byte[] output = new byte[original.length + 10];
+			check(Compression.decompress(sector(containers.get(index)), keys.get(index), new byte[original.length - 1], 0) == -1, "too small arrays are refused");
+			check(Compression.getDecompressedLength(sector(containers.get(index)), keys.get(index)) == original.length, "decompressed length");
+			check(Compression.decompress(sector(containers.get(index)), keys.get(index), output, 7) == original.length, "decompress into an array");
+			check(Arrays.equals(Arrays.copyOfRange(output, 7, 7 + original.length), original), "array " + index);
+			final ByteBuffer heap = ByteBuffer.allocate(original.length + 3);
+			heap.position(3);
+			check(Compression.decompress(sector(containers.get(index)), keys.get(index), heap) == original.length && !heap.hasRemaining(), "decompress into a heap buffer");
+			check(Arrays.equals(Arrays.copyOfRange(heap.array(), 3, heap.capacity()), original), "heap buffer " + index);
+			final ByteBuffer direct = ByteBuffer.allocateDirect(original.length);
+			check(Compression.decompress(sector(containers.get(index)), keys.get(index), direct) == original.length, "decompress into a direct buffer");
+			final byte[] copy = new byte[original.length];
+			((ByteBuffer) direct.flip()).get(copy);
+			check(Arrays.equals(copy, original), "direct buffer " + index);
+		}
+		System.out.println("Zero-copy decompression is consistent.");
+	}
+
+	private static ArchiveSector sector(byte[] container) {
+		final ArchiveSector sector = new ArchiveSector(0, 0, 0);
+		sector.setData(container.clone());
+		return sector;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Failed: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+import org.displee.utilities.Journal;
+import org.displee.utilities.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks that batched writes are only visible in the file once committed, that a complete journal left behind by a
+ * crash is replayed, and that an incomplete one, or one whose replacement is lost, is discarded.
+ */
+public class JournalTest {
+
+	private static final String NAME = "main_file_cache.dat2";
+
+	public static void main(String[] args) throws IOException {
+		final Path directory = Files.createTempDirectory("journal");
+		final Path path = directory.resolve(NAME);
+		Files.write(path, new byte[10000]);
+		final byte[] data = new byte[6000];
+		Arrays.fill(data, (byte) 7);
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedFile store = new MappedFile(channel);
+		store.beginBatch();
+		store.write(9000, data, 0, data.length);
+		final byte[] read = new byte[data.length];
+		store.read(9000, read, 0, read.length);
+		check(Arrays.equals(read, data) && store.size() == 15000, "batched writes are visible to reads");
+		check(Files.size(path) == 10000, "batched writes stay out of the file");
+		Journal.commit(directory.toFile(), Collections.singletonMap(NAME, store));
+		store.endBatch();
+		check(Files.size(path) == 15000 && !directory.resolve(Journal.FILE_NAME).toFile().exists(), "commit writes the file");
+		channel.close();
+
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		store = new MappedFile(channel);
+		store.beginBatch();
+		Arrays.fill(data, (byte) 9);
+		store.write(100, data, 0, data.length);
+		channel.close();
+		try {
+			Journal.commit(directory.toFile(), Collections.singletonMap(NAME, store));
+			check(false, "writing to a closed file fails");
+		} catch (IOException expected) {
+		}
+		check(directory.resolve(Journal.FILE_NAME).toFile().exists() && Files.readAllBytes(path)[100] == 0, "a crash leaves the journal and the file untouched");
+		check(Journal.recover(directory.toFile()), "a complete journal is replayed");
+		final byte[] replayed = Files.readAllBytes(path);
+		check(replayed[99] == 0 && replayed[100] == 9 && replayed[6099] == 9 && replayed[6100] == 0 && replayed[9000] == 7, "the journal is replayed");
+
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		store = new MappedFile(channel);
+		store.beginBatch();
+		Arrays.fill(data, (byte) 11);
+		store.write(100, data, 0, data.length);
+		channel.close();
+		try {
+			Journal.commit(directory.toFile(), Collections.singletonMap(NAME, store));
+		} catch (IOException expected) {
+		}
+		final File journal = directory.resolve(Journal.FILE_NAME).toFile();
+		try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+		check(!Journal.recover(directory.toFile()) && !journal.exists(), "an incomplete journal is discarded");
+		check(Files.readAllBytes(path)[100] == 9, "an incomplete journal leaves the file untouched");
+
+		final Path replacement = directory.resolve(NAME + Journal.REPLACEMENT_SUFFIX);
+		final Path previous = directory.resolve(NAME + Journal.PREVIOUS_SUFFIX);
+		try {
+			Journal.commit(directory.toFile(), Collections.emptyMap(), Collections.singletonList(NAME));
+			check(false, "a missing replacement fails");
+		} catch (IOException expected) {
+		}
+		check(!journal.exists() && !previous.toFile().exists() && Files.readAllBytes(path)[100] == 9, "a failed replacement is rolled back with its journal");
+
+		for (int attempt = 0; attempt < 2; attempt++) {
+			Files.write(replacement, new byte[200]);
+			channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			store = new MappedFile(channel);
+			store.beginBatch();
+			store.write(150, data, 0, 10);
+			channel.close();
+			try {
+				Journal.commit(directory.toFile(), Collections.singletonMap(NAME, store), Collections.singletonList(NAME));
+			} catch (IOException expected) {
+			}
+			check(journal.exists() && previous.toFile().exists() && Files.size(path) == 200, "a crash after the replacement keeps the previous file");
+			if (attempt == 0) {
+				check(Journal.recover(directory.toFile()) && Files.readAllBytes(path)[150] == 11, "the runs are replayed onto the replacement");
+			} else {
+				Files.delete(previous);
+				check(!Journal.recover(directory.toFile()) && Files.readAllBytes(path)[150] == 0, "the runs are not replayed without the replacement");
+			}
+			check(!journal.exists() && !previous.toFile().exists() && !replacement.toFile().exists(), "recovery leaves nothing behind");
+		}
+
+		for (File file : directory.toFile().listFiles()) {
+			file.delete();
+		}
+		directory.toFile().delete();
+		System.out.println("Journal is consistent.");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Failed: " + message);
+		}
+	}
+
+}
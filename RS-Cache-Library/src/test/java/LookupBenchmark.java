@@ -0,0 +1,60 @@
+import org.displee.cache.index.archive.Archive;
+import org.displee.cache.index.archive.file.File;
+import org.displee.io.impl.InputStream;
+import org.displee.io.impl.OutputStream;
+
+/**
+ * Checks that the file lookups of an archive stay consistent while files are added, renamed and removed, and times
+ * unpacking an archive with many files, which looks every file up by its id.
+ */
+public class LookupBenchmark {
+
+	private static final int FILES = 4096;
+	private static final int ROUNDS = 200;
+
+	public static void main(String[] args) {
+		final Archive archive = new Archive(0);
+		archive.reset();
+		for (int id = 0; id < FILES; id++) {
+			archive.addFile("file" + id, new byte[] { (byte) id });
+		}
+		for (int id = 0; id < FILES; id++) {
+			check(archive.getFile(id) != null && archive.getFile(id).getId() == id, "id " + id);
+			check(archive.getFileId("file" + id) == id, "name file" + id);
+		}
+		archive.removeFile(17);
+		archive.removeFile("file18");
+		check(archive.getFile(17) == null && archive.getFileId("file18") == -1, "removed files");
+		archive.addFile(17, new byte[] { 1 }, "renamed".hashCode());
+		archive.addFile(19, new byte[] { 2 }, "other".hashCode());
+		check(archive.getFileId("renamed") == 17 && archive.getFileId("other") == 19 && archive.getFileId("file19") == -1, "renamed files");
+		archive.addFile(1_000_000, new byte[] { 3 });
+		check(archive.getFile(1_000_000) != null && archive.getFile(FILES) == null, "sparse ids");
+		System.out.println("Lookups are consistent.");
+
+		final Archive packed = new Archive(1);
+		packed.reset();
+		for (int id = 0; id < FILES; id++) {
+			packed.addFile(id, new byte[] { (byte) id, (byte) (id >> 8) });
+		}
+		final byte[] data = packed.write(new OutputStream(FILES * 8));
+		for (int warmup = 0; warmup < 20; warmup++) {
+			packed.read(new InputStream(data));
+		}
+		final long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			packed.read(new InputStream(data));
+		}
+		System.out.printf("Unpacking %d files: %.3f ms%n", FILES, (System.nanoTime() - start) / 1_000_000D / ROUNDS);
+		for (File file : packed.getFiles()) {
+			check(file.getData()[0] == (byte) file.getId(), "unpacked " + file.getId());
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Lookup failed: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+import org.displee.CacheLibrary;
+import org.displee.cache.index.Index;
+import org.displee.cache.index.archive.Archive;
+import org.displee.utilities.Constants;
+import org.displee.utilities.FileChannelUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds a synthetic cache and times a full scan of its archives, reading every sector through the persistent
+ * mapping of the cache library against mapping the file once per sector, then scans it from several threads at once
+ * with the striped sector locks against a single lock around every read.
+ */
+public class SectorReadBenchmark {
+
+	private static final int ARCHIVES = 2000;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws IOException {
+		final Path directory = Files.createTempDirectory("cache");
+		Files.createFile(directory.resolve("main_file_cache.dat2"));
+		Files.createFile(directory.resolve("main_file_cache.idx255"));
+		Files.createFile(directory.resolve("main_file_cache.idx0"));
+
+		final Random random = new Random(742);
+		final byte[][] contents = new byte[ARCHIVES][];
+		CacheLibrary library = new CacheLibrary(directory.toString());
+		Index index = library.addIndex(false, false);
+		for (int id = 0; id < ARCHIVES; id++) {
+			contents[id] = new byte[1 + random.nextInt(random.nextInt(8) == 0 ? 60000 : 4000)];
+			random.nextBytes(contents[id]);
+			index.addArchive(id).addFile(0, contents[id]);
+		}
+		final long repackStart = System.nanoTime();
+		if (!index.update()) {
+			throw new IllegalStateException("Failed to write the archives.");
+		}
+		System.out.printf("Repacked %d archives on %d processors in %.2f ms%n", ARCHIVES, Runtime.getRuntime().availableProcessors(), (System.nanoTime() - repackStart) / 1_000_000D);
+		library.close();
+
+		library = new CacheLibrary(directory.toString());
+		index = library.getIndex(0);
+		for (int id = 0; id < ARCHIVES; id++) {
+			final Archive archive = index.getArchive(id);
+			if (archive == null || !Arrays.equals(archive.readFile(0), contents[id])) {
+				throw new IllegalStateException("Archive " + id + " did not read back.");
+			}
+			if (!Arrays.equals(index.readArchiveSector(id).getData(), readPerSector(library, index, id))) {
+				throw new IllegalStateException("Archive " + id + " differs between the two readers.");
+			}
+		}
+		System.out.println("Read back " + ARCHIVES + " archives, main file is " + library.getMainFileLength() / 1024 + " KiB.");
+
+		for (int warmup = 0; warmup < 5; warmup++) {
+			scanMapped(index);
+			scanPerSector(library, index);
+		}
+		long mapped = 0, perSector = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			scanMapped(index);
+			mapped += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			scanPerSector(library, index);
+			perSector += System.nanoTime() - start;
+		}
+		System.out.printf("Persistent mapping: %.2f ms per scan%n", mapped / 1_000_000D / ROUNDS);
+		System.out.printf("Mapping per sector: %.2f ms per scan%n", perSector / 1_000_000D / ROUNDS);
+
+		final Index scanned = index;
+		final Object mainFile = library.getMainFile();
+		final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		long striped = 0, serialized = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			striped += scanConcurrently(threads, () -> scanMapped(scanned));
+			serialized += scanConcurrently(threads, () -> {
+				for (int id = 0; id < ARCHIVES; id++) {
+					synchronized (mainFile) {
+						scanned.readArchiveSector(id);
+					}
+				}
+			});
+		}
+		System.out.printf("%d threads, striped locks: %.2f ms per scan%n", threads, striped / 1_000_000D / ROUNDS);
+		System.out.printf("%d threads, one lock: %.2f ms per scan%n", threads, serialized / 1_000_000D / ROUNDS);
+
+		library.close();
+		for (File file : directory.toFile().listFiles()) {
+			file.delete();
+		}
+		directory.toFile().delete();
+	}
+
+	/**
+	 * Runs the scan on every thread at once and returns the time until all of them finished.
+	 */
+	private static long scanConcurrently(int threads, Runnable scan) throws IOException {
+		final Thread[] workers = new Thread[threads];
+		final long start = System.nanoTime();
+		for (int thread = 0; thread < threads; thread++) {
+			workers[thread] = new Thread(scan);
+			workers[thread].start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void scanMapped(Index index) {
+		for (int id = 0; id < ARCHIVES; id++) {
+			index.readArchiveSector(id);
+		}
+	}
+
+	private static void scanPerSector(CacheLibrary library, Index index) throws IOException {
+		for (int id = 0; id < ARCHIVES; id++) {
+			readPerSector(library, index, id);
+		}
+	}
+
+	/**
+	 * Reads an archive the way the library did before it kept the files mapped.
+	 */
+	private static byte[] readPerSector(CacheLibrary library, Index index, int id) throws IOException {
+		final FileChannel main = library.getMainFile();
+		final byte[] buffer = new byte[Constants.ARCHIVE_SIZE];
+		FileChannelUtil.readData(index.getRandomAccessFile(), (long) id * Constants.INDEX_SIZE, Constants.INDEX_SIZE, buffer);
+		final int size = (buffer[0] & 0xff) << 16 | (buffer[1] & 0xff) << 8 | buffer[2] & 0xff;
+		int position = (buffer[3] & 0xff) << 16 | (buffer[4] & 0xff) << 8 | buffer[5] & 0xff;
+		final byte[] data = new byte[size];
+		int read = 0;
+		while (read < size) {
+			final int length = Math.min(size - read, Constants.ARCHIVE_DATA_SIZE);
+			FileChannelUtil.readData(main, (long) position * Constants.ARCHIVE_SIZE, length + Constants.ARCHIVE_HEADER_SIZE, buffer);
+			System.arraycopy(buffer, Constants.ARCHIVE_HEADER_SIZE, data, read, length);
+			position = (buffer[4] & 0xff) << 16 | (buffer[5] & 0xff) << 8 | buffer[6] & 0xff;
+			read += length;
+		}
+		return data;
+	}
+
+}
@@ -0,0 +1,96 @@
+import org.displee.CacheLibrary;
+import org.displee.CacheLockedException;
+import org.displee.cache.index.Index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Opens a synthetic cache twice in shared mode, writes through one library and checks that the other library and the
+ * cache files do not see it, that the overlay is read back on reopening, that it can only be merged once the
+ * other library is closed, and that the cache is never shared and written to at the same time.
+ */
+public class SharedModeTest {
+
+	private static final int ARCHIVES = 50;
+
+	public static void main(String[] args) throws IOException {
+		final Path directory = Files.createTempDirectory("cache");
+		Files.createFile(directory.resolve("main_file_cache.dat2"));
+		Files.createFile(directory.resolve("main_file_cache.idx255"));
+		Files.createFile(directory.resolve("main_file_cache.idx0"));
+
+		final Random random = new Random(742);
+		final byte[][] contents = new byte[ARCHIVES][];
+		CacheLibrary library = new CacheLibrary(directory.toString());
+		Index index = library.addIndex(false, false);
+		for (int id = 0; id < ARCHIVES; id++) {
+			contents[id] = new byte[1 + random.nextInt(3000)];
+			random.nextBytes(contents[id]);
+			index.addArchive(id).addFile(0, contents[id]);
+		}
+		check(index.update(), "initial write");
+		library.close();
+		final byte[] main = Files.readAllBytes(directory.resolve("main_file_cache.dat2"));
+
+		final File first = directory.resolve("first.overlay").toFile();
+		final File second = directory.resolve("second.overlay").toFile();
+		CacheLibrary writer = new CacheLibrary(directory.toString(), first, null);
+		final CacheLibrary reader = new CacheLibrary(directory.toString(), second, null);
+		try {
+			new CacheLibrary(directory.toString(), first, null);
+			check(false, "an overlay is only used by one library");
+		} catch (IOException expected) {
+		}
+		final byte[] changed = new byte[5000];
+		random.nextBytes(changed);
+		writer.getIndex(0).getArchive(3).addFile(0, changed);
+		check(writer.getIndex(0).update(), "shared write");
+		check(first.exists(), "overlay saved");
+		check(Arrays.equals(reader.getIndex(0).getArchive(3).readFile(0), contents[3]), "other library is isolated");
+		check(Arrays.equals(Files.readAllBytes(directory.resolve("main_file_cache.dat2")), main), "main file untouched");
+		writer.close();
+
+		writer = new CacheLibrary(directory.toString(), first, null);
+		check(Arrays.equals(writer.getIndex(0).getArchive(3).readFile(0), changed), "overlay read back");
+		check(!writer.mergeOverlay(), "merge refused while shared");
+		try {
+			new CacheLibrary(directory.toString());
+			check(false, "the cache can not be written while shared");
+		} catch (CacheLockedException expected) {
+		}
+		reader.close();
+		check(writer.mergeOverlay() && !first.exists(), "merge");
+		check(Arrays.equals(writer.getIndex(0).getArchive(3).readFile(0), changed), "merged data read through the shared file");
+		writer.close();
+
+		library = new CacheLibrary(directory.toString());
+		contents[3] = changed;
+		for (int id = 0; id < ARCHIVES; id++) {
+			check(Arrays.equals(library.getIndex(0).getArchive(id).readFile(0), contents[id]), "archive " + id);
+		}
+		try {
+			new CacheLibrary(directory.toString(), second, null);
+			check(false, "the cache can not be shared while written");
+		} catch (CacheLockedException expected) {
+		}
+		library.close();
+		System.out.println("Shared mode is isolated and merges.");
+
+		for (File file : directory.toFile().listFiles()) {
+			file.delete();
+		}
+		directory.toFile().delete();
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("Failed: " + message);
+		}
+	}
+
+}